@@ -0,0 +1,58 @@
+package com.jordi.booknook.benchmarks;
+
+import com.jordi.booknook.models.BookEntity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AverageRatingBenchmark {
+    @Param("100000")
+    public int books;
+
+    @Param("42")
+    public long seed;
+
+    BookEntity[] catalog;
+
+    // About a tenth of the books have no ratings, like new additions to the catalog.
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(seed);
+        catalog = new BookEntity[books];
+
+        for (int i = 0; i < books; i++) {
+            BookEntity book = new BookEntity();
+            long count = random.nextInt(10) == 0 ? 0 : 1 + random.nextInt(500);
+            book.setRating_count(count);
+            book.setRating_sum(count == 0 ? 0 : count + random.nextLong(count * 4 + 1));
+            catalog[i] = book;
+        }
+    }
+
+    @Benchmark
+    public double getAverageRating() {
+        double total = 0;
+        for (BookEntity book : catalog) {
+            total += book.getAverageRating();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,38 @@
+package com.jordi.booknook.benchmarks;
+
+import com.jordi.booknook.cache.BookCache;
+import com.jordi.booknook.cache.SecondLevelCacheConfig;
+import com.jordi.booknook.events.BookSearchIndexInitializer;
+import com.jordi.booknook.events.SpringContext;
+import com.jordi.booknook.models.BookEntity;
+import com.jordi.booknook.repositories.BookRepository;
+import com.jordi.booknook.search.BookSearchIndex;
+import com.jordi.booknook.search.TitleAutocomplete;
+import com.jordi.booknook.security.CurrentUserResolver;
+import com.jordi.booknook.services.BookService;
+import com.jordi.booknook.services.ShelfService;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+/**
+ * The persistence layer and the services under benchmark, without the web, security and
+ * Entra configuration of the application.
+ */
+@SpringBootConfiguration
+@EnableAutoConfiguration
+@EntityScan(basePackageClasses = BookEntity.class)
+@EnableJpaRepositories(basePackageClasses = BookRepository.class)
+@Import({SpringContext.class, SecondLevelCacheConfig.class, BookService.class, BookCache.class, BookSearchIndex.class, TitleAutocomplete.class,
+        BookSearchIndexInitializer.class, ShelfService.class, CurrentUserResolver.class})
+public class BenchmarkApplication {
+
+    static ConfigurableApplicationContext start() {
+        return new SpringApplicationBuilder(BenchmarkApplication.class)
+                .run("--spring.config.name=benchmark");
+    }
+}
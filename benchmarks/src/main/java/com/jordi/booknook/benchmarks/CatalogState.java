@@ -0,0 +1,55 @@
+package com.jordi.booknook.benchmarks;
+
+import com.jordi.booknook.events.BookSearchIndexInitializer;
+import com.jordi.booknook.repositories.BookRepository;
+import com.jordi.booknook.services.BookService;
+import com.jordi.booknook.seed.SyntheticDataGenerator;
+import com.jordi.booknook.services.ShelfService;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * A running application context over a synthetic catalog, shared by every benchmark thread.
+ * Run with -p books=1000000 to change the catalog size. User 1, reader1, owns shelf 1.
+ */
+@State(Scope.Benchmark)
+public class CatalogState {
+    @Param("10000")
+    public int books;
+
+    @Param("1000")
+    public int users;
+
+    @Param("50000")
+    public int reviews;
+
+    @Param("42")
+    public long seed;
+
+    ConfigurableApplicationContext context;
+    BookRepository bookRepository;
+    BookService bookService;
+    ShelfService shelfService;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = BenchmarkApplication.start();
+        new SyntheticDataGenerator(context.getBean(JdbcTemplate.class), books, 50, users, reviews, 1.0, seed).generate();
+        context.getBean(BookSearchIndexInitializer.class).init();
+
+        bookRepository = context.getBean(BookRepository.class);
+        bookService = context.getBean(BookService.class);
+        shelfService = context.getBean(ShelfService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+}
@@ -0,0 +1,34 @@
+package com.jordi.booknook.benchmarks;
+
+import com.jordi.booknook.models.UniversalSearch;
+import com.jordi.booknook.payload.response.BookView;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+    // A common word, two words together and a word that matches nothing.
+    @Param({"dragon", "silent river", "zeppelin"})
+    public String query;
+
+    @Benchmark
+    public List<BookView> search(CatalogState catalog) {
+        return catalog.bookService.search(new UniversalSearch(query, 0, 20));
+    }
+}
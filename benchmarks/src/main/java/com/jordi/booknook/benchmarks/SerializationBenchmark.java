@@ -0,0 +1,94 @@
+package com.jordi.booknook.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jordi.booknook.models.BookEntity;
+import com.jordi.booknook.models.BookImagesEntity;
+import com.jordi.booknook.models.CategoryEntity;
+import com.jordi.booknook.payload.response.BookView;
+import com.jordi.booknook.payload.response.CategoryView;
+import com.jordi.booknook.payload.response.ImageView;
+import com.jordi.booknook.payload.response.ReviewView;
+import com.jordi.booknook.payload.response.ReviewsByBookResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializes responses with an ObjectMapper configured the way Spring Boot configures the
+ * application's one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+    private static final String[] OPINIONS = {"Could not put it down.", "Slow start but worth it.", "Not for me."};
+
+    @Param({"10", "1000"})
+    public int reviews;
+
+    @Param("42")
+    public long seed;
+
+    ObjectMapper objectMapper;
+    BookEntity book;
+    ReviewsByBookResponse reviewsByBook;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(seed);
+        LocalDateTime now = LocalDateTime.now();
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        book = new BookEntity("cover.jpg", "The silent river", "A story about a silent river.", new BigDecimal("19.90"), now, now);
+        book.setBook_id(1L);
+        for (int i = 1; i <= 2; i++) {
+            CategoryEntity category = new CategoryEntity("Category " + i, now, now);
+            category.setCategory_id((long) i);
+            book.addCategories(category);
+            book.addImage(new BookImagesEntity(book, "image-" + i + ".jpg", now, now));
+        }
+
+        BookView view = new BookView(1L, book.getTitle(), book.getDescription(), book.getCover(),
+                new ArrayList<>(List.of(new CategoryView(1L, 1L, "Category 1"), new CategoryView(1L, 2L, "Category 2"))),
+                new ArrayList<>(List.of(new ImageView(1L, 1L, "image-1.jpg"), new ImageView(1L, 2L, "image-2.jpg"))),
+                book.getPrice(), (long) reviews, 3.9);
+
+        List<ReviewView> reviewViews = new ArrayList<>(reviews);
+        for (long id = 1; id <= reviews; id++) {
+            reviewViews.add(new ReviewView(id, 1L, 1 + random.nextInt(5),
+                    OPINIONS[random.nextInt(OPINIONS.length)], now, now));
+        }
+        reviewsByBook = new ReviewsByBookResponse(view, reviewViews);
+    }
+
+    @Benchmark
+    public byte[] writeBookEntity() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(book);
+    }
+
+    @Benchmark
+    public byte[] writeReviewsByBook() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(reviewsByBook);
+    }
+}
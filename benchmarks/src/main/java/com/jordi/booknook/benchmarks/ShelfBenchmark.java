@@ -0,0 +1,55 @@
+package com.jordi.booknook.benchmarks;
+
+import com.jordi.booknook.payload.request.AddBookToShelfRequest;
+import com.jordi.booknook.payload.response.AddBookToShelfResponse;
+import com.jordi.booknook.security.UserDetailsImplementation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ShelfBenchmark {
+
+    /**
+     * The signed in shelf owner. The security context is per thread, so it is set up by the
+     * thread that runs the benchmark.
+     */
+    @State(Scope.Thread)
+    public static class Owner {
+        SplittableRandom random;
+
+        @Setup(Level.Trial)
+        public void signIn(CatalogState catalog) {
+            UserDetailsImplementation user = new UserDetailsImplementation("bench-sub", "reader1",
+                    "reader1@booknook.test", null, List.of(), 1L);
+            SecurityContextHolder.getContext().setAuthentication(
+                    new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+            random = new SplittableRandom(catalog.seed);
+        }
+    }
+
+    // Books already on the shelf are added again on purpose, that path is as common as a new one.
+    @Benchmark
+    public AddBookToShelfResponse addBookToShelf(CatalogState catalog, Owner owner) {
+        long book_id = 1 + owner.random.nextInt(catalog.books);
+        return catalog.shelfService.addBookToShelf(new AddBookToShelfRequest(book_id, 1L));
+    }
+}
@@ -0,0 +1,36 @@
+package com.jordi.booknook.benchmarks;
+
+import com.jordi.booknook.payload.response.BookView;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SortedBooksBenchmark {
+    @Param({"priceAsc", "ratingsDesc"})
+    public String sortBy;
+
+    // The last page shows how the OFFSET scan grows with the page number.
+    @Param({"0", "100"})
+    public int page;
+
+    @Benchmark
+    public List<BookView> findAllSorted(CatalogState catalog) {
+        return catalog.bookRepository.findAllSorted(sortBy, page, 20);
+    }
+}
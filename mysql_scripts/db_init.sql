@@ -11,8 +11,41 @@ CREATE TABLE `books`
     `price`       decimal(38, 2) DEFAULT NULL,
     `title`       varchar(255)   DEFAULT NULL,
     `updated_at`  datetime(6)    DEFAULT NULL,
-    PRIMARY KEY (`book_id`)
+    `rating_count` bigint        NOT NULL DEFAULT 0,
+    `rating_sum`  bigint         NOT NULL DEFAULT 0,
+    `average_rating` double      NOT NULL DEFAULT 0,
+    `rating_1_count` bigint      NOT NULL DEFAULT 0,
+    `rating_2_count` bigint      NOT NULL DEFAULT 0,
+    `rating_3_count` bigint      NOT NULL DEFAULT 0,
+    `rating_4_count` bigint      NOT NULL DEFAULT 0,
+    `rating_5_count` bigint      NOT NULL DEFAULT 0,
+    PRIMARY KEY (`book_id`),
+    KEY `ix_books_price` (`price`, `book_id`),
+    KEY `ix_books_average_rating` (`average_rating`, `book_id`)
 ) ENGINE = InnoDB
   AUTO_INCREMENT = 2
   DEFAULT CHARSET = utf8mb4
-  COLLATE = utf8mb4_0900_ai_ci;
\ No newline at end of file
+  COLLATE = utf8mb4_0900_ai_ci;
+
+-- book_nook.book_reviews definition
+-- The foreign key to users is added by the application, which creates that table on its first start.
+
+CREATE TABLE `book_reviews`
+(
+    `book_reviews_id` bigint   NOT NULL AUTO_INCREMENT,
+    `book_id`    bigint        DEFAULT NULL,
+    `user_id`    bigint        DEFAULT NULL,
+    `rating`     int           NOT NULL,
+    `review`     text,
+    `created_at` datetime(6)   DEFAULT NULL,
+    `updated_at` datetime(6)   DEFAULT NULL,
+    PRIMARY KEY (`book_reviews_id`),
+    KEY `ix_book_reviews_book_rating` (`book_id`, `rating`, `book_reviews_id`),
+    CONSTRAINT `fk_book_reviews_book` FOREIGN KEY (`book_id`) REFERENCES `books` (`book_id`)
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4
+  COLLATE = utf8mb4_0900_ai_ci;
+
+-- The reviews of a book and of a user are listed newest first, a range scan on each index.
+CREATE INDEX `ix_book_reviews_book_created` ON `book_reviews` (`book_id`, `created_at`, `book_reviews_id`);
+CREATE INDEX `ix_book_reviews_user_created` ON `book_reviews` (`user_id`, `created_at`, `book_reviews_id`);
\ No newline at end of file
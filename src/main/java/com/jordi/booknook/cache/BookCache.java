@@ -0,0 +1,97 @@
+package com.jordi.booknook.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.jordi.booknook.events.BookChangedEvent;
+import com.jordi.booknook.events.BookDetailsChangedEvent;
+import com.jordi.booknook.payload.response.BookView;
+import com.jordi.booknook.payload.response.CacheStatsResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Bounded cache of single book views, keyed by book id.
+ *
+ * Books that don't exist are cached too, for a much shorter time, so scanning ids that
+ * return 404 doesn't reach the database on every request. Entries are dropped after the
+ * transaction that changes the book, its images, its categories or its ratings commits.
+ * Loads run on the caller's thread through CacheLoads, outside of the cache's map.
+ */
+@Component
+public class BookCache {
+    private final AsyncCache<Long, Optional<BookView>> cache;
+
+    public BookCache(@Value("${booknook.cache.books.max-size:10000}") long maxSize,
+                     @Value("${booknook.cache.books.ttl:10m}") Duration ttl,
+                     @Value("${booknook.cache.books.negative-ttl:30s}") Duration negativeTtl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new FoundOrMissingExpiry(ttl, negativeTtl))
+                .recordStats()
+                .buildAsync();
+    }
+
+    public Optional<BookView> get(Long book_id, Function<Long, Optional<BookView>> loader) {
+        return CacheLoads.getOrLoad(cache, book_id, loader);
+    }
+
+    /**
+     * Returns null, not an empty Optional, when nothing is cached for the id.
+     */
+    public Optional<BookView> getIfPresent(Long book_id) {
+        return CacheLoads.getIfLoaded(cache, book_id);
+    }
+
+    public void invalidate(Long book_id) {
+        cache.synchronous().invalidate(book_id);
+    }
+
+    public void invalidateAll() {
+        cache.synchronous().invalidateAll();
+    }
+
+    public CacheStatsResponse stats() {
+        CacheStats stats = cache.synchronous().stats();
+
+        return new CacheStatsResponse(cache.synchronous().estimatedSize(), stats.hitCount(), stats.missCount(), stats.hitRate(),
+                stats.evictionCount(), stats.loadFailureCount(), stats.averageLoadPenalty() / 1_000_000.0);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        invalidate(event.book().getBook_id());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookDetailsChanged(BookDetailsChangedEvent event) {
+        if (event.book_id() == null) {
+            invalidateAll();
+        } else {
+            invalidate(event.book_id());
+        }
+    }
+
+    private record FoundOrMissingExpiry(Duration ttl, Duration negativeTtl) implements Expiry<Long, Optional<BookView>> {
+        @Override
+        public long expireAfterCreate(Long key, Optional<BookView> value, long currentTime) {
+            return (value.isPresent() ? ttl : negativeTtl).toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(Long key, Optional<BookView> value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(Long key, Optional<BookView> value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
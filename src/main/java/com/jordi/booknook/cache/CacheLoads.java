@@ -0,0 +1,61 @@
+package com.jordi.booknook.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * Loads missing cache entries on the calling thread, outside of Caffeine's map.
+ *
+ * A synchronous Caffeine cache runs the loader inside ConcurrentHashMap.compute, which holds
+ * a synchronized lock on the bin for the whole load. A virtual thread blocking on JDBC in
+ * there stays pinned to its carrier. Here the map only receives an empty future, the caller
+ * then completes it, and concurrent callers for the same key wait on that future.
+ */
+public final class CacheLoads {
+    private CacheLoads() {
+    }
+
+    public static <K, V> V getOrLoad(AsyncCache<K, V> cache, K key, Function<K, V> loader) {
+        CompletableFuture<V> load = new CompletableFuture<>();
+        CompletableFuture<V> value = cache.get(key, (ignored, executor) -> load);
+
+        if (value == load) {
+            try {
+                load.complete(loader.apply(key));
+            } catch (RuntimeException | Error e) {
+                // Caffeine drops entries whose future fails, so the next call loads again.
+                load.completeExceptionally(e);
+                throw e;
+            }
+        }
+
+        return await(value);
+    }
+
+    /**
+     * Returns null when nothing is cached for the key or its load is still running.
+     */
+    public static <K, V> V getIfLoaded(AsyncCache<K, V> cache, K key) {
+        CompletableFuture<V> value = cache.getIfPresent(key);
+
+        return value != null && value.isDone() && !value.isCompletedExceptionally() ? value.join() : null;
+    }
+
+    private static <V> V await(CompletableFuture<V> value) {
+        try {
+            return value.join();
+        } catch (CompletionException e) {
+            // Callers should see the exception the loader threw, not the future's wrapper.
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
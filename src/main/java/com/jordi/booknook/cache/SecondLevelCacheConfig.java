@@ -0,0 +1,87 @@
+package com.jordi.booknook.cache;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.OptionalLong;
+
+/**
+ * Hibernate second-level cache for reference data that rarely changes: categories, roles,
+ * images and the categories and images of each book, plus the query cache used by the
+ * category and role lookups. Regions are Caffeine caches created through its JCache
+ * provider, each sized on its own. A region missing here fails startup instead of being
+ * created with no bounds.
+ */
+@Configuration
+public class SecondLevelCacheConfig {
+    public static final String CATEGORIES = "categories";
+    public static final String ROLES = "roles";
+    public static final String IMAGES = "images";
+    public static final String BOOK_CATEGORIES = "book-categories";
+    public static final String BOOK_IMAGES = "book-images";
+
+    // Hibernate's own regions for cached query results and for when each table last changed.
+    public static final String QUERY_RESULTS = "default-query-results-region";
+    public static final String UPDATE_TIMESTAMPS = "default-update-timestamps-region";
+
+    @Bean(destroyMethod = "close")
+    public CacheManager secondLevelCacheManager(@Value("${booknook.cache.l2.categories.max-size:1000}") long categories,
+                                                @Value("${booknook.cache.l2.roles.max-size:10}") long roles,
+                                                @Value("${booknook.cache.l2.images.max-size:100000}") long images,
+                                                @Value("${booknook.cache.l2.book-categories.max-size:50000}") long bookCategories,
+                                                @Value("${booknook.cache.l2.book-images.max-size:50000}") long bookImages,
+                                                @Value("${booknook.cache.l2.queries.max-size:100}") long queries,
+                                                @Value("${booknook.cache.l2.ttl:1h}") Duration ttl) {
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("booknook-second-level-cache"), getClass().getClassLoader());
+
+        createRegion(cacheManager, CATEGORIES, OptionalLong.of(categories), ttl);
+        createRegion(cacheManager, ROLES, OptionalLong.of(roles), ttl);
+        createRegion(cacheManager, IMAGES, OptionalLong.of(images), ttl);
+        createRegion(cacheManager, BOOK_CATEGORIES, OptionalLong.of(bookCategories), ttl);
+        createRegion(cacheManager, BOOK_IMAGES, OptionalLong.of(bookImages), ttl);
+        createRegion(cacheManager, QUERY_RESULTS, OptionalLong.of(queries), ttl);
+        // Evicting a timestamp could let a stale query result be served, so this one is unbounded.
+        // It holds one entry per table.
+        createRegion(cacheManager, UPDATE_TIMESTAMPS, OptionalLong.empty(), null);
+
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCache(CacheManager secondLevelCacheManager) {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.put(AvailableSettings.USE_QUERY_CACHE, true);
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            properties.put(AvailableSettings.GENERATE_STATISTICS, true);
+            // Statistics would otherwise also log the metrics of every session at INFO.
+            properties.put(AvailableSettings.LOG_SESSION_METRICS, false);
+            properties.put(ConfigSettings.CACHE_MANAGER, secondLevelCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+
+    private static void createRegion(CacheManager cacheManager, String region, OptionalLong maxSize, Duration ttl) {
+        if (cacheManager.getCache(region) != null) {
+            return;
+        }
+
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(maxSize);
+        if (ttl != null) {
+            configuration.setExpireAfterWrite(OptionalLong.of(ttl.toNanos()));
+        }
+        cacheManager.createCache(region, configuration);
+    }
+}
@@ -0,0 +1,76 @@
+package com.jordi.booknook.cache;
+
+import com.jordi.booknook.payload.response.CacheRegionStatsResponse;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.EntityNotFoundException;
+import org.hibernate.cache.spi.CacheImplementor;
+import org.hibernate.cache.spi.Region;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import java.util.List;
+
+/**
+ * Statistics and eviction of the Hibernate second-level cache regions for the admin endpoints.
+ */
+@Component
+public class SecondLevelCacheRegions {
+    private final CacheImplementor cache;
+    private final Statistics statistics;
+    private final CacheManager cacheManager;
+
+    public SecondLevelCacheRegions(EntityManagerFactory entityManagerFactory, CacheManager secondLevelCacheManager) {
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        this.cache = sessionFactory.getCache();
+        this.statistics = sessionFactory.getStatistics();
+        this.cacheManager = secondLevelCacheManager;
+    }
+
+    public List<CacheRegionStatsResponse> stats() {
+        return cache.getCacheRegionNames().stream()
+                .sorted()
+                .map(this::stats)
+                .toList();
+    }
+
+    /**
+     * Drops every entry of the region, the next reads go to the database. The update timestamps
+     * can't be dropped on their own: cached query results would then look newer than the tables.
+     */
+    public void evict(String region) {
+        if (SecondLevelCacheConfig.UPDATE_TIMESTAMPS.equals(region)) {
+            throw new IllegalArgumentException("The update timestamps region can only be evicted with every other region.");
+        }
+
+        Region cached = cache.getRegion(region);
+        if (cached == null) {
+            throw new EntityNotFoundException("Cache region not found.");
+        }
+        cached.clear();
+    }
+
+    public void evictAll() {
+        cache.evictAllRegions();
+    }
+
+    private CacheRegionStatsResponse stats(String region) {
+        CacheRegionStatistics regionStatistics = statistics.getCacheRegionStatistics(region);
+        long hits = regionStatistics == null ? 0 : regionStatistics.getHitCount();
+        long misses = regionStatistics == null ? 0 : regionStatistics.getMissCount();
+        long puts = regionStatistics == null ? 0 : regionStatistics.getPutCount();
+        long lookups = hits + misses;
+
+        return new CacheRegionStatsResponse(region, size(region), hits, misses, puts,
+                lookups == 0 ? 0 : hits / (double) lookups);
+    }
+
+    private long size(String region) {
+        Cache<Object, Object> regionCache = cacheManager.getCache(region);
+        return regionCache == null ? 0
+                : regionCache.unwrap(com.github.benmanes.caffeine.cache.Cache.class).estimatedSize();
+    }
+}
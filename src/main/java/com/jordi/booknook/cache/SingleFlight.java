@@ -0,0 +1,67 @@
+package com.jordi.booknook.cache;
+
+import com.jordi.booknook.payload.response.CoalescingStatsResponse;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Shares one in-flight load between concurrent callers asking for the same key.
+ *
+ * The first caller runs the load on its own thread, everyone arriving before it finishes
+ * waits for that result, or that exception, instead of starting a load of their own.
+ * Nothing is kept once the load completes, so a later call always loads again.
+ */
+public class SingleFlight<K, V> {
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    public V execute(K key, Supplier<V> loader) {
+        calls.increment();
+
+        CompletableFuture<V> load = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, load);
+
+        if (running != null) {
+            coalesced.increment();
+            return await(running);
+        }
+
+        loads.increment();
+        try {
+            V value = loader.get();
+            load.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, load);
+        }
+    }
+
+    public CoalescingStatsResponse stats() {
+        return new CoalescingStatsResponse(calls.sum(), loads.sum(), coalesced.sum(), inFlight.size());
+    }
+
+    private static <V> V await(CompletableFuture<V> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            // Callers should see the exception the loader threw, not the future's wrapper.
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
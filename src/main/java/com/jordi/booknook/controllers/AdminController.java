@@ -0,0 +1,112 @@
+package com.jordi.booknook.controllers;
+
+import com.jordi.booknook.cache.SecondLevelCacheRegions;
+import com.jordi.booknook.payload.response.CacheRegionStatsResponse;
+import com.jordi.booknook.payload.response.CacheStatsResponse;
+import com.jordi.booknook.payload.response.CoalescingStatsResponse;
+import com.jordi.booknook.monitoring.PinnedThreadMonitor;
+import com.jordi.booknook.payload.response.LoginLatencyResponse;
+import com.jordi.booknook.payload.response.PinnedThreadsResponse;
+import com.jordi.booknook.payload.response.RegistrationStatsResponse;
+import com.jordi.booknook.search.AutocompleteStats;
+import com.jordi.booknook.security.EntraLoginClient;
+import com.jordi.booknook.services.BookReviewService;
+import com.jordi.booknook.services.BookService;
+import com.jordi.booknook.services.RegistrationService;
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("api/v1/admin")
+@PreAuthorize("hasRole('ADMIN')")
+public class AdminController {
+    private final BookService bookService;
+    private final BookReviewService bookReviewService;
+    private final EntraLoginClient loginClient;
+    private final RegistrationService registrationService;
+    private final PinnedThreadMonitor pinnedThreadMonitor;
+    private final SecondLevelCacheRegions secondLevelCache;
+
+    public AdminController(BookService bookService, BookReviewService bookReviewService, EntraLoginClient loginClient,
+                           RegistrationService registrationService, PinnedThreadMonitor pinnedThreadMonitor,
+                           SecondLevelCacheRegions secondLevelCache) {
+        this.bookService = bookService;
+        this.bookReviewService = bookReviewService;
+        this.loginClient = loginClient;
+        this.registrationService = registrationService;
+        this.pinnedThreadMonitor = pinnedThreadMonitor;
+        this.secondLevelCache = secondLevelCache;
+    }
+
+    @GetMapping("/cache/books")
+    public CacheStatsResponse getBookCacheStats(){
+        return bookService.getBookCacheStats();
+    }
+
+    @GetMapping("/cache/regions")
+    public List<CacheRegionStatsResponse> getCacheRegionStats(){
+        return secondLevelCache.stats();
+    }
+
+    @DeleteMapping("/cache/regions/{region}")
+    public ResponseEntity<Void> evictCacheRegion(@PathVariable String region){
+        secondLevelCache.evict(region);
+        return ResponseEntity.noContent().build();
+    }
+
+    @DeleteMapping("/cache/regions")
+    public ResponseEntity<Void> evictCacheRegions(){
+        secondLevelCache.evictAll();
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping("/coalescing/books")
+    public CoalescingStatsResponse getBookLoadStats(){
+        return bookService.getBookLoadStats();
+    }
+
+    @GetMapping("/coalescing/reviews")
+    public CoalescingStatsResponse getReviewLoadStats(){
+        return bookReviewService.getReviewLoadStats();
+    }
+
+    @GetMapping("/autocomplete")
+    public AutocompleteStats getAutocompleteStats(){
+        return bookService.getAutocompleteStats();
+    }
+
+    @GetMapping("/auth/login")
+    public LoginLatencyResponse getLoginLatency(){
+        return loginClient.stats();
+    }
+
+    @GetMapping("/auth/register")
+    public RegistrationStatsResponse getRegistrationStats(){
+        return registrationService.stats();
+    }
+
+    @GetMapping("/threads/pinned")
+    public PinnedThreadsResponse getPinnedThreads(){
+        return pinnedThreadMonitor.report();
+    }
+
+    @ExceptionHandler(EntityNotFoundException.class)
+    public ResponseEntity<String> handleEntityNotFoundException(EntityNotFoundException exception) {
+        return new ResponseEntity<>(exception.getMessage(), HttpStatus.NOT_FOUND);
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> handleIllegalArgumentException(IllegalArgumentException exception) {
+        return new ResponseEntity<>(exception.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+}
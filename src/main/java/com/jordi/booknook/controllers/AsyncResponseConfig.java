@@ -0,0 +1,55 @@
+package com.jordi.booknook.controllers;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Threads that write the bodies of asynchronous responses: every element of the NDJSON
+ * streams and the catalog export. Each write is a blocking servlet write, so a writer is
+ * held for as long as its client takes to accept the bytes, and all streams share this
+ * pool. It is kept apart from the application task executor so that slow clients can't
+ * starve @Async work, and it is not a bean, which would replace that executor.
+ * With virtual threads on, every write gets a virtual thread of its own instead.
+ */
+@Configuration
+public class AsyncResponseConfig implements WebMvcConfigurer {
+    public static final String THREAD_NAME_PREFIX = "response-writer-";
+
+    private final AsyncTaskExecutor writers;
+
+    public AsyncResponseConfig(@Value("${booknook.stream.writer-threads:32}") int threads,
+                               @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        if (virtualThreads) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(THREAD_NAME_PREFIX);
+            executor.setVirtualThreads(true);
+            this.writers = executor;
+        } else {
+            ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+            executor.setCorePoolSize(threads);
+            executor.setMaxPoolSize(threads);
+            executor.setThreadNamePrefix(THREAD_NAME_PREFIX);
+            executor.initialize();
+            this.writers = executor;
+        }
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(writers);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (writers instanceof ThreadPoolTaskExecutor pool) {
+            pool.shutdown();
+        } else if (writers instanceof SimpleAsyncTaskExecutor executor) {
+            executor.close();
+        }
+    }
+}
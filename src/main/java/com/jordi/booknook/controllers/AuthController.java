@@ -1,28 +1,25 @@
 package com.jordi.booknook.controllers;
 
+import com.jordi.booknook.security.EntraLoginClient;
 import com.jordi.booknook.security.payload.request.LoginRequest;
-import com.microsoft.aad.msal4j.*;
-import com.microsoft.graph.models.PasswordProfile;
-import com.microsoft.graph.models.User;
-import com.microsoft.graph.requests.GraphServiceClient;
-import com.jordi.booknook.models.UserEntity;
 import com.jordi.booknook.repositories.UserRepository;
 import com.jordi.booknook.security.payload.request.RegisterRequest;
-import com.jordi.booknook.security.payload.response.MessageResponse;
+import com.jordi.booknook.services.RegistrationService;
+import com.microsoft.aad.msal4j.MsalServiceException;
 import jakarta.validation.Valid;
-import okhttp3.Request;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
 
-import java.net.URI;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
 
 @RestController
 @RequestMapping("/api/v1/auth")
@@ -30,79 +27,66 @@ import java.util.concurrent.CompletionException;
 public class AuthController {
 
     private final UserRepository users;
-    private final GraphServiceClient<Request> graph;
+    private final RegistrationService registrationService;
+    private final EntraLoginClient loginClient;
 
-    public AuthController(UserRepository users, GraphServiceClient<Request> graph) {
+    public AuthController(UserRepository users, RegistrationService registrationService, EntraLoginClient loginClient) {
         this.users = users;
-        this.graph = graph;
+        this.registrationService = registrationService;
+        this.loginClient = loginClient;
     }
 
-    @Value("${azure.tenant-id}")
-    String tenantId;
-    @Value("${azure.api-app-id}")
-    String apiAppId;
-    @Value("${azure.tenant-domain}")
-    String tenantDomain;
-    @Value("${azure.ropc.client-id}")
-    String ropcClientId;
-
     /**
      * Endpoint to login via EntraID
      * @param req
      * @return
      */
     @PostMapping("/login")
-    public ResponseEntity<?> login(@RequestBody @Valid LoginRequest req) {
-        try {
-            // 1) Public client (NO secret) for ROPC
-            PublicClientApplication pca = PublicClientApplication.builder(ropcClientId)
-                    .authority("https://login.microsoftonline.com/" + tenantId + "/") // v2.0 is inferred
-                    .build();
-
-            // 2) Scopes: your API scopes + OIDC bits
-            Set<String> scopes = new LinkedHashSet<>(List.of(
-                    "api://" + apiAppId + "/books.read",
-                    "api://" + apiAppId + "/books.write",
-                    "openid", "profile", "email", "offline_access"
-            ));
-
-            // 3) Acquire token by username/password
-            UserNamePasswordParameters params = UserNamePasswordParameters
-                    .builder(scopes, req.username(), req.password().toCharArray())
-                    .build();
-
-            IAuthenticationResult result = pca.acquireToken(params).join();
-
-            // 4) Build a friendly body. MSAL doesn’t expose refresh_token.
-            Instant exp = result.expiresOnDate().toInstant();
-            long expiresIn = Duration.between(Instant.now(), exp).getSeconds();
-            if (expiresIn < 0) expiresIn = 0;
-
-            // Parse a few claims from id_token for convenience
-            Map<String, Object> idClaims = Map.of();
-            try {
-                var jwt = com.nimbusds.jwt.SignedJWT.parse(result.idToken());
-                idClaims = jwt.getJWTClaimsSet().getClaims();
-            } catch (Exception ignore) { /* optional */ }
-
-            Map<String, Object> body = new LinkedHashMap<>();
-            body.put("token_type", "Bearer");
-            body.put("access_token", result.accessToken());
-            body.put("expires_in", expiresIn);
-            body.put("scope", String.join(" ", scopes));
-            body.put("id_token", result.idToken());
-            body.put("id_claims", idClaims); // contains sub, oid, name, preferred_username, etc.
-
-            return ResponseEntity.ok(body);
-
-        } catch (CompletionException ce) {
-            Throwable cause = ce.getCause() != null ? ce.getCause() : ce;
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
-                    .body(Map.of("message", "Login failed: " + cause.getMessage()));
-        } catch (Exception ex) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
-                    .body(Map.of("message", "Login failed: " + ex.getMessage()));
-        }
+    public CompletableFuture<ResponseEntity<?>> login(@RequestBody @Valid LoginRequest req) {
+        // The token request runs on the login client's pool, the servlet thread is released until it completes.
+        return loginClient.login(req.username(), req.password().toCharArray())
+                .<ResponseEntity<?>>thenApply(result -> {
+                    // Build a friendly body. MSAL doesn’t expose refresh_token.
+                    Instant exp = result.expiresOnDate().toInstant();
+                    long expiresIn = Duration.between(Instant.now(), exp).getSeconds();
+                    if (expiresIn < 0) expiresIn = 0;
+
+                    // Parse a few claims from id_token for convenience
+                    Map<String, Object> idClaims = Map.of();
+                    try {
+                        var jwt = com.nimbusds.jwt.SignedJWT.parse(result.idToken());
+                        idClaims = jwt.getJWTClaimsSet().getClaims();
+                    } catch (Exception ignore) { /* optional */ }
+
+                    Map<String, Object> body = new LinkedHashMap<>();
+                    body.put("token_type", "Bearer");
+                    body.put("access_token", result.accessToken());
+                    body.put("expires_in", expiresIn);
+                    body.put("scope", String.join(" ", loginClient.scopes()));
+                    body.put("id_token", result.idToken());
+                    body.put("id_claims", idClaims); // contains sub, oid, name, preferred_username, etc.
+
+                    return ResponseEntity.ok(body);
+                })
+                .exceptionally(ex -> {
+                    Throwable cause = unwrap(ex);
+
+                    // Only an answer from Entra ID says something about the credentials.
+                    if (cause instanceof MsalServiceException) {
+                        return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                                .body(Map.of("message", "Login failed: " + cause.getMessage()));
+                    }
+                    if (cause instanceof TimeoutException) {
+                        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT)
+                                .body(Map.of("message", "Login timed out waiting for Entra ID."));
+                    }
+                    if (cause instanceof RejectedExecutionException) {
+                        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                                .body(Map.of("message", "Too many logins in progress, try again in a moment."));
+                    }
+                    return ResponseEntity.status(HttpStatus.BAD_GATEWAY)
+                            .body(Map.of("message", "Login failed: " + cause));
+                });
     }
 
     /**
@@ -111,77 +95,57 @@ public class AuthController {
      * @return - A success message or an error
      */
     @PostMapping("/register")
-    public ResponseEntity<?> register(@RequestBody @Valid RegisterRequest req) {
-        try {
-            // --- 1) sanitize/derive Graph fields from your DTO ---
-            String sanitized = req.username().trim().toLowerCase().replaceAll("[^a-z0-9._-]", "");
-            if (sanitized.isBlank()) {
-                return ResponseEntity.badRequest().body(Map.of(
-                        "error", "invalid_username",
-                        "detail", "Username must contain letters, digits, dot, dash or underscore."
-                ));
-            }
-
-            String upn = sanitized + "@" + tenantDomain; // e.g., yourtenant.onmicrosoft.com
-
-            // --- 2) build Graph user payload ---
-            var pwd = new PasswordProfile();
-            pwd.forceChangePasswordNextSignIn = false;     // for your learning app
-            pwd.password = req.password();                 // must meet tenant password policy
-
-            var user = new User();
-            user.accountEnabled = true;
-            user.displayName = sanitized;                  // or use something prettier
-            user.mailNickname = sanitized;
-            user.userPrincipalName = upn;
-            user.passwordProfile = pwd;
-
-            // Optional: keep the email the user typed so you can contact them later
-            if (req.email() != null && !req.email().isBlank()) {
-                user.otherMails = new LinkedList<>();
-                user.otherMails.add(req.email());
-            }
-
-            // Optional: sometimes required for license assignment flows
-             user.usageLocation = "ES";
-
-            // --- 3) create in Entra with Graph SDK (app-only) ---
-            User created = graph.users().buildRequest().post(user);
-
-            // --- 4) upsert your local profile (NO password) ---
-            var entraId = created.id; // Graph returned id (also matches JWT 'oid' for users)
-            UserEntity userEntity = users.findByUsername(sanitized)
-                    .orElseGet(() -> UserEntity.fromEntra(sanitized, req.email(), entraId));
-            userEntity.setAuthProvider("entra");
-            userEntity.setAuthSub(entraId);
-            users.save(userEntity);
-
-            return ResponseEntity.status(201).body(Map.of(
-                    "message", "User created",
-                    "entra_id", created.id,
-                    "userPrincipalName", created.userPrincipalName
-            ));
-
-        } catch (com.microsoft.graph.core.ClientException ex) {
-            // Map common Graph errors to something friendlier
-            String msg = ex.getMessage();
-            int status = 400;
-            if (msg != null && msg.contains("Request_ResourceAlreadyExists")) {
-                status = 409;
-            } else if (msg != null && msg.contains("PasswordTooShort")) {
-                status = 422;
-                msg = "Password does not meet the tenant policy requirements.";
-            }
-            return ResponseEntity.status(status).body(Map.of(
-                    "error", "graph_error",
-                    "detail", msg
-            ));
-        } catch (Exception e) {
-            return ResponseEntity.badRequest().body(Map.of(
-                    "error", "register_failed",
-                    "detail", e.getMessage()
-            ));
+    public CompletableFuture<ResponseEntity<?>> register(@RequestBody @Valid RegisterRequest req) {
+        String sanitized = RegistrationService.sanitizeUsername(req.username());
+        if (sanitized.isBlank()) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(Map.of(
+                    "error", "invalid_username",
+                    "detail", "Username must contain letters, digits, dot, dash or underscore."
+            )));
         }
+
+        // Graph and the profile write run off the servlet thread, it is released until both are done.
+        return registrationService.register(sanitized, req)
+                .<ResponseEntity<?>>thenApply(created -> ResponseEntity.status(201).body(Map.of(
+                        "message", "User created",
+                        "entra_id", created.id,
+                        "userPrincipalName", created.userPrincipalName
+                )))
+                .exceptionally(ex -> {
+                    Throwable cause = unwrap(ex);
+
+                    if (cause instanceof com.microsoft.graph.core.ClientException) {
+                        // Map common Graph errors to something friendlier
+                        String msg = cause.getMessage();
+                        int status = 400;
+                        if (msg != null && msg.contains("Request_ResourceAlreadyExists")) {
+                            status = 409;
+                        } else if (msg != null && msg.contains("PasswordTooShort")) {
+                            status = 422;
+                            msg = "Password does not meet the tenant policy requirements.";
+                        }
+                        return ResponseEntity.status(status).body(Map.of(
+                                "error", "graph_error",
+                                "detail", msg
+                        ));
+                    }
+                    if (cause instanceof RejectedExecutionException) {
+                        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of(
+                                "error", "too_many_registrations",
+                                "detail", cause.getMessage()
+                        ));
+                    }
+                    if (cause instanceof TimeoutException) {
+                        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(Map.of(
+                                "error", "register_timeout",
+                                "detail", "Registration timed out waiting for Entra ID."
+                        ));
+                    }
+                    return ResponseEntity.badRequest().body(Map.of(
+                            "error", "register_failed",
+                            "detail", String.valueOf(cause.getMessage())
+                    ));
+                });
     }
 
     /**
@@ -250,4 +214,16 @@ public class AuthController {
 
         return ResponseEntity.ok(body);
     }
+
+    /*
+     * Stages chained on a future wrap its failure, possibly more than once, so the
+     * original exception is looked for under the wrappers.
+     */
+    private static Throwable unwrap(Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
 }
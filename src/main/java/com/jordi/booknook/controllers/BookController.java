@@ -1,13 +1,25 @@
 package com.jordi.booknook.controllers;
 
 
-import com.jordi.booknook.models.BookEntity;
 import com.jordi.booknook.models.UniversalSearch;
 import com.jordi.booknook.payload.request.SortRequest;
+import com.jordi.booknook.payload.response.BookView;
+import com.jordi.booknook.payload.response.BrowseResponse;
+import com.jordi.booknook.payload.response.CursorPage;
+import com.jordi.booknook.payload.response.LeaderboardEntry;
+import com.jordi.booknook.search.Suggestion;
+import com.jordi.booknook.services.BookBrowseService;
 import com.jordi.booknook.services.BookService;
+import com.jordi.booknook.services.CatalogExportService;
+import com.jordi.booknook.services.CatalogStreamService;
+import com.jordi.booknook.services.LeaderboardService;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Flux;
 
+import java.math.BigDecimal;
 import java.util.List;
 
 
@@ -15,30 +27,81 @@ import java.util.List;
 @RequestMapping("api/v1/books")
 public class BookController {
     private final BookService bookService;
+    private final CatalogExportService catalogExportService;
+    private final CatalogStreamService catalogStreamService;
+    private final BookBrowseService bookBrowseService;
+    private final LeaderboardService leaderboardService;
 
-    public BookController(BookService bookService) {
+    public BookController(BookService bookService, CatalogExportService catalogExportService,
+                          CatalogStreamService catalogStreamService, BookBrowseService bookBrowseService,
+                          LeaderboardService leaderboardService) {
         this.bookService = bookService;
+        this.catalogExportService = catalogExportService;
+        this.catalogStreamService = catalogStreamService;
+        this.bookBrowseService = bookBrowseService;
+        this.leaderboardService = leaderboardService;
     }
 
     @GetMapping
-    public List<BookEntity> getAllBooks(){
+    public List<BookView> getAllBooks(){
         return bookService.getBooks();
     }
 
+    @GetMapping(params = "limit")
+    public CursorPage<BookView> getBooksPage(@RequestParam Integer limit,
+                                               @RequestParam(required = false) String after){
+        return bookService.getBooksPage(after, limit);
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportCatalog(){
+        StreamingResponseBody body = out -> catalogExportService.exportCatalog(out);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BookView> streamBooks(){
+        return catalogStreamService.streamBooks();
+    }
+
     @GetMapping("/{book_id}/get")
-    public ResponseEntity<BookEntity> getBook(@PathVariable Long book_id) {
+    public ResponseEntity<BookView> getBook(@PathVariable Long book_id) {
         return bookService.getBookById(book_id)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
 
     @PostMapping("/search")
-    public List<BookEntity> searchBooks(@RequestBody UniversalSearch search){
+    public List<BookView> searchBooks(@RequestBody UniversalSearch search){
         return bookService.search(search);
     }
 
+    @GetMapping("/browse")
+    public BrowseResponse browseBooks(@RequestParam(name = "category", required = false) List<Long> category_ids,
+                                      @RequestParam(required = false) BigDecimal min_price,
+                                      @RequestParam(required = false) BigDecimal max_price,
+                                      @RequestParam(required = false) Integer page,
+                                      @RequestParam(required = false) Integer size){
+        return bookBrowseService.browse(category_ids, min_price, max_price, page, size);
+    }
+
+    @GetMapping("/top-rated")
+    public List<LeaderboardEntry> topRatedBooks(@RequestParam(name = "category", required = false) Long category_id,
+                                                @RequestParam(required = false) Integer limit){
+        return leaderboardService.getTopRated(category_id, limit);
+    }
+
+    @GetMapping("/autocomplete")
+    public List<Suggestion> autocomplete(@RequestParam String q,
+                                         @RequestParam(required = false) Integer limit){
+        return bookService.autocomplete(q, limit);
+    }
+
     @PostMapping("/sorted")
-    public List<BookEntity> sortedBooks(@RequestBody SortRequest sortRequest){
+    public List<BookView> sortedBooks(@RequestBody SortRequest sortRequest){
         return bookService.getAllBooksSortedByPriceOrReview(sortRequest);
     }
 }
@@ -2,26 +2,35 @@ package com.jordi.booknook.controllers;
 
 import com.jordi.booknook.payload.request.NewReviewRequest;
 import com.jordi.booknook.payload.request.UpdateReviewRequest;
+import com.jordi.booknook.payload.response.CursorPage;
 import com.jordi.booknook.payload.response.NewReviewResponse;
+import com.jordi.booknook.payload.response.ReviewView;
 import com.jordi.booknook.payload.response.ReviewsByBookResponse;
 import com.jordi.booknook.payload.response.ReviewsByUserResponse;
+import com.jordi.booknook.payload.response.ReviewsPageResponse;
 import com.jordi.booknook.payload.response.UpdateReviewResponse;
+import com.jordi.booknook.payload.response.UserReviewView;
 import com.jordi.booknook.services.BookReviewService;
+import com.jordi.booknook.services.CatalogStreamService;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.Valid;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 
 
 @RestController
 @RequestMapping("api/v1/reviews")
 public class BookReviewController {
     private final BookReviewService bookReviewService;
+    private final CatalogStreamService catalogStreamService;
 
-    public BookReviewController(BookReviewService bookReviewService) {
+    public BookReviewController(BookReviewService bookReviewService, CatalogStreamService catalogStreamService) {
         this.bookReviewService = bookReviewService;
+        this.catalogStreamService = catalogStreamService;
     }
 
     @GetMapping("/{book_id}/get")
@@ -31,6 +40,21 @@ public class BookReviewController {
         return ResponseEntity.ok(response);
     }
 
+    @GetMapping(value = "/{book_id}/get", params = "limit")
+    public ResponseEntity<ReviewsPageResponse> getReviewsPageByBook(@PathVariable Long book_id,
+                                                                    @RequestParam Integer limit,
+                                                                    @RequestParam(required = false) String sort,
+                                                                    @RequestParam(required = false) String after){
+        ReviewsPageResponse response = bookReviewService.getReviewsPage(book_id, sort, after, limit);
+
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping(value = "/{book_id}/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<ReviewView> streamReviewsByBook(@PathVariable Long book_id){
+        return catalogStreamService.streamReviewsByBook(book_id);
+    }
+
     @GetMapping("/get")
     public ResponseEntity<ReviewsByUserResponse> getReviewsByUser (){
         ReviewsByUserResponse response = bookReviewService.getReviewsByUser();
@@ -38,6 +62,14 @@ public class BookReviewController {
         return ResponseEntity.ok(response);
     }
 
+    @GetMapping(value = "/get", params = "limit")
+    public ResponseEntity<CursorPage<UserReviewView>> getReviewsPageByUser(@RequestParam Integer limit,
+                                                                           @RequestParam(required = false) String after){
+        CursorPage<UserReviewView> response = bookReviewService.getReviewsPageByUser(after, limit);
+
+        return ResponseEntity.ok(response);
+    }
+
     @PostMapping("")
     public ResponseEntity<NewReviewResponse> addReviewByUser(@Valid @RequestBody NewReviewRequest newReview){
         NewReviewResponse response = bookReviewService.addReviewByUser(newReview);
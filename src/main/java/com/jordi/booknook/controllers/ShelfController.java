@@ -1,11 +1,15 @@
 package com.jordi.booknook.controllers;
 
-import com.jordi.booknook.models.ShelfEntity;
 import com.jordi.booknook.payload.request.AddBookToShelfRequest;
 import com.jordi.booknook.payload.request.NewShelfRequest;
+import com.jordi.booknook.payload.request.ShelfBooksChangeRequest;
 import com.jordi.booknook.payload.request.UpdateShelfRequest;
 import com.jordi.booknook.payload.response.AddBookToShelfResponse;
+import com.jordi.booknook.payload.response.BookView;
+import com.jordi.booknook.payload.response.CursorPage;
 import com.jordi.booknook.payload.response.NewShelfResponse;
+import com.jordi.booknook.payload.response.ShelfBooksChangeResponse;
+import com.jordi.booknook.payload.response.ShelfSummary;
 import com.jordi.booknook.payload.response.UpdateShelfResponse;
 import com.jordi.booknook.services.ShelfService;
 import jakarta.persistence.EntityNotFoundException;
@@ -48,26 +52,47 @@ public class ShelfController {
         return ResponseEntity.ok(response);
     }
 
+    @PostMapping("/books/bulk")
+    public ResponseEntity<ShelfBooksChangeResponse> changeShelfBooks(@Valid @RequestBody ShelfBooksChangeRequest request){
+        ShelfBooksChangeResponse response = shelfService.changeShelfBooks(request);
+
+        return ResponseEntity.ok(response);
+    }
+
     @GetMapping("/get")
-    public List<ShelfEntity> getShelvesByUser(){
+    public List<ShelfSummary> getShelvesByUser(){
         return shelfService.getAllUserShelves();
     }
 
     @GetMapping("/{shelves_id}/show")
-    public ShelfEntity getShelfByUserAndShelfId(@PathVariable Long shelves_id){
+    public ShelfSummary getShelfByUserAndShelfId(@PathVariable Long shelves_id){
         return shelfService.getOneUserShelf(shelves_id);
     }
 
     @GetMapping("/private")
-    public List<ShelfEntity> getPrivateShelvesByUser(){
+    public List<ShelfSummary> getPrivateShelvesByUser(){
         return shelfService.getAllUserPrivateShelves();
     }
 
     @GetMapping("/public/user/{userId}")
-    public List<ShelfEntity> getPublicShelvesByUser(@PathVariable Long userId){
+    public List<ShelfSummary> getPublicShelvesByUser(@PathVariable Long userId){
         return shelfService.getAllUserPublicShelves(userId);
     }
 
+    @GetMapping("/{shelf_id}/books")
+    public CursorPage<BookView> getShelfBooks(@PathVariable Long shelf_id,
+                                              @RequestParam(required = false) Integer limit,
+                                              @RequestParam(required = false) String after){
+        return shelfService.getUserShelfBooks(shelf_id, after, limit);
+    }
+
+    @GetMapping("/public/{shelf_id}/books")
+    public CursorPage<BookView> getPublicShelfBooks(@PathVariable Long shelf_id,
+                                                    @RequestParam(required = false) Integer limit,
+                                                    @RequestParam(required = false) String after){
+        return shelfService.getPublicShelfBooks(shelf_id, after, limit);
+    }
+
     // TODO: Abstract Error handling to a general Error handler.
     @ExceptionHandler(EntityNotFoundException.class)
     public ResponseEntity<String> handleEntityNotFoundException(EntityNotFoundException exception) {
@@ -0,0 +1,9 @@
+package com.jordi.booknook.events;
+
+import java.util.Set;
+
+/**
+ * The categories a book is in after a change to its side of book_category.
+ */
+public record BookCategoriesChangedEvent(Long book_id, Set<Long> category_ids) {
+}
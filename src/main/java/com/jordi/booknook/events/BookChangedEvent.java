@@ -0,0 +1,10 @@
+package com.jordi.booknook.events;
+
+import com.jordi.booknook.models.BookEntity;
+
+public record BookChangedEvent(BookEntity book, Change change) {
+    public enum Change {
+        SAVED,
+        REMOVED
+    }
+}
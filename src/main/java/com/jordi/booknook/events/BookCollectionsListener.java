@@ -0,0 +1,104 @@
+package com.jordi.booknook.events;
+
+import com.jordi.booknook.models.BookEntity;
+import com.jordi.booknook.models.CategoryEntity;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.AbstractCollectionEvent;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCollectionRecreateEvent;
+import org.hibernate.event.spi.PostCollectionRecreateEventListener;
+import org.hibernate.event.spi.PostCollectionRemoveEvent;
+import org.hibernate.event.spi.PostCollectionRemoveEventListener;
+import org.hibernate.event.spi.PostCollectionUpdateEvent;
+import org.hibernate.event.spi.PostCollectionUpdateEventListener;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Publishes a BookDetailsChangedEvent when the categories or images of a book change.
+ *
+ * Adding or removing an element of a collection doesn't make its owner dirty, so the JPA
+ * entity listeners never see it; Hibernate's collection events do. Changes to book_category,
+ * from either side, also publish the resulting members so the facet index can follow them
+ * without reading the table.
+ */
+@Component
+public class BookCollectionsListener implements PostCollectionRecreateEventListener,
+        PostCollectionUpdateEventListener, PostCollectionRemoveEventListener {
+    private static final String BOOK_CATEGORIES = BookEntity.class.getName() + ".categories";
+    private static final String CATEGORY_BOOKS = CategoryEntity.class.getName() + ".books";
+
+    private final ApplicationEventPublisher publisher;
+
+    public BookCollectionsListener(EntityManagerFactory entityManagerFactory, ApplicationEventPublisher publisher) {
+        this.publisher = publisher;
+
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+
+        registry.appendListeners(EventType.POST_COLLECTION_RECREATE, this);
+        registry.appendListeners(EventType.POST_COLLECTION_UPDATE, this);
+        registry.appendListeners(EventType.POST_COLLECTION_REMOVE, this);
+    }
+
+    @Override
+    public void onPostRecreateCollection(PostCollectionRecreateEvent event) {
+        publish(event);
+    }
+
+    @Override
+    public void onPostUpdateCollection(PostCollectionUpdateEvent event) {
+        publish(event);
+    }
+
+    @Override
+    public void onPostRemoveCollection(PostCollectionRemoveEvent event) {
+        publish(event);
+    }
+
+    private void publish(AbstractCollectionEvent event) {
+        Object owner = event.getAffectedOwnerOrNull();
+        // A removed collection went away with its owner or was replaced, a recreated or updated
+        // one was loaded to be changed, so its members are known without another query.
+        boolean membersKnown = event instanceof PostCollectionRemoveEvent || event.getCollection().wasInitialized();
+
+        if (owner instanceof BookEntity book) {
+            publisher.publishEvent(new BookDetailsChangedEvent(book.getBook_id()));
+            if (isCollection(event, BOOK_CATEGORIES, book.getCategories()) && membersKnown) {
+                publisher.publishEvent(new BookCategoriesChangedEvent(book.getBook_id(),
+                        ids(event, CategoryEntity.class, CategoryEntity::getCategory_id)));
+            }
+        } else if (owner instanceof CategoryEntity category) {
+            // The caches don't work out which books were added to or removed from the category.
+            publisher.publishEvent(BookDetailsChangedEvent.anyBook());
+            if (isCollection(event, CATEGORY_BOOKS, category.getBooks()) && membersKnown) {
+                publisher.publishEvent(new CategoryBooksChangedEvent(category.getCategory_id(),
+                        ids(event, BookEntity.class, BookEntity::getBook_id)));
+            }
+        }
+    }
+
+    // A recreated collection has no role until the flush ends, but it is already the one the owner holds.
+    private static boolean isCollection(AbstractCollectionEvent event, String role, Object collection) {
+        return role.equals(event.getCollection().getRole()) || event.getCollection() == collection;
+    }
+
+    private static <T> Set<Long> ids(AbstractCollectionEvent event, Class<T> type, Function<T, Long> id) {
+        if (event instanceof PostCollectionRemoveEvent) {
+            return Set.of();
+        }
+
+        return ((Collection<?>) event.getCollection()).stream()
+                .map(type::cast)
+                .map(id)
+                .collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,12 @@
+package com.jordi.booknook.events;
+
+/**
+ * A change to something shown with a book that doesn't go through the book's own entity
+ * listener: its images, its categories or its rating aggregates. A null book_id means
+ * any book may be affected.
+ */
+public record BookDetailsChangedEvent(Long book_id) {
+    public static BookDetailsChangedEvent anyBook() {
+        return new BookDetailsChangedEvent(null);
+    }
+}
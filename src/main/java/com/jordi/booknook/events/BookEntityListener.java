@@ -0,0 +1,28 @@
+package com.jordi.booknook.events;
+
+import com.jordi.booknook.models.BookEntity;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+
+/**
+ * Publishes a BookChangedEvent for every book write so the in-memory structures built
+ * from the catalog can keep themselves up to date.
+ */
+public class BookEntityListener {
+
+    public BookEntityListener() {
+
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void afterBookSaved(BookEntity book) {
+        SpringContext.publishEvent(new BookChangedEvent(book, BookChangedEvent.Change.SAVED));
+    }
+
+    @PostRemove
+    public void afterBookRemoved(BookEntity book) {
+        SpringContext.publishEvent(new BookChangedEvent(book, BookChangedEvent.Change.REMOVED));
+    }
+}
@@ -0,0 +1,42 @@
+package com.jordi.booknook.events;
+
+import com.jordi.booknook.repositories.BookRepository;
+import com.jordi.booknook.search.BookCategoryRow;
+import com.jordi.booknook.search.BookFacetIndex;
+import com.jordi.booknook.search.BookPriceRow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.stream.Stream;
+
+@Component
+public class BookFacetIndexInitializer {
+    private static final Logger log = LoggerFactory.getLogger(BookFacetIndexInitializer.class);
+
+    private final BookRepository bookRepository;
+    private final BookFacetIndex facetIndex;
+
+    public BookFacetIndexInitializer(BookRepository bookRepository, BookFacetIndex facetIndex) {
+        this.bookRepository = bookRepository;
+        this.facetIndex = facetIndex;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void init() {
+        long start = System.nanoTime();
+
+        // The links query only runs once the prices are read, one result set is open at a time.
+        try (Stream<BookPriceRow> prices = bookRepository.streamPrices();
+             Stream<BookCategoryRow> categories = Stream.of(bookRepository).flatMap(BookRepository::streamCategoryLinks)) {
+            facetIndex.rebuild(prices, categories);
+        }
+
+        log.info("Book facet index built with {} books in {} ms.", facetIndex.size(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+}
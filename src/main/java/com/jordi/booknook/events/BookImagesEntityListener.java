@@ -0,0 +1,22 @@
+package com.jordi.booknook.events;
+
+import com.jordi.booknook.models.BookImagesEntity;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+
+public class BookImagesEntityListener {
+
+    public BookImagesEntityListener() {
+
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void afterImageChanged(BookImagesEntity image) {
+        if (image.getBook() != null) {
+            SpringContext.publishEvent(new BookDetailsChangedEvent(image.getBook().getBook_id()));
+        }
+    }
+}
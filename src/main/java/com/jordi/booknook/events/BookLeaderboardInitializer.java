@@ -0,0 +1,47 @@
+package com.jordi.booknook.events;
+
+import com.jordi.booknook.leaderboard.BookLeaderboard;
+import com.jordi.booknook.leaderboard.BookRatingRow;
+import com.jordi.booknook.repositories.BookRepository;
+import com.jordi.booknook.search.BookCategoryRow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.stream.Stream;
+
+@Component
+public class BookLeaderboardInitializer {
+    private static final Logger log = LoggerFactory.getLogger(BookLeaderboardInitializer.class);
+
+    private final BookRepository bookRepository;
+    private final BookLeaderboard leaderboard;
+
+    public BookLeaderboardInitializer(BookRepository bookRepository, BookLeaderboard leaderboard) {
+        this.bookRepository = bookRepository;
+        this.leaderboard = leaderboard;
+    }
+
+    /*
+     * Read committed, so the books rated while building are read again as they are now and not
+     * as they were in the snapshot of the first query of a repeatable read transaction.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true, isolation = Isolation.READ_COMMITTED)
+    public void init() {
+        long start = System.nanoTime();
+
+        // The links query only runs once the ratings are read, one result set is open at a time.
+        try (Stream<BookRatingRow> ratings = bookRepository.streamRatings();
+             Stream<BookCategoryRow> categories = Stream.of(bookRepository).flatMap(BookRepository::streamCategoryLinks)) {
+            leaderboard.rebuild(ratings, categories, bookRepository::findRatingsByIds);
+        }
+
+        log.info("Book leaderboard built with a mean rating of {} in {} ms.", String.format("%.2f", leaderboard.priorMean()),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+}
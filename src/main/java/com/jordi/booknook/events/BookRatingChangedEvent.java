@@ -0,0 +1,8 @@
+package com.jordi.booknook.events;
+
+/**
+ * A change to the rating aggregates of a book: one more review adds 1 to the count and its
+ * rating to the sum, a changed rating only moves the sum.
+ */
+public record BookRatingChangedEvent(Long book_id, long count_delta, long sum_delta) {
+}
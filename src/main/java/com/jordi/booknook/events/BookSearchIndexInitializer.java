@@ -0,0 +1,39 @@
+package com.jordi.booknook.events;
+
+import com.jordi.booknook.repositories.BookRepository;
+import com.jordi.booknook.search.BookSearchDocument;
+import com.jordi.booknook.search.BookSearchIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.stream.Stream;
+
+@Component
+public class BookSearchIndexInitializer {
+    private static final Logger log = LoggerFactory.getLogger(BookSearchIndexInitializer.class);
+
+    private final BookRepository bookRepository;
+    private final BookSearchIndex searchIndex;
+
+    public BookSearchIndexInitializer(BookRepository bookRepository, BookSearchIndex searchIndex) {
+        this.bookRepository = bookRepository;
+        this.searchIndex = searchIndex;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void init() {
+        long start = System.nanoTime();
+
+        try (Stream<BookSearchDocument> documents = bookRepository.streamSearchDocuments()) {
+            searchIndex.rebuild(documents);
+        }
+
+        log.info("Book search index built with {} books in {} ms.", searchIndex.size(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+}
@@ -0,0 +1,10 @@
+package com.jordi.booknook.events;
+
+import java.util.Set;
+
+/**
+ * The books in a category after a change to its side of book_category. Removing the
+ * category leaves it with no books.
+ */
+public record CategoryBooksChangedEvent(Long category_id, Set<Long> book_ids) {
+}
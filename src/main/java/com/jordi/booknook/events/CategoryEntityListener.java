@@ -0,0 +1,21 @@
+package com.jordi.booknook.events;
+
+import com.jordi.booknook.models.CategoryEntity;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+
+/**
+ * Renaming or removing a category changes every book in it, which are not known here.
+ */
+public class CategoryEntityListener {
+
+    public CategoryEntityListener() {
+
+    }
+
+    @PostUpdate
+    @PostRemove
+    public void afterCategoryChanged(CategoryEntity category) {
+        SpringContext.publishEvent(BookDetailsChangedEvent.anyBook());
+    }
+}
@@ -0,0 +1,34 @@
+package com.jordi.booknook.events;
+
+import com.jordi.booknook.repositories.BookRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * One-off job that recomputes the rating aggregates of every book from book_reviews.
+ * Run it once after upgrading (or after importing reviews with plain SQL) by starting
+ * the app with booknook.ratings.backfill=true.
+ */
+@Component
+@ConditionalOnProperty(name = "booknook.ratings.backfill", havingValue = "true")
+public class RatingAggregatesBackfill implements ApplicationRunner {
+    private static final Logger log = LoggerFactory.getLogger(RatingAggregatesBackfill.class);
+
+    private final BookRepository bookRepository;
+
+    public RatingAggregatesBackfill(BookRepository bookRepository) {
+        this.bookRepository = bookRepository;
+    }
+
+    @Override
+    @Transactional
+    public void run(ApplicationArguments args) {
+        int updated = bookRepository.backfillRatingAggregates();
+        log.info("Rating aggregates backfilled for {} books.", updated);
+    }
+}
@@ -18,4 +18,8 @@ public class SpringContext implements ApplicationContextAware {
     public static <T> T getBean(Class<T> type) {
         return ctx.getBean(type);
     }
+
+    public static void publishEvent(Object event) {
+        ctx.publishEvent(event);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,61 @@
+package com.jordi.booknook.events;
+
+import com.jordi.booknook.repositories.BookRepository;
+import com.jordi.booknook.repositories.CategoryRepository;
+import com.jordi.booknook.search.BookTitleRow;
+import com.jordi.booknook.search.CategoryNameRow;
+import com.jordi.booknook.search.Suggestion;
+import com.jordi.booknook.search.TitleAutocomplete;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.stream.Stream;
+
+@Component
+public class TitleAutocompleteInitializer {
+    private static final Logger log = LoggerFactory.getLogger(TitleAutocompleteInitializer.class);
+
+    private final BookRepository bookRepository;
+    private final CategoryRepository categoryRepository;
+    private final TitleAutocomplete autocomplete;
+
+    public TitleAutocompleteInitializer(BookRepository bookRepository, CategoryRepository categoryRepository,
+                                        TitleAutocomplete autocomplete) {
+        this.bookRepository = bookRepository;
+        this.categoryRepository = categoryRepository;
+        this.autocomplete = autocomplete;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void init() {
+        long start = System.nanoTime();
+
+        Stream<Suggestion> categories = categoryRepository.findCategoryNames().stream()
+                .map(CategoryNameRow::toSuggestion);
+
+        try (Stream<BookTitleRow> titles = bookRepository.streamTitles()) {
+            autocomplete.rebuild(Stream.concat(categories, titles.map(BookTitleRow::toSuggestion)));
+        }
+
+        log.info("Title autocomplete built in {} ms: {}.", (System.nanoTime() - start) / 1_000_000,
+                autocomplete.stats());
+    }
+
+    /*
+     * Ratings are written with bulk updates that skip the entity listener, so the new score is
+     * read once the review is committed. Putting the row also keeps a rebuild that is still
+     * running from loading the rating it read before.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookRatingChanged(BookRatingChangedEvent event) {
+        bookRepository.findTitleRowById(event.book_id())
+                .map(BookTitleRow::toSuggestion)
+                .ifPresent(autocomplete::put);
+    }
+}
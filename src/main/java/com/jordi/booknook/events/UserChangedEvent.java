@@ -0,0 +1,4 @@
+package com.jordi.booknook.events;
+
+public record UserChangedEvent(Long user_id) {
+}
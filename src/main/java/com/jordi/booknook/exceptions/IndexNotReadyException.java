@@ -0,0 +1,7 @@
+package com.jordi.booknook.exceptions;
+
+public class IndexNotReadyException extends RuntimeException {
+    public IndexNotReadyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.jordi.booknook.exceptions;
+
+public class InvalidCursorException extends RuntimeException {
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.jordi.booknook.exceptions;
+
+public class InvalidSortException extends RuntimeException {
+    public InvalidSortException(String message) {
+        super(message);
+    }
+}
@@ -58,6 +58,36 @@ public class ValidationExceptionHandler {
         return errors;
     }
 
+    @ExceptionHandler(InvalidCursorException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ResponseBody
+    public Map<String, String> handleInvalidCursorException(InvalidCursorException exception) {
+        Map<String, String> errors = new HashMap<>();
+        errors.put("cursor", exception.getMessage());
+
+        return errors;
+    }
+
+    @ExceptionHandler(InvalidSortException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ResponseBody
+    public Map<String, String> handleInvalidSortException(InvalidSortException exception) {
+        Map<String, String> errors = new HashMap<>();
+        errors.put("sort", exception.getMessage());
+
+        return errors;
+    }
+
+    @ExceptionHandler(IndexNotReadyException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    @ResponseBody
+    public Map<String, String> handleIndexNotReadyException(IndexNotReadyException exception) {
+        Map<String, String> errors = new HashMap<>();
+        errors.put("error", exception.getMessage());
+
+        return errors;
+    }
+
     public static String extractFieldValue(String errorMessage) {
         Pattern pattern = Pattern.compile("\\[\"(\\w+)\"]");
         Matcher matcher = pattern.matcher(errorMessage);
@@ -0,0 +1,400 @@
+package com.jordi.booknook.leaderboard;
+
+import com.jordi.booknook.events.BookCategoriesChangedEvent;
+import com.jordi.booknook.events.BookChangedEvent;
+import com.jordi.booknook.events.BookRatingChangedEvent;
+import com.jordi.booknook.events.CategoryBooksChangedEvent;
+import com.jordi.booknook.search.BookCategoryRow;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * In-memory top rated books, over the whole catalog and per category.
+ *
+ * Books are ranked by their Bayesian average, (rating_sum + m * C) / (rating_count + m),
+ * which pulls the average of a book with few reviews towards the mean rating C of the whole
+ * catalog, so one 5 star review doesn't beat hundreds of 4.8s. m is the prior weight and C
+ * is worked out when the leaderboard is built, at startup. Books without reviews are not
+ * ranked.
+ *
+ * Each board keeps the best books in a sorted set of twice the served size. A rating change
+ * moves one book in the boards it is in; only when a board has dropped below the served size
+ * and books were left out of it is it refilled from all of its books.
+ */
+@Component
+public class BookLeaderboard {
+    private final int size;
+    private final int capacity;
+    private final int priorWeight;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Rankings rankings;
+    private List<Consumer<Rankings>> pendingChanges;
+    // Books rated while the leaderboard is being built. Rating changes are deltas, so they are read again instead of replayed.
+    private Set<Long> pendingRatings;
+    private volatile boolean ready = false;
+
+    public BookLeaderboard(@Value("${booknook.leaderboard.size:100}") int size,
+                           @Value("${booknook.leaderboard.prior-weight:10}") int priorWeight) {
+        this.size = size;
+        this.capacity = size * 2;
+        this.priorWeight = priorWeight;
+        this.rankings = new Rankings();
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public double priorMean() {
+        lock.readLock().lock();
+        try {
+            return rankings.priorMean;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the whole leaderboard with the given rating aggregates and category links.
+     * Category changes received while it is being built are replayed on top of it. The books
+     * rated meanwhile may or may not be counted in the aggregates already, so their current
+     * aggregates are read again with reload, until no book was rated during the last read,
+     * before it is swapped in.
+     */
+    public void rebuild(Stream<BookRatingRow> ratings, Stream<BookCategoryRow> categories,
+                        Function<Collection<Long>, List<BookRatingRow>> reload) {
+        lock.writeLock().lock();
+        try {
+            pendingChanges = new ArrayList<>();
+            pendingRatings = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Rankings fresh = new Rankings();
+        ratings.forEach(row -> fresh.load(id(row.book_id()), row.rating_count(), row.rating_sum()));
+        categories.forEach(row -> fresh.members(row.category_id()).add(id(row.book_id())));
+        fresh.rankAll();
+
+        while (true) {
+            Set<Long> rated;
+            lock.writeLock().lock();
+            try {
+                if (pendingRatings.isEmpty()) {
+                    pendingChanges.forEach(change -> change.accept(fresh));
+                    pendingChanges = null;
+                    pendingRatings = null;
+                    rankings = fresh;
+                    ready = true;
+                    return;
+                }
+                rated = pendingRatings;
+                pendingRatings = new HashSet<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            Map<Long, BookRatingRow> current = new HashMap<>();
+            reload.apply(rated).forEach(row -> current.put(row.book_id(), row));
+            rated.forEach(book_id -> {
+                BookRatingRow row = current.get(book_id);
+                fresh.setRating(id(book_id), row == null ? 0 : row.rating_count(), row == null ? 0 : row.rating_sum());
+            });
+        }
+    }
+
+    public void addRating(Long book_id, long count_delta, long sum_delta) {
+        lock.writeLock().lock();
+        try {
+            rankings.addRating(id(book_id), count_delta, sum_delta);
+            if (pendingRatings != null) {
+                pendingRatings.add(book_id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void setCategories(Long book_id, Set<Long> category_ids) {
+        apply(rankings -> rankings.setCategories(id(book_id), category_ids));
+    }
+
+    public void setBooks(Long category_id, Set<Long> book_ids) {
+        apply(rankings -> rankings.setBooks(category_id, book_ids));
+    }
+
+    public void remove(Long book_id) {
+        apply(rankings -> rankings.remove(id(book_id)));
+    }
+
+    /**
+     * @return - Up to limit books, best first, of the category or of the whole catalog when
+     * category_id is null. Costs the limit, not the number of books.
+     */
+    public List<RankedBook> top(Long category_id, int limit) {
+        lock.readLock().lock();
+        try {
+            Rankings.Board board = category_id == null ? rankings.global : rankings.boards.get(category_id);
+            if (board == null) {
+                return List.of();
+            }
+
+            List<RankedBook> top = new ArrayList<>(Math.min(limit, size));
+            Iterator<Ranked> ranked = board.top.iterator();
+            while (ranked.hasNext() && top.size() < Math.min(limit, size)) {
+                Ranked book = ranked.next();
+                top.add(new RankedBook((long) book.bookId(), book.score(), book.ratingCount(),
+                        (double) rankings.sums[book.bookId()] / book.ratingCount()));
+            }
+            return top;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookRatingChanged(BookRatingChangedEvent event) {
+        addRating(event.book_id(), event.count_delta(), event.sum_delta());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        if (event.change() == BookChangedEvent.Change.REMOVED) {
+            remove(event.book().getBook_id());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookCategoriesChanged(BookCategoriesChangedEvent event) {
+        setCategories(event.book_id(), event.category_ids());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryBooksChanged(CategoryBooksChangedEvent event) {
+        setBooks(event.category_id(), event.book_ids());
+    }
+
+    private void apply(Consumer<Rankings> change) {
+        lock.writeLock().lock();
+        try {
+            change.accept(rankings);
+            if (pendingChanges != null) {
+                pendingChanges.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /*
+     * Book ids are also the positions in the counts and sums arrays, which grow up to the
+     * highest id. An id that doesn't fit an int fails here instead of wrapping to a wrong slot.
+     */
+    private static int id(Long book_id) {
+        return Math.toIntExact(book_id);
+    }
+
+    private record Ranked(int bookId, double score, long ratingCount) {
+        // Best score first, then the most reviewed, then the oldest book.
+        static final Comparator<Ranked> BEST_FIRST = Comparator
+                .comparingDouble(Ranked::score).reversed()
+                .thenComparing(Comparator.comparingLong(Ranked::ratingCount).reversed())
+                .thenComparingInt(Ranked::bookId);
+    }
+
+    private final class Rankings {
+        private long[] counts = new long[1024];
+        private long[] sums = new long[1024];
+        private final RoaringBitmap rated = new RoaringBitmap();
+        private final Map<Long, RoaringBitmap> members = new HashMap<>();
+        private final Board global = new Board(null);
+        private final Map<Long, Board> boards = new HashMap<>();
+        private double priorMean = 0;
+
+        void load(int bookId, long count, long sum) {
+            grow(bookId);
+            counts[bookId] = count;
+            sums[bookId] = sum;
+            if (count > 0) {
+                rated.add(bookId);
+            }
+        }
+
+        RoaringBitmap members(Long categoryId) {
+            return members.computeIfAbsent(categoryId, id -> new RoaringBitmap());
+        }
+
+        // The prior mean is fixed from here on, so a book keeps its score until its own ratings change.
+        void rankAll() {
+            long reviews = 0;
+            long total = 0;
+            for (int bookId : rated) {
+                reviews += counts[bookId];
+                total += sums[bookId];
+            }
+            priorMean = reviews == 0 ? 0 : (double) total / reviews;
+
+            global.refill();
+            members.keySet().forEach(categoryId -> board(categoryId).refill());
+        }
+
+        void addRating(int bookId, long countDelta, long sumDelta) {
+            grow(bookId);
+            Ranked before = ranked(bookId);
+            counts[bookId] += countDelta;
+            sums[bookId] += sumDelta;
+            if (counts[bookId] > 0) {
+                rated.add(bookId);
+            } else {
+                rated.remove(bookId);
+            }
+            Ranked after = ranked(bookId);
+
+            global.replace(before, after);
+            members.forEach((categoryId, books) -> {
+                if (books.contains(bookId)) {
+                    board(categoryId).replace(before, after);
+                }
+            });
+        }
+
+        void setRating(int bookId, long count, long sum) {
+            grow(bookId);
+            addRating(bookId, count - counts[bookId], sum - sums[bookId]);
+        }
+
+        void setCategories(int bookId, Set<Long> categoryIds) {
+            Ranked ranked = ranked(bookId);
+            members.forEach((categoryId, books) -> {
+                if (!categoryIds.contains(categoryId) && books.contains(bookId)) {
+                    books.remove(bookId);
+                    board(categoryId).replace(ranked, null);
+                }
+            });
+            categoryIds.forEach(categoryId -> {
+                if (!members(categoryId).contains(bookId)) {
+                    members(categoryId).add(bookId);
+                    board(categoryId).replace(null, ranked);
+                }
+            });
+            dropEmptyCategories();
+        }
+
+        void setBooks(Long categoryId, Set<Long> bookIds) {
+            RoaringBitmap books = new RoaringBitmap();
+            bookIds.forEach(book_id -> books.add(id(book_id)));
+            members.put(categoryId, books);
+            board(categoryId).refill();
+            dropEmptyCategories();
+        }
+
+        void remove(int bookId) {
+            if (bookId < counts.length && counts[bookId] > 0) {
+                addRating(bookId, -counts[bookId], -sums[bookId]);
+            }
+            members.values().forEach(books -> books.remove(bookId));
+            dropEmptyCategories();
+        }
+
+        private void dropEmptyCategories() {
+            members.entrySet().removeIf(category -> {
+                if (category.getValue().isEmpty()) {
+                    boards.remove(category.getKey());
+                    return true;
+                }
+                return false;
+            });
+        }
+
+        private Board board(Long categoryId) {
+            return boards.computeIfAbsent(categoryId, Board::new);
+        }
+
+        // Null for a book without reviews, which isn't ranked.
+        private Ranked ranked(int bookId) {
+            if (bookId >= counts.length || counts[bookId] <= 0) {
+                return null;
+            }
+            double score = (sums[bookId] + priorWeight * priorMean) / (counts[bookId] + priorWeight);
+            return new Ranked(bookId, score, counts[bookId]);
+        }
+
+        private void grow(int bookId) {
+            if (bookId >= counts.length) {
+                int length = Math.max(counts.length * 2, bookId + 1);
+                counts = Arrays.copyOf(counts, length);
+                sums = Arrays.copyOf(sums, length);
+            }
+        }
+
+        private final class Board {
+            private final Long categoryId;
+            private final TreeSet<Ranked> top = new TreeSet<>(Ranked.BEST_FIRST);
+            // Whether every ranked book of the board is in top. When not, the ones left out rank below its last.
+            private boolean complete = true;
+
+            Board(Long categoryId) {
+                this.categoryId = categoryId;
+            }
+
+            void replace(Ranked before, Ranked after) {
+                if (before != null) {
+                    top.remove(before);
+                }
+                if (after != null) {
+                    offer(after);
+                }
+                if (!complete && top.size() < size) {
+                    refill();
+                }
+            }
+
+            private void offer(Ranked book) {
+                if (!complete && (top.isEmpty() || Ranked.BEST_FIRST.compare(book, top.last()) > 0)) {
+                    return;
+                }
+                top.add(book);
+                if (top.size() > capacity) {
+                    top.pollLast();
+                    complete = false;
+                }
+            }
+
+            void refill() {
+                RoaringBitmap books = categoryId == null ? rated : RoaringBitmap.and(members(categoryId), rated);
+
+                top.clear();
+                for (int bookId : books) {
+                    top.add(ranked(bookId));
+                    if (top.size() > capacity) {
+                        top.pollLast();
+                    }
+                }
+                complete = books.getCardinality() <= capacity;
+            }
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.jordi.booknook.leaderboard;
+
+public record BookRatingRow(
+        Long book_id,
+        Long rating_count,
+        Long rating_sum
+) {
+}
@@ -0,0 +1,9 @@
+package com.jordi.booknook.leaderboard;
+
+public record RankedBook(
+        Long book_id,
+        double score,
+        long rating_count,
+        double average_rating
+) {
+}
@@ -4,7 +4,13 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.jordi.booknook.cache.SecondLevelCacheConfig;
+import com.jordi.booknook.events.BookEntityListener;
 import jakarta.persistence.*;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -17,7 +23,14 @@ import java.util.Set;
 
 
 @Entity
-@Table(name = "books")
+@EntityListeners(BookEntityListener.class)
+@Table(
+        name = "books",
+        indexes = {
+                @Index(name = "ix_books_price", columnList = "price, book_id"),
+                @Index(name = "ix_books_average_rating", columnList = "average_rating, book_id")
+        }
+)
 @JsonPropertyOrder({"book_id", "title", "description", "cover", "categories", "images", "price", "created_at", "updated_at"})
 public class BookEntity {
     @Id
@@ -30,10 +43,15 @@ public class BookEntity {
             joinColumns = @JoinColumn(name = "book_id"),
             inverseJoinColumns = @JoinColumn(name = "category_id")
     )
+    @BatchSize(size = 100)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfig.BOOK_CATEGORIES)
+    @JsonIgnoreProperties("books") // A category's books are not part of the book listing
     private Set<CategoryEntity> categories = new HashSet<>();
 
     @OneToMany(cascade = CascadeType.REMOVE, orphanRemoval = true)
     @JoinColumn(name = "book_id")
+    @BatchSize(size = 100)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfig.BOOK_IMAGES)
     @JsonIgnoreProperties("book") // Ignores serialization of images property on book
     @JsonProperty("images") // Gives it a custom name
     private List<BookImagesEntity> images = new ArrayList<>();
@@ -47,6 +65,48 @@ public class BookEntity {
     private String description;
     private BigDecimal price;
 
+    // Rating aggregates are kept in sync by BookReviewService, so reading them never touches the reviews.
+    @Column(nullable = false)
+    @ColumnDefault("0")
+    private Long rating_count = 0L;
+
+    @Column(nullable = false)
+    @ColumnDefault("0")
+    @JsonIgnore
+    private Long rating_sum = 0L;
+
+    // Stored copy of rating_sum / rating_count so sorting by rating can use an index.
+    @Column(nullable = false)
+    @ColumnDefault("0")
+    @JsonIgnore
+    private Double average_rating = 0.0;
+
+    // How many reviews gave each number of stars, the histogram shown with the reviews of the book.
+    @Column(nullable = false)
+    @ColumnDefault("0")
+    @JsonIgnore
+    private Long rating_1_count = 0L;
+
+    @Column(nullable = false)
+    @ColumnDefault("0")
+    @JsonIgnore
+    private Long rating_2_count = 0L;
+
+    @Column(nullable = false)
+    @ColumnDefault("0")
+    @JsonIgnore
+    private Long rating_3_count = 0L;
+
+    @Column(nullable = false)
+    @ColumnDefault("0")
+    @JsonIgnore
+    private Long rating_4_count = 0L;
+
+    @Column(nullable = false)
+    @ColumnDefault("0")
+    @JsonIgnore
+    private Long rating_5_count = 0L;
+
     @CreationTimestamp
     @JsonIgnore
     private LocalDateTime created_at;
@@ -125,6 +185,50 @@ public class BookEntity {
         this.updated_at = updated_at;
     }
 
+    public Long getRating_count() {
+        return rating_count;
+    }
+
+    public void setRating_count(Long rating_count) {
+        this.rating_count = rating_count;
+    }
+
+    public Long getRating_sum() {
+        return rating_sum;
+    }
+
+    public void setRating_sum(Long rating_sum) {
+        this.rating_sum = rating_sum;
+    }
+
+    public Double getAverage_rating() {
+        return average_rating;
+    }
+
+    public void setAverage_rating(Double average_rating) {
+        this.average_rating = average_rating;
+    }
+
+    public Long getRating_1_count() {
+        return rating_1_count;
+    }
+
+    public Long getRating_2_count() {
+        return rating_2_count;
+    }
+
+    public Long getRating_3_count() {
+        return rating_3_count;
+    }
+
+    public Long getRating_4_count() {
+        return rating_4_count;
+    }
+
+    public Long getRating_5_count() {
+        return rating_5_count;
+    }
+
     public Set<CategoryEntity> getCategories() {
         return categories;
     }
@@ -162,16 +266,11 @@ public class BookEntity {
     }
 
     public double getAverageRating(){
-        if (reviews == null || reviews.isEmpty()){
+        if (rating_count == null || rating_count == 0){
             return 0.0;
         }
 
-        double sum = 0.0;
-        for (BookReviewEntity review : reviews){
-            sum += review.getRating();
-        }
-
-        double average = sum / reviews.size();
+        double average = (double) rating_sum / rating_count;
         return Math.round(average * 10.0) / 10.0;
     }
 }
@@ -1,13 +1,20 @@
 package com.jordi.booknook.models;
 
+import com.jordi.booknook.cache.SecondLevelCacheConfig;
+import com.jordi.booknook.events.BookImagesEntityListener;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.time.LocalDateTime;
 
 @Entity
+@EntityListeners(BookImagesEntityListener.class)
 @Table(name = "book_images")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfig.IMAGES)
 public class BookImagesEntity {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
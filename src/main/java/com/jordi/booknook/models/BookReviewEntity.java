@@ -14,7 +14,16 @@ import java.time.LocalDateTime;
 
 
 @Entity
-@Table(name = "book_reviews")
+@Table(
+        name = "book_reviews",
+        indexes = {
+                // Serve the reviews of a book by rating or newest first and those of a user newest first
+                // as range scans. The book_id and user_id foreign keys reuse them instead of indexes of their own.
+                @Index(name = "ix_book_reviews_book_rating", columnList = "book_id, rating, book_reviews_id"),
+                @Index(name = "ix_book_reviews_book_created", columnList = "book_id, created_at, book_reviews_id"),
+                @Index(name = "ix_book_reviews_user_created", columnList = "user_id, created_at, book_reviews_id")
+        }
+)
 public class BookReviewEntity {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -1,6 +1,10 @@
 package com.jordi.booknook.models;
 
+import com.jordi.booknook.cache.SecondLevelCacheConfig;
+import com.jordi.booknook.events.CategoryEntityListener;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -9,6 +13,9 @@ import java.util.HashSet;
 import java.util.Set;
 
 @Entity
+@EntityListeners(CategoryEntityListener.class)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfig.CATEGORIES)
 public class CategoryEntity {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -1,10 +1,18 @@
 package com.jordi.booknook.models;
 
+import com.jordi.booknook.cache.SecondLevelCacheConfig;
 import com.jordi.booknook.enums.Role;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Immutable;
 
 @Entity
 @Table(name = "roles")
+// Roles are only ever inserted at startup, which is what lets them use a READ_ONLY cache.
+@Immutable
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY, region = SecondLevelCacheConfig.ROLES)
 public class RoleEntity {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
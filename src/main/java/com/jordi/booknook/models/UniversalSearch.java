@@ -1,4 +1,7 @@
 package com.jordi.booknook.models;
 
-public record UniversalSearch(String value) {
+public record UniversalSearch(String value, Integer page, Integer size) {
+    public UniversalSearch(String value) {
+        this(value, null, null);
+    }
 }
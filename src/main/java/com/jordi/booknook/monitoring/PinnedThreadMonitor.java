@@ -0,0 +1,118 @@
+package com.jordi.booknook.monitoring;
+
+import com.jordi.booknook.payload.response.PinnedThreadsResponse;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records virtual threads that block while pinned to their carrier thread.
+ *
+ * On Java 21 that happens when a virtual thread parks inside a synchronized block or under a
+ * native frame, and the carrier can't run anything else meanwhile. The JDK reports each such
+ * park longer than the threshold as a jdk.VirtualThreadPinned event, which this streams from
+ * an in-process JFR recording and groups by the frame that caused it.
+ */
+@Component
+public class PinnedThreadMonitor {
+    private static final Logger log = LoggerFactory.getLogger(PinnedThreadMonitor.class);
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final String OWN_CODE = "com.jordi.booknook.";
+    private static final int STACK_DEPTH = 12;
+    private static final int MAX_SITES = 20;
+
+    private final boolean enabled;
+    private final Duration threshold;
+
+    private final LongAdder pinned = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final ConcurrentMap<String, SiteStats> sites = new ConcurrentHashMap<>();
+
+    private RecordingStream stream;
+
+    public PinnedThreadMonitor(@Value("${booknook.threads.pinning.enabled:${spring.threads.virtual.enabled:false}}") boolean enabled,
+                               @Value("${booknook.threads.pinning.threshold:20ms}") Duration threshold) {
+        this.enabled = enabled;
+        this.threshold = threshold;
+    }
+
+    @PostConstruct
+    public synchronized void start() {
+        if (!enabled || stream != null) {
+            return;
+        }
+
+        stream = new RecordingStream();
+        stream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        stream.onEvent(PINNED_EVENT, this::record);
+        stream.startAsync();
+        log.info("Recording virtual threads pinned for more than {} ms", threshold.toMillis());
+    }
+
+    public PinnedThreadsResponse report() {
+        List<PinnedThreadsResponse.Site> top = sites.entrySet().stream()
+                .map(entry -> new PinnedThreadsResponse.Site(entry.getKey(), entry.getValue().pinned.sum(),
+                        entry.getValue().maxNanos.get() / 1_000_000.0, entry.getValue().stack))
+                .sorted(Comparator.comparingLong(PinnedThreadsResponse.Site::pinned).reversed())
+                .limit(MAX_SITES)
+                .toList();
+
+        return new PinnedThreadsResponse(stream != null, pinned.sum(), totalNanos.sum() / 1_000_000.0,
+                maxNanos.get() / 1_000_000.0, top);
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (stream != null) {
+            stream.close();
+            stream = null;
+        }
+    }
+
+    private void record(RecordedEvent event) {
+        long nanos = event.getDuration().toNanos();
+        List<RecordedFrame> frames = event.getStackTrace() == null ? List.of() : event.getStackTrace().getFrames();
+        String site = frames.stream()
+                .filter(frame -> frame.getMethod().getType().getName().startsWith(OWN_CODE))
+                .findFirst()
+                .or(() -> frames.stream().findFirst())
+                .map(PinnedThreadMonitor::describe)
+                .orElse("unknown");
+
+        SiteStats stats = sites.computeIfAbsent(site, ignored -> new SiteStats(frames.stream()
+                .limit(STACK_DEPTH)
+                .map(PinnedThreadMonitor::describe)
+                .toList()));
+        stats.pinned.increment();
+        stats.maxNanos.accumulateAndGet(nanos, Math::max);
+
+        totalNanos.add(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+        pinned.increment();
+    }
+
+    private static String describe(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+
+    private record SiteStats(List<String> stack, LongAdder pinned, AtomicLong maxNanos) {
+        SiteStats(List<String> stack) {
+            this(stack, new LongAdder(), new AtomicLong());
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.jordi.booknook.payload.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record ShelfBooksChangeRequest(
+        @NotEmpty(message = "At least one change is required.")
+        @Size(max = 5000, message = "No more than 5000 changes per request.")
+        List<@Valid @NotNull Change> changes
+) {
+    public enum Action {
+        ADD,
+        REMOVE
+    }
+
+    public record Change(
+            @NotNull(message = "Action is required.") Action action,
+            @NotNull @Min(value = 0, message = "Value must be a valid shelf Id number") Long shelf_id,
+            @NotNull @Min(value = 0, message = "Value must be a valid book Id number") Long book_id
+    ) {
+    }
+}
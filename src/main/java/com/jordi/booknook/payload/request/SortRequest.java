@@ -1,4 +1,7 @@
 package com.jordi.booknook.payload.request;
 
-public record SortRequest(String sortBy) {
+public record SortRequest(String sortBy, Integer page, Integer size) {
+    public SortRequest(String sortBy) {
+        this(sortBy, null, null);
+    }
 }
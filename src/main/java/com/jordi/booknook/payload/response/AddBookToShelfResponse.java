@@ -1,10 +1,9 @@
 package com.jordi.booknook.payload.response;
 
-import com.jordi.booknook.models.BookEntity;
-import com.jordi.booknook.models.ShelfEntity;
-
 public record AddBookToShelfResponse(
-        BookEntity book,
-        ShelfEntity shelf
+        Long shelf_id,
+        String shelf_name,
+        Long book_id,
+        String title
 ) {
 }
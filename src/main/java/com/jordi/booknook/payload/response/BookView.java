@@ -0,0 +1,24 @@
+package com.jordi.booknook.payload.response;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+public record BookView(
+        Long book_id,
+        String title,
+        String description,
+        String cover,
+        List<CategoryView> categories,
+        List<ImageView> images,
+        BigDecimal price,
+        Long rating_count,
+        Double averageRating
+) {
+    // Used by the JPQL constructor expressions, categories and images are added by BookRepository.withDetails.
+    public BookView(Long book_id, String title, String description, String cover, BigDecimal price,
+                    Long rating_count, Double average_rating) {
+        this(book_id, title, description, cover, new ArrayList<>(), new ArrayList<>(), price, rating_count,
+                average_rating == null ? 0.0 : Math.round(average_rating * 10.0) / 10.0);
+    }
+}
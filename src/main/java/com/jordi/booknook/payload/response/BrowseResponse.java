@@ -0,0 +1,13 @@
+package com.jordi.booknook.payload.response;
+
+import com.jordi.booknook.search.PriceFacet;
+
+import java.util.List;
+
+public record BrowseResponse(
+        List<BookView> books,
+        int total,
+        List<CategoryFacet> categories,
+        List<PriceFacet> prices
+) {
+}
@@ -0,0 +1,11 @@
+package com.jordi.booknook.payload.response;
+
+public record CacheRegionStatsResponse(
+        String region,
+        long size,
+        long hits,
+        long misses,
+        long puts,
+        double hit_rate
+) {
+}
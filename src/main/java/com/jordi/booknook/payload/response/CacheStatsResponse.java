@@ -0,0 +1,12 @@
+package com.jordi.booknook.payload.response;
+
+public record CacheStatsResponse(
+        long size,
+        long hits,
+        long misses,
+        double hit_rate,
+        long evictions,
+        long load_failures,
+        double average_load_millis
+) {
+}
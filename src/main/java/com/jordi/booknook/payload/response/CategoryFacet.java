@@ -0,0 +1,8 @@
+package com.jordi.booknook.payload.response;
+
+public record CategoryFacet(
+        Long category_id,
+        String name,
+        int count
+) {
+}
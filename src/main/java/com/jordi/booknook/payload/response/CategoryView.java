@@ -0,0 +1,10 @@
+package com.jordi.booknook.payload.response;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+public record CategoryView(
+        @JsonIgnore Long book_id,
+        Long category_id,
+        String name
+) {
+}
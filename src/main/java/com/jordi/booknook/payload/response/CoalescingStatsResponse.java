@@ -0,0 +1,9 @@
+package com.jordi.booknook.payload.response;
+
+public record CoalescingStatsResponse(
+        long calls,
+        long loads,
+        long coalesced,
+        int in_flight
+) {
+}
@@ -0,0 +1,9 @@
+package com.jordi.booknook.payload.response;
+
+import java.util.List;
+
+public record CursorPage<T>(
+        List<T> items,
+        String next_cursor
+) {
+}
@@ -0,0 +1,10 @@
+package com.jordi.booknook.payload.response;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+public record ImageView(
+        @JsonIgnore Long book_id,
+        Long book_images_id,
+        String media
+) {
+}
@@ -0,0 +1,8 @@
+package com.jordi.booknook.payload.response;
+
+public record LeaderboardEntry(
+        int rank,
+        double score,
+        BookView book
+) {
+}
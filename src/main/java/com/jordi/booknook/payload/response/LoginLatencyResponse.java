@@ -0,0 +1,10 @@
+package com.jordi.booknook.payload.response;
+
+public record LoginLatencyResponse(
+        long logins,
+        long failures,
+        int in_flight,
+        double average_millis,
+        double max_millis
+) {
+}
@@ -0,0 +1,22 @@
+package com.jordi.booknook.payload.response;
+
+import java.util.List;
+
+public record PinnedThreadsResponse(
+        boolean recording,
+        long pinned,
+        double total_millis,
+        double max_millis,
+        List<Site> sites
+) {
+    /**
+     * Where virtual threads got pinned, the first frame in our own code when there is one.
+     */
+    public record Site(
+            String frame,
+            long pinned,
+            double max_millis,
+            List<String> stack
+    ) {
+    }
+}
@@ -0,0 +1,27 @@
+package com.jordi.booknook.payload.response;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// stars maps each number of stars, 1 to 5, to how many reviews gave it.
+public record RatingHistogram(
+        Long rating_count,
+        Double average_rating,
+        Map<Integer, Long> stars
+) {
+    // Used by the JPQL constructor expression, built from the aggregates stored on the book.
+    public RatingHistogram(Long rating_count, Long rating_sum, Long stars_1, Long stars_2, Long stars_3,
+                           Long stars_4, Long stars_5) {
+        this(rating_count,
+                rating_count == 0 ? 0.0 : Math.round((double) rating_sum / rating_count * 10.0) / 10.0,
+                stars(stars_1, stars_2, stars_3, stars_4, stars_5));
+    }
+
+    private static Map<Integer, Long> stars(Long... counts) {
+        Map<Integer, Long> stars = new LinkedHashMap<>();
+        for (int rating = 1; rating <= counts.length; rating++) {
+            stars.put(rating, counts[rating - 1]);
+        }
+        return stars;
+    }
+}
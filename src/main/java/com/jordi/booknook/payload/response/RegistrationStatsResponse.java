@@ -0,0 +1,12 @@
+package com.jordi.booknook.payload.response;
+
+public record RegistrationStatsResponse(
+        long registrations,
+        long failures,
+        int in_flight,
+        int queued_profiles,
+        long profile_batches,
+        int largest_batch,
+        double average_millis
+) {
+}
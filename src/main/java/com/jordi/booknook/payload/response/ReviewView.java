@@ -0,0 +1,13 @@
+package com.jordi.booknook.payload.response;
+
+import java.time.LocalDateTime;
+
+public record ReviewView(
+        Long book_reviews_id,
+        Long book_id,
+        Integer rating,
+        String review,
+        LocalDateTime created_at,
+        LocalDateTime updated_at
+) {
+}
@@ -1,10 +1,8 @@
 package com.jordi.booknook.payload.response;
 
-import com.jordi.booknook.models.BookReviewEntity;
-
 import java.util.List;
 
 public record ReviewsByUserResponse(
-        List<BookReviewEntity> reviews
+        List<ReviewView> reviews
 ) {
 }
@@ -0,0 +1,11 @@
+package com.jordi.booknook.payload.response;
+
+import java.util.List;
+
+// The histogram only comes with the first page.
+public record ReviewsPageResponse(
+        RatingHistogram histogram,
+        List<ReviewView> reviews,
+        String next_cursor
+) {
+}
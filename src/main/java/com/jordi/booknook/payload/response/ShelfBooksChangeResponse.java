@@ -0,0 +1,30 @@
+package com.jordi.booknook.payload.response;
+
+import com.jordi.booknook.payload.request.ShelfBooksChangeRequest;
+
+import java.util.List;
+
+public record ShelfBooksChangeResponse(
+        int added,
+        int removed,
+        int failed,
+        List<Result> results
+) {
+    public enum Status {
+        ADDED,
+        ALREADY_ON_SHELF,
+        REMOVED,
+        NOT_ON_SHELF,
+        BOOK_NOT_FOUND,
+        SHELF_NOT_FOUND,
+        NOT_ALLOWED
+    }
+
+    public record Result(
+            ShelfBooksChangeRequest.Action action,
+            Long shelf_id,
+            Long book_id,
+            Status status
+    ) {
+    }
+}
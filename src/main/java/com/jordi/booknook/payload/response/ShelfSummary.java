@@ -0,0 +1,15 @@
+package com.jordi.booknook.payload.response;
+
+import java.time.LocalDateTime;
+
+public record ShelfSummary(
+        Long shelf_id,
+        String name,
+        String image,
+        String description,
+        Boolean public_shelf,
+        LocalDateTime created_at,
+        LocalDateTime updated_at,
+        Integer book_count
+) {
+}
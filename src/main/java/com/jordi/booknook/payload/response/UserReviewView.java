@@ -0,0 +1,15 @@
+package com.jordi.booknook.payload.response;
+
+import java.time.LocalDateTime;
+
+public record UserReviewView(
+        Long book_reviews_id,
+        Long book_id,
+        String title,
+        String cover,
+        Integer rating,
+        String review,
+        LocalDateTime created_at,
+        LocalDateTime updated_at
+) {
+}
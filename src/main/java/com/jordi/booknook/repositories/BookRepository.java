@@ -1,30 +1,210 @@
 package com.jordi.booknook.repositories;
 
+import com.jordi.booknook.leaderboard.BookRatingRow;
 import com.jordi.booknook.models.BookEntity;
+import com.jordi.booknook.payload.response.BookView;
+import com.jordi.booknook.payload.response.CategoryView;
+import com.jordi.booknook.payload.response.ImageView;
+import com.jordi.booknook.payload.response.RatingHistogram;
+import com.jordi.booknook.search.BookCategoryRow;
+import com.jordi.booknook.search.BookPriceRow;
+import com.jordi.booknook.search.BookSearchDocument;
+import com.jordi.booknook.search.BookTitleRow;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
-import java.util.Comparator;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
-public interface BookRepository extends JpaRepository<BookEntity, Long> {
+public interface BookRepository extends JpaRepository<BookEntity, Long>, BookRepositoryCustom {
+    int DETAILS_CHUNK_SIZE = 1000;
 
-    default List<BookEntity> findAllSorted(String sortBy) {
-        List<BookEntity> books = findAll();
+    String VIEW = "SELECT new com.jordi.booknook.payload.response.BookView(b.book_id, b.title, b.description, " +
+            "b.cover, b.price, b.rating_count, b.average_rating) FROM BookEntity b ";
+
+    // Every ordering has book_id as tiebreaker so pages stay stable between requests.
+    @Query(VIEW + "ORDER BY b.price ASC, b.book_id ASC")
+    List<BookView> findAllOrderByPriceAsc(Pageable pageable);
+
+    @Query(VIEW + "ORDER BY b.price DESC, b.book_id ASC")
+    List<BookView> findAllOrderByPriceDesc(Pageable pageable);
+
+    @Query(VIEW + "ORDER BY b.average_rating ASC, b.book_id ASC")
+    List<BookView> findAllOrderByRatingAsc(Pageable pageable);
+
+    @Query(VIEW + "ORDER BY b.average_rating DESC, b.book_id ASC")
+    List<BookView> findAllOrderByRatingDesc(Pageable pageable);
+
+    @Query(VIEW + "ORDER BY b.book_id ASC")
+    List<BookView> findAllOrderById(Pageable pageable);
+
+    @Query(VIEW + "ORDER BY b.book_id ASC")
+    List<BookView> findAllViews();
+
+    @Query(VIEW + "WHERE b.book_id > :after ORDER BY b.book_id ASC")
+    List<BookView> findPageAfter(@Param("after") Long after, Limit limit);
+
+    @Query(VIEW + "WHERE b.book_id > :after AND b.book_id IN (SELECT books.book_id FROM ShelfEntity shelves " +
+            "JOIN shelves.books books WHERE shelves.shelf_id = :shelfId) ORDER BY b.book_id ASC")
+    List<BookView> findShelfPageAfter(@Param("shelfId") Long shelf_id, @Param("after") Long after, Limit limit);
+
+    @Query(VIEW + "WHERE b.book_id = :bookId")
+    Optional<BookView> findViewById(@Param("bookId") Long book_id);
+
+    @Query("SELECT new com.jordi.booknook.payload.response.RatingHistogram(b.rating_count, b.rating_sum, " +
+            "b.rating_1_count, b.rating_2_count, b.rating_3_count, b.rating_4_count, b.rating_5_count) " +
+            "FROM BookEntity b WHERE b.book_id = :bookId")
+    Optional<RatingHistogram> findRatingHistogram(@Param("bookId") Long book_id);
+
+    @Query("SELECT b.title FROM BookEntity b WHERE b.book_id = :bookId")
+    Optional<String> findTitleById(@Param("bookId") Long book_id);
+
+    @Query("SELECT b.book_id FROM BookEntity b WHERE b.book_id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> book_ids);
+
+    @Query(VIEW + "WHERE b.book_id IN :ids")
+    List<BookView> findViewsByIds(@Param("ids") Collection<Long> book_ids);
+
+    // The pattern is expected lower case, with '!' escaping the LIKE wildcards.
+    @Query(VIEW + "WHERE LOWER(b.title) LIKE :pattern ESCAPE '!' " +
+            "OR LOWER(b.description) LIKE :pattern ESCAPE '!' " +
+            "ORDER BY b.book_id ASC")
+    List<BookView> searchViews(@Param("pattern") String pattern, Pageable pageable);
+
+    // With useCursorFetch=true on the JDBC url MySQL serves this through a server side cursor.
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(VIEW + "ORDER BY b.book_id ASC")
+    Stream<BookView> streamCatalog();
+
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.jordi.booknook.search.BookSearchDocument(b.book_id, b.title, b.description) " +
+            "FROM BookEntity b")
+    Stream<BookSearchDocument> streamSearchDocuments();
+
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.jordi.booknook.search.BookTitleRow(b.book_id, b.title, b.average_rating, b.rating_count) " +
+            "FROM BookEntity b")
+    Stream<BookTitleRow> streamTitles();
+
+    @Query("SELECT new com.jordi.booknook.search.BookTitleRow(b.book_id, b.title, b.average_rating, b.rating_count) " +
+            "FROM BookEntity b WHERE b.book_id = :bookId")
+    Optional<BookTitleRow> findTitleRowById(@Param("bookId") Long book_id);
+
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.jordi.booknook.search.BookPriceRow(b.book_id, b.price) FROM BookEntity b")
+    Stream<BookPriceRow> streamPrices();
+
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.jordi.booknook.search.BookCategoryRow(b.book_id, c.category_id) " +
+            "FROM BookEntity b JOIN b.categories c")
+    Stream<BookCategoryRow> streamCategoryLinks();
+
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.jordi.booknook.leaderboard.BookRatingRow(b.book_id, b.rating_count, b.rating_sum) " +
+            "FROM BookEntity b WHERE b.rating_count > 0")
+    Stream<BookRatingRow> streamRatings();
+
+    @Query("SELECT new com.jordi.booknook.leaderboard.BookRatingRow(b.book_id, b.rating_count, b.rating_sum) " +
+            "FROM BookEntity b WHERE b.book_id IN :ids")
+    List<BookRatingRow> findRatingsByIds(@Param("ids") Collection<Long> ids);
+
+    default List<BookView> findAllSorted(String sortBy, int page, int size) {
+        Pageable pageable = PageRequest.of(page, size);
+
+        if (sortBy == null) {
+            return findAllOrderById(pageable);
+        }
 
         return switch (sortBy) {
-            case "priceAsc" -> books.stream()
-                    .sorted((Comparator.comparing(BookEntity::getPrice)))
-                    .toList();
-            case "priceDesc" -> books.stream()
-                    .sorted((Comparator.comparing(BookEntity::getPrice).reversed()))
-                    .toList();
-            case "ratingsAsc" -> books.stream()
-                    .sorted((Comparator.comparing(BookEntity::getAverageRating)))
-                    .toList();
-            case "ratingsDesc" -> books.stream()
-                    .sorted((Comparator.comparing(BookEntity::getAverageRating).reversed()))
-                    .toList();
-            default -> books;
+            case "priceAsc" -> findAllOrderByPriceAsc(pageable);
+            case "priceDesc" -> findAllOrderByPriceDesc(pageable);
+            case "ratingsAsc" -> findAllOrderByRatingAsc(pageable);
+            case "ratingsDesc" -> findAllOrderByRatingDesc(pageable);
+            default -> findAllOrderById(pageable);
         };
     }
+
+    @Query("SELECT new com.jordi.booknook.payload.response.CategoryView(b.book_id, c.category_id, c.name) " +
+            "FROM BookEntity b JOIN b.categories c WHERE b.book_id IN :ids ORDER BY c.category_id")
+    List<CategoryView> findCategoryViews(@Param("ids") Collection<Long> book_ids);
+
+    @Query("SELECT new com.jordi.booknook.payload.response.ImageView(b.book_id, i.book_images_id, i.media) " +
+            "FROM BookEntity b JOIN b.images i WHERE b.book_id IN :ids ORDER BY i.book_images_id")
+    List<ImageView> findImageViews(@Param("ids") Collection<Long> book_ids);
+
+    /*
+     * Adds the categories and images to the given views with one query per association
+     * (per chunk of ids) instead of one per book. The two are read separately because
+     * joining both at once returns one row per category and image combination.
+     */
+    default List<BookView> withDetails(List<BookView> books) {
+        Map<Long, List<BookView>> viewsById = books.stream().collect(Collectors.groupingBy(BookView::book_id));
+        List<Long> ids = List.copyOf(viewsById.keySet());
+
+        for (int from = 0; from < ids.size(); from += DETAILS_CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + DETAILS_CHUNK_SIZE, ids.size()));
+
+            for (CategoryView category : findCategoryViews(chunk)) {
+                viewsById.get(category.book_id()).forEach(book -> book.categories().add(category));
+            }
+            for (ImageView image : findImageViews(chunk)) {
+                viewsById.get(image.book_id()).forEach(book -> book.images().add(image));
+            }
+        }
+
+        return books;
+    }
+
+    /*
+     * The views of the given ids with their details, in the order of the ids. For ids that come
+     * ranked or sorted from an in-memory index, an IN query doesn't preserve their order.
+     * Ids without a book are left out.
+     */
+    default List<BookView> findViewsInOrder(List<Long> book_ids) {
+        if (book_ids.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, BookView> books = withDetails(findViewsByIds(book_ids))
+                .stream()
+                .collect(Collectors.toMap(BookView::book_id, Function.identity()));
+
+        return book_ids.stream()
+                .map(books::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    // Only books changes, so Hibernate keeps the second-level cache regions of other tables.
+    @Modifying
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_NATIVE_SPACES, value = "books"))
+    @Query(value = "UPDATE books b " +
+            "LEFT JOIN (SELECT book_id, COUNT(*) AS review_count, SUM(rating) AS review_sum, " +
+            "SUM(rating = 1) AS stars_1, SUM(rating = 2) AS stars_2, SUM(rating = 3) AS stars_3, " +
+            "SUM(rating = 4) AS stars_4, SUM(rating = 5) AS stars_5 " +
+            "FROM book_reviews GROUP BY book_id) r ON r.book_id = b.book_id " +
+            "SET b.rating_count = COALESCE(r.review_count, 0), " +
+            "b.rating_sum = COALESCE(r.review_sum, 0), " +
+            "b.average_rating = COALESCE(r.review_sum / r.review_count, 0), " +
+            "b.rating_1_count = COALESCE(r.stars_1, 0), " +
+            "b.rating_2_count = COALESCE(r.stars_2, 0), " +
+            "b.rating_3_count = COALESCE(r.stars_3, 0), " +
+            "b.rating_4_count = COALESCE(r.stars_4, 0), " +
+            "b.rating_5_count = COALESCE(r.stars_5, 0)",
+            nativeQuery = true)
+    int backfillRatingAggregates();
 }
@@ -0,0 +1,7 @@
+package com.jordi.booknook.repositories;
+
+public interface BookRepositoryCustom {
+    void addRating(Long book_id, int rating);
+
+    void adjustRating(Long book_id, int previous_rating, int rating);
+}
@@ -0,0 +1,59 @@
+package com.jordi.booknook.repositories;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Keeps the rating aggregates of books in step with their reviews with plain JDBC updates.
+ * A bulk JPQL update of BookEntity makes Hibernate evict every second-level cached
+ * collection the entity takes part in, so each new review would empty the cached book
+ * categories.
+ */
+public class BookRepositoryImpl implements BookRepositoryCustom {
+    // The histogram column of each number of stars, so the statements never take a column name from input.
+    private static final String[] RATING_COUNT_COLUMNS = {
+            "rating_1_count", "rating_2_count", "rating_3_count", "rating_4_count", "rating_5_count"
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public BookRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /*
+     * The average is assigned first on purpose: MySQL evaluates single-table UPDATE
+     * assignments left to right, so it must be computed before the count and sum change.
+     */
+    @Override
+    public void addRating(Long book_id, int rating) {
+        String stars = ratingCountColumn(rating);
+
+        jdbcTemplate.update("UPDATE books SET " +
+                "average_rating = (rating_sum + ?) * 1.0 / (rating_count + 1), " +
+                "rating_count = rating_count + 1, " +
+                "rating_sum = rating_sum + ?, " +
+                stars + " = " + stars + " + 1 " +
+                "WHERE book_id = ?", rating, rating, book_id);
+    }
+
+    @Override
+    public void adjustRating(Long book_id, int previous_rating, int rating) {
+        String previousStars = ratingCountColumn(previous_rating);
+        String stars = ratingCountColumn(rating);
+        int delta = rating - previous_rating;
+
+        jdbcTemplate.update("UPDATE books SET " +
+                "average_rating = (rating_sum + ?) * 1.0 / rating_count, " +
+                "rating_sum = rating_sum + ?, " +
+                previousStars + " = " + previousStars + " - 1, " +
+                stars + " = " + stars + " + 1 " +
+                "WHERE book_id = ? AND rating_count > 0", delta, delta, book_id);
+    }
+
+    private static String ratingCountColumn(int rating) {
+        if (rating < 1 || rating > RATING_COUNT_COLUMNS.length) {
+            throw new IllegalArgumentException("Rating must be between 1 and 5.");
+        }
+        return RATING_COUNT_COLUMNS[rating - 1];
+    }
+}
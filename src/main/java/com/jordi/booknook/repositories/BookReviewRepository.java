@@ -1,14 +1,75 @@
 package com.jordi.booknook.repositories;
 
-import com.jordi.booknook.models.BookEntity;
 import com.jordi.booknook.models.BookReviewEntity;
-import com.jordi.booknook.models.UserEntity;
+import com.jordi.booknook.payload.response.ReviewView;
+import com.jordi.booknook.payload.response.UserReviewView;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 public interface BookReviewRepository extends JpaRepository<BookReviewEntity, Long> {
-    List<BookReviewEntity> findBookReviewEntitiesByBook(BookEntity book);
+    String VIEW = "SELECT new com.jordi.booknook.payload.response.ReviewView(r.book_reviews_id, r.book.book_id, " +
+            "r.rating, r.review, r.created_at, r.updated_at) FROM BookReviewEntity r ";
+    String USER_VIEW = "SELECT new com.jordi.booknook.payload.response.UserReviewView(r.book_reviews_id, b.book_id, " +
+            "b.title, b.cover, r.rating, r.review, r.created_at, r.updated_at) FROM BookReviewEntity r JOIN r.book b ";
 
-    List<BookReviewEntity> findBookReviewEntitiesByUser(UserEntity user);
+    // Holds a row lock until the transaction ends, so concurrent edits of a review see each other's rating.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM BookReviewEntity r WHERE r.book_reviews_id = :reviewId")
+    Optional<BookReviewEntity> findByIdForUpdate(@Param("reviewId") Long book_reviews_id);
+
+    @Query(VIEW + "WHERE r.book.book_id = :bookId ORDER BY r.book_reviews_id")
+    List<ReviewView> findViewsByBook(@Param("bookId") Long book_id);
+
+    @Query(VIEW + "WHERE r.book.book_id = :bookId AND r.book_reviews_id > :after ORDER BY r.book_reviews_id")
+    List<ReviewView> findViewsByBookAfter(@Param("bookId") Long book_id, @Param("after") Long after, Limit limit);
+
+    /*
+     * Keyset pages of the reviews of a book, newest first or by rating. Review ids grow with time,
+     * so they stand in for the creation date among equal ratings and break ties between reviews
+     * created at the same time. Both rating orders read ix_book_reviews_book_rating in one
+     * direction, forwards for the lowest first and backwards for the highest first, so equal
+     * ratings come oldest first in the former and newest first in the latter.
+     * The first page by rating passes a key before every row: 6 and Long.MAX_VALUE, or 0 and 0.
+     */
+    @Query(VIEW + "WHERE r.book.book_id = :bookId ORDER BY r.created_at DESC, r.book_reviews_id DESC")
+    List<ReviewView> findNewestByBook(@Param("bookId") Long book_id, Limit limit);
+
+    @Query(VIEW + "WHERE r.book.book_id = :bookId " +
+            "AND (r.created_at < :createdAt OR (r.created_at = :createdAt AND r.book_reviews_id < :before)) " +
+            "ORDER BY r.created_at DESC, r.book_reviews_id DESC")
+    List<ReviewView> findNewestByBookBefore(@Param("bookId") Long book_id, @Param("createdAt") LocalDateTime created_at,
+                                            @Param("before") Long before, Limit limit);
+
+    @Query(VIEW + "WHERE r.book.book_id = :bookId " +
+            "AND (r.rating < :rating OR (r.rating = :rating AND r.book_reviews_id < :before)) " +
+            "ORDER BY r.rating DESC, r.book_reviews_id DESC")
+    List<ReviewView> findHighestByBookAfter(@Param("bookId") Long book_id, @Param("rating") Integer rating,
+                                            @Param("before") Long before, Limit limit);
+
+    @Query(VIEW + "WHERE r.book.book_id = :bookId " +
+            "AND (r.rating > :rating OR (r.rating = :rating AND r.book_reviews_id > :after)) " +
+            "ORDER BY r.rating ASC, r.book_reviews_id ASC")
+    List<ReviewView> findLowestByBookAfter(@Param("bookId") Long book_id, @Param("rating") Integer rating,
+                                           @Param("after") Long after, Limit limit);
+
+    @Query(VIEW + "WHERE r.user.user_id = :userId ORDER BY r.book_reviews_id")
+    List<ReviewView> findViewsByUser(@Param("userId") Long user_id);
+
+    // Keyset pages of the reviews of a user, newest first, with the title and cover of each book.
+    @Query(USER_VIEW + "WHERE r.user.user_id = :userId ORDER BY r.created_at DESC, r.book_reviews_id DESC")
+    List<UserReviewView> findNewestByUser(@Param("userId") Long user_id, Limit limit);
+
+    @Query(USER_VIEW + "WHERE r.user.user_id = :userId " +
+            "AND (r.created_at < :createdAt OR (r.created_at = :createdAt AND r.book_reviews_id < :before)) " +
+            "ORDER BY r.created_at DESC, r.book_reviews_id DESC")
+    List<UserReviewView> findNewestByUserBefore(@Param("userId") Long user_id, @Param("createdAt") LocalDateTime created_at,
+                                                @Param("before") Long before, Limit limit);
 }
@@ -1,6 +1,23 @@
 package com.jordi.booknook.repositories;
 
 import com.jordi.booknook.models.CategoryEntity;
+import com.jordi.booknook.search.CategoryNameRow;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
-public interface CategoryRepository extends JpaRepository<CategoryEntity, Long> { }
+import java.util.List;
+
+public interface CategoryRepository extends JpaRepository<CategoryEntity, Long> {
+    // The ids come from the query cache and the categories from their second-level cache region.
+    @Override
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
+    List<CategoryEntity> findAll();
+
+    @Query("SELECT new com.jordi.booknook.search.CategoryNameRow(c.category_id, c.name, COUNT(b)) " +
+            "FROM CategoryEntity c LEFT JOIN c.books b " +
+            "GROUP BY c.category_id, c.name")
+    List<CategoryNameRow> findCategoryNames();
+}
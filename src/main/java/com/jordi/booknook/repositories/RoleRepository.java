@@ -2,10 +2,14 @@ package com.jordi.booknook.repositories;
 
 import com.jordi.booknook.enums.Role;
 import com.jordi.booknook.models.RoleEntity;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import java.util.Optional;
 
 public interface RoleRepository extends JpaRepository<RoleEntity, Long> {
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
     Optional<RoleEntity> findByName(Role name);
 }
@@ -0,0 +1,7 @@
+package com.jordi.booknook.repositories;
+
+public record ShelfBookRow(
+        Long shelf_id,
+        Long book_id
+) {
+}
@@ -0,0 +1,8 @@
+package com.jordi.booknook.repositories;
+
+public record ShelfOwnerRow(
+        Long shelf_id,
+        String name,
+        String username
+) {
+}
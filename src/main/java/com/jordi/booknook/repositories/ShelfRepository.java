@@ -1,24 +1,68 @@
 package com.jordi.booknook.repositories;
 
 import com.jordi.booknook.models.ShelfEntity;
-import com.jordi.booknook.models.UserEntity;
+import com.jordi.booknook.payload.response.ShelfSummary;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
-public interface ShelfRepository extends JpaRepository<ShelfEntity, Long> {
+public interface ShelfRepository extends JpaRepository<ShelfEntity, Long>, ShelfRepositoryCustom {
+    // The book count is a correlated COUNT over book_shelf, the books themselves are never read.
+    String SUMMARY = "SELECT new com.jordi.booknook.payload.response.ShelfSummary(shelves.shelf_id, shelves.name, " +
+            "shelves.image, shelves.description, shelves.public_shelf, shelves.created_at, shelves.updated_at, " +
+            "SIZE(shelves.books)) FROM ShelfEntity shelves ";
+
+    @Query(SUMMARY + "WHERE shelves.user.user_id = :userId ORDER BY shelves.shelf_id")
+    List<ShelfSummary> findSummariesByUser(@Param("userId") Long user_id);
+
+    @Query(SUMMARY + "WHERE shelves.user.user_id = :userId AND shelves.shelf_id = :shelfId")
+    Optional<ShelfSummary> findSummaryByUserAndShelfId(@Param("userId") Long user_id, @Param("shelfId") Long shelf_id);
+
+    @Query(SUMMARY + "WHERE shelves.user.user_id = :userId AND shelves.public_shelf = false ORDER BY shelves.shelf_id")
+    List<ShelfSummary> findPrivateSummariesByUser(@Param("userId") Long user_id);
+
+    @Query(SUMMARY + "WHERE shelves.user.user_id = :userId AND shelves.public_shelf = true ORDER BY shelves.shelf_id")
+    List<ShelfSummary> findPublicSummariesByUser(@Param("userId") Long user_id);
+
+    @Query("SELECT COUNT(shelves) > 0 FROM ShelfEntity shelves " +
+            "WHERE shelves.shelf_id = :shelfId AND shelves.user.user_id = :userId")
+    boolean existsByUserAndShelfId(@Param("userId") Long user_id, @Param("shelfId") Long shelf_id);
 
-    List<ShelfEntity> findAllByUser(UserEntity user);
+    @Query("SELECT COUNT(shelves) > 0 FROM ShelfEntity shelves " +
+            "WHERE shelves.shelf_id = :shelfId AND shelves.public_shelf = true")
+    boolean existsPublicById(@Param("shelfId") Long shelf_id);
 
-    @Query("SELECT shelve FROM ShelfEntity shelve WHERE shelve.user = :user AND shelve.shelf_id = :shelfId")
-    Optional<ShelfEntity> findOneByUserAndShelfId(@Param("user") UserEntity user, @Param("shelfId") Long shelf_id);
+    @Query("SELECT new com.jordi.booknook.repositories.ShelfOwnerRow(shelves.shelf_id, shelves.name, owner.username) " +
+            "FROM ShelfEntity shelves JOIN shelves.user owner WHERE shelves.shelf_id = :shelfId")
+    Optional<ShelfOwnerRow> findOwnerById(@Param("shelfId") Long shelf_id);
 
-    @Query("SELECT shelves from ShelfEntity shelves WHERE shelves.user = :user AND shelves.public_shelf = false")
-    List<ShelfEntity> findAllByUserAndPublicShelfIsFalse(@Param("user") UserEntity user);
+    @Query("SELECT new com.jordi.booknook.repositories.ShelfOwnerRow(shelves.shelf_id, shelves.name, owner.username) " +
+            "FROM ShelfEntity shelves JOIN shelves.user owner WHERE shelves.shelf_id IN :shelfIds")
+    List<ShelfOwnerRow> findOwnersByIds(@Param("shelfIds") Collection<Long> shelf_ids);
 
-    @Query("SELECT shelves from ShelfEntity shelves WHERE shelves.user = :user AND shelves.public_shelf = true")
-    List<ShelfEntity> findAllByUserAndPublicShelfIsTrue(@Param("user") UserEntity user);
+    @Query("SELECT new com.jordi.booknook.repositories.ShelfBookRow(shelves.shelf_id, books.book_id) " +
+            "FROM ShelfEntity shelves JOIN shelves.books books " +
+            "WHERE shelves.shelf_id IN :shelfIds AND books.book_id IN :bookIds")
+    List<ShelfBookRow> findBooksOnShelves(@Param("shelfIds") Collection<Long> shelf_ids,
+                                          @Param("bookIds") Collection<Long> book_ids);
 
+    /*
+     * Writes the join table row without loading the shelf's books, adding a book
+     * that is already on the shelf leaves the existing row untouched. Naming the table keeps
+     * Hibernate from evicting every second-level cache region after the native statement.
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_NATIVE_SPACES, value = "book_shelf"))
+    @Query(value = "INSERT INTO book_shelf (shelf_id, book_id) VALUES (:shelfId, :bookId) " +
+            "ON DUPLICATE KEY UPDATE book_id = book_id",
+            nativeQuery = true)
+    void addBook(@Param("shelfId") Long shelf_id, @Param("bookId") Long book_id);
 }
@@ -0,0 +1,11 @@
+package com.jordi.booknook.repositories;
+
+import java.util.Collection;
+
+public interface ShelfRepositoryCustom {
+    void addBooks(Collection<ShelfBookRow> rows);
+
+    void removeBooks(Collection<ShelfBookRow> rows);
+
+    void addDefaultShelves(Collection<Long> userIds);
+}
@@ -0,0 +1,69 @@
+package com.jordi.booknook.repositories;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Writes book_shelf rows and new users' default shelves with batched JDBC statements. With rewriteBatchedStatements on the
+ * MySQL driver sends each batch as a single multi-row statement.
+ */
+public class ShelfRepositoryImpl implements ShelfRepositoryCustom {
+    static final int BATCH_SIZE = 1000;
+
+    // Every new user starts with these three public shelves: name, image and description.
+    public static final List<String[]> DEFAULT_SHELVES = List.of(
+            new String[]{"Leido", "image1.jpg", "Libros que ya he leido."},
+            new String[]{"Quiero Leer", "image2.jpg", "Libros que quiero leer."},
+            new String[]{"Leyendo", "image3.jpg", "Libros que estoy leyendo."}
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ShelfRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void addBooks(Collection<ShelfBookRow> rows) {
+        write("INSERT INTO book_shelf (shelf_id, book_id) VALUES (?, ?) " +
+                "ON DUPLICATE KEY UPDATE book_id = book_id", rows);
+    }
+
+    @Override
+    public void removeBooks(Collection<ShelfBookRow> rows) {
+        write("DELETE FROM book_shelf WHERE shelf_id = ? AND book_id = ?", rows);
+    }
+
+    @Override
+    public void addDefaultShelves(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> rows = userIds.stream()
+                .flatMap(userId -> DEFAULT_SHELVES.stream()
+                        .map(shelf -> new Object[]{userId, shelf[0], shelf[1], shelf[2]}))
+                .toList();
+
+        jdbcTemplate.batchUpdate("INSERT INTO shelves (user_id, name, image, description, public_shelf, created_at, updated_at) " +
+                "VALUES (?, ?, ?, ?, TRUE, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)", rows, BATCH_SIZE, (statement, row) -> {
+            statement.setLong(1, (Long) row[0]);
+            statement.setString(2, (String) row[1]);
+            statement.setString(3, (String) row[2]);
+            statement.setString(4, (String) row[3]);
+        });
+    }
+
+    private void write(String sql, Collection<ShelfBookRow> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.batchUpdate(sql, List.copyOf(rows), BATCH_SIZE, (statement, row) -> {
+            statement.setLong(1, row.shelf_id());
+            statement.setLong(2, row.book_id());
+        });
+    }
+}
@@ -0,0 +1,8 @@
+package com.jordi.booknook.search;
+
+public record AutocompleteStats(
+        int suggestions,
+        int nodes,
+        long estimated_bytes
+) {
+}
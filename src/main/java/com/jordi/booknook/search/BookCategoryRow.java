@@ -0,0 +1,7 @@
+package com.jordi.booknook.search;
+
+public record BookCategoryRow(
+        Long book_id,
+        Long category_id
+) {
+}
@@ -0,0 +1,328 @@
+package com.jordi.booknook.search;
+
+import com.jordi.booknook.events.BookCategoriesChangedEvent;
+import com.jordi.booknook.events.BookChangedEvent;
+import com.jordi.booknook.events.CategoryBooksChangedEvent;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * In-memory bitmap index over the categories and prices of the books, for faceted browsing.
+ *
+ * Every category and every price bucket has a compressed bitmap of the ids of its books.
+ * Filtering is a union of the selected categories intersected with the price buckets in
+ * range, and each facet count is the cardinality of one more intersection, so browsing
+ * never reads book_category.
+ *
+ * Counts are worked out the usual multi-select way: the count of a category applies the
+ * price filter only and the count of a price bucket applies the category filter only, so
+ * they tell how many books picking that value would add to the selection.
+ */
+@Component
+public class BookFacetIndex {
+    // Exclusive upper bounds of the price buckets, in cents. The last bucket is open ended.
+    static final long[] PRICE_BOUNDS = {500, 1000, 1500, 2000, 3000, 5000};
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Facets facets = new Facets();
+    private List<Consumer<Facets>> pendingChanges;
+    private volatile boolean ready = false;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return facets.books.getCardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the whole index with the given prices and category links. Changes received
+     * while the new index is being built are replayed on top of it before it is swapped in.
+     */
+    public void rebuild(Stream<BookPriceRow> prices, Stream<BookCategoryRow> categories) {
+        lock.writeLock().lock();
+        try {
+            pendingChanges = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Facets fresh = new Facets();
+        prices.forEach(row -> fresh.setPrice(id(row.book_id()), row.price()));
+        categories.forEach(row -> fresh.category(row.category_id()).add(id(row.book_id())));
+        fresh.optimize();
+
+        lock.writeLock().lock();
+        try {
+            pendingChanges.forEach(change -> change.accept(fresh));
+            pendingChanges = null;
+            facets = fresh;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void setPrice(Long book_id, BigDecimal price) {
+        apply(facets -> facets.setPrice(id(book_id), price));
+    }
+
+    public void setCategories(Long book_id, Set<Long> category_ids) {
+        apply(facets -> facets.setCategories(id(book_id), category_ids));
+    }
+
+    public void setBooks(Long category_id, Set<Long> book_ids) {
+        apply(facets -> facets.setBooks(category_id, book_ids));
+    }
+
+    public void remove(Long book_id) {
+        apply(facets -> facets.remove(id(book_id)));
+    }
+
+    /**
+     * @return - The books in any of the given categories (or in any category when none is
+     * given) priced between min_price and max_price inclusive, in id order, with the facet
+     * counts of that selection. Null prices leave that end of the range open.
+     */
+    public FacetResult browse(Collection<Long> category_ids, BigDecimal min_price, BigDecimal max_price,
+                              int offset, int limit) {
+        long min = min_price == null ? Long.MIN_VALUE : cents(min_price, RoundingMode.CEILING);
+        long max = max_price == null ? Long.MAX_VALUE : cents(max_price, RoundingMode.FLOOR);
+
+        lock.readLock().lock();
+        try {
+            RoaringBitmap inPriceRange = facets.inPriceRange(min, max);
+            RoaringBitmap inCategories = facets.inCategories(category_ids);
+            RoaringBitmap matches = RoaringBitmap.and(inPriceRange, inCategories);
+
+            Map<Long, Integer> categoryCounts = new HashMap<>();
+            facets.byCategory.forEach((category_id, books) -> {
+                int count = RoaringBitmap.andCardinality(books, inPriceRange);
+                if (count > 0 || category_ids.contains(category_id)) {
+                    categoryCounts.put(category_id, count);
+                }
+            });
+
+            List<PriceFacet> priceCounts = new ArrayList<>(PRICE_BOUNDS.length + 1);
+            for (int bucket = 0; bucket <= PRICE_BOUNDS.length; bucket++) {
+                priceCounts.add(new PriceFacet(
+                        bucket == 0 ? BigDecimal.ZERO.setScale(2) : BigDecimal.valueOf(PRICE_BOUNDS[bucket - 1], 2),
+                        bucket == PRICE_BOUNDS.length ? null : BigDecimal.valueOf(PRICE_BOUNDS[bucket], 2),
+                        RoaringBitmap.andCardinality(facets.byPrice[bucket], inCategories)));
+            }
+
+            return new FacetResult(page(matches, offset, limit), matches.getCardinality(),
+                    sortedByCount(categoryCounts), priceCounts);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        if (event.change() == BookChangedEvent.Change.REMOVED) {
+            remove(event.book().getBook_id());
+        } else {
+            setPrice(event.book().getBook_id(), event.book().getPrice());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookCategoriesChanged(BookCategoriesChangedEvent event) {
+        setCategories(event.book_id(), event.category_ids());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryBooksChanged(CategoryBooksChangedEvent event) {
+        setBooks(event.category_id(), event.book_ids());
+    }
+
+    private void apply(Consumer<Facets> change) {
+        lock.writeLock().lock();
+        try {
+            change.accept(facets);
+            if (pendingChanges != null) {
+                pendingChanges.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static List<Long> page(RoaringBitmap matches, int offset, int limit) {
+        if (offset >= matches.getCardinality() || limit <= 0) {
+            return List.of();
+        }
+
+        List<Long> bookIds = new ArrayList<>(limit);
+        PeekableIntIterator ids = matches.getIntIterator();
+        ids.advanceIfNeeded(matches.select(offset));
+        while (ids.hasNext() && bookIds.size() < limit) {
+            bookIds.add((long) ids.next());
+        }
+        return bookIds;
+    }
+
+    private static Map<Long, Integer> sortedByCount(Map<Long, Integer> counts) {
+        Map<Long, Integer> sorted = new LinkedHashMap<>();
+        counts.entrySet().stream()
+                .sorted(Map.Entry.<Long, Integer>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .forEach(entry -> sorted.put(entry.getKey(), entry.getValue()));
+        return sorted;
+    }
+
+    // The bitmaps hold ints, book ids come from an auto increment column far from overflowing one.
+    private static int id(Long book_id) {
+        return Math.toIntExact(book_id);
+    }
+
+    private static long cents(BigDecimal price, RoundingMode rounding) {
+        return price.movePointRight(2).setScale(0, rounding).longValue();
+    }
+
+    static int bucket(long cents) {
+        int bucket = 0;
+        while (bucket < PRICE_BOUNDS.length && cents >= PRICE_BOUNDS[bucket]) {
+            bucket++;
+        }
+        return bucket;
+    }
+
+    private static final class Facets {
+        private final RoaringBitmap books = new RoaringBitmap();
+        private final Map<Long, RoaringBitmap> byCategory = new HashMap<>();
+        private final RoaringBitmap[] byPrice = new RoaringBitmap[PRICE_BOUNDS.length + 1];
+        // Price in cents by book id, only read for the books of the buckets a range cuts through.
+        private long[] prices = new long[1024];
+
+        Facets() {
+            Arrays.setAll(byPrice, bucket -> new RoaringBitmap());
+        }
+
+        RoaringBitmap category(Long category_id) {
+            return byCategory.computeIfAbsent(category_id, id -> new RoaringBitmap());
+        }
+
+        // A book without a price is listed but falls outside every price range.
+        void setPrice(int bookId, BigDecimal price) {
+            if (books.contains(bookId)) {
+                for (RoaringBitmap bucket : byPrice) {
+                    bucket.remove(bookId);
+                }
+            }
+            books.add(bookId);
+
+            if (price != null) {
+                long cents = cents(price, RoundingMode.HALF_UP);
+                if (bookId >= prices.length) {
+                    prices = Arrays.copyOf(prices, Math.max(prices.length * 2, bookId + 1));
+                }
+                prices[bookId] = cents;
+                byPrice[bucket(cents)].add(bookId);
+            }
+        }
+
+        void setCategories(int bookId, Set<Long> categoryIds) {
+            byCategory.forEach((category_id, books) -> {
+                if (!categoryIds.contains(category_id)) {
+                    books.remove(bookId);
+                }
+            });
+            categoryIds.forEach(category_id -> category(category_id).add(bookId));
+            byCategory.values().removeIf(RoaringBitmap::isEmpty);
+        }
+
+        void setBooks(Long categoryId, Set<Long> bookIds) {
+            if (bookIds.isEmpty()) {
+                byCategory.remove(categoryId);
+                return;
+            }
+            RoaringBitmap books = new RoaringBitmap();
+            bookIds.forEach(book_id -> books.add(id(book_id)));
+            books.runOptimize();
+            byCategory.put(categoryId, books);
+        }
+
+        // Books of a category added in id order compress well into runs.
+        void optimize() {
+            books.runOptimize();
+            byCategory.values().forEach(RoaringBitmap::runOptimize);
+            Arrays.stream(byPrice).forEach(RoaringBitmap::runOptimize);
+        }
+
+        void remove(int bookId) {
+            books.remove(bookId);
+            for (RoaringBitmap bucket : byPrice) {
+                bucket.remove(bookId);
+            }
+            byCategory.values().forEach(books -> books.remove(bookId));
+            byCategory.values().removeIf(RoaringBitmap::isEmpty);
+        }
+
+        RoaringBitmap inCategories(Collection<Long> categoryIds) {
+            if (categoryIds.isEmpty()) {
+                return books;
+            }
+            RoaringBitmap selected = RoaringBitmap.or(categoryIds.stream()
+                    .map(byCategory::get)
+                    .filter(Objects::nonNull)
+                    .iterator());
+            selected.and(books);
+            return selected;
+        }
+
+        /*
+         * Buckets inside the range are taken whole; only the books of the (at most two) buckets
+         * the range cuts through have their exact price checked.
+         */
+        RoaringBitmap inPriceRange(long min, long max) {
+            if (min == Long.MIN_VALUE && max == Long.MAX_VALUE) {
+                return books;
+            }
+
+            RoaringBitmap inRange = new RoaringBitmap();
+            for (int bucket = 0; bucket <= PRICE_BOUNDS.length; bucket++) {
+                long low = bucket == 0 ? Long.MIN_VALUE : PRICE_BOUNDS[bucket - 1];
+                long high = bucket == PRICE_BOUNDS.length ? Long.MAX_VALUE : PRICE_BOUNDS[bucket] - 1;
+
+                if (high < min || low > max) {
+                    continue;
+                }
+                if (low >= min && high <= max) {
+                    inRange.or(byPrice[bucket]);
+                } else {
+                    byPrice[bucket].forEach((int bookId) -> {
+                        if (prices[bookId] >= min && prices[bookId] <= max) {
+                            inRange.add(bookId);
+                        }
+                    });
+                }
+            }
+            return inRange;
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.jordi.booknook.search;
+
+import java.math.BigDecimal;
+
+public record BookPriceRow(
+        Long book_id,
+        BigDecimal price
+) {
+}
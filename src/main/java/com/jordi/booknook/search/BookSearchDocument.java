@@ -0,0 +1,8 @@
+package com.jordi.booknook.search;
+
+public record BookSearchDocument(
+        Long book_id,
+        String title,
+        String description
+) {
+}
@@ -0,0 +1,301 @@
+package com.jordi.booknook.search;
+
+import com.jordi.booknook.events.BookChangedEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * In-memory inverted index over book titles and descriptions.
+ *
+ * Every indexed book gets an internal document number, always bigger than the previous one,
+ * so posting lists are kept sorted just by appending. Updating a book marks its old document
+ * as deleted and appends a new one; deleted documents are dropped when the index is compacted.
+ *
+ * Queries match books containing every term and rank them by term weight (title terms weigh
+ * more than description terms) times the inverse document frequency of the term.
+ */
+@Component
+public class BookSearchIndex {
+    static final int TITLE_WEIGHT = 3;
+    static final int DESCRIPTION_WEIGHT = 1;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Segment segment = new Segment();
+    private List<BookSearchDocument> pendingChanges;
+    private List<Long> pendingRemovals;
+    private volatile boolean ready = false;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return segment.live;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the whole index with the given documents. Changes received while the
+     * new index is being built are replayed on top of it before it is swapped in.
+     */
+    public void rebuild(Stream<BookSearchDocument> documents) {
+        lock.writeLock().lock();
+        try {
+            pendingChanges = new ArrayList<>();
+            pendingRemovals = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Segment fresh = new Segment();
+        documents.forEach(fresh::add);
+
+        lock.writeLock().lock();
+        try {
+            pendingRemovals.forEach(fresh::remove);
+            pendingChanges.forEach(fresh::add);
+            pendingChanges = null;
+            pendingRemovals = null;
+            segment = fresh;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void index(BookSearchDocument document) {
+        lock.writeLock().lock();
+        try {
+            segment.add(document);
+            if (pendingChanges != null) {
+                pendingChanges.add(document);
+            }
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long book_id) {
+        lock.writeLock().lock();
+        try {
+            segment.remove(book_id);
+            if (pendingRemovals != null) {
+                pendingChanges.removeIf(document -> document.book_id().equals(book_id));
+                pendingRemovals.add(book_id);
+            }
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public SearchResult search(String query, int page, int size) {
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(TextNormalizer.tokenize(query)));
+        if (terms.isEmpty() || size <= 0) {
+            return new SearchResult(List.of(), 0);
+        }
+
+        lock.readLock().lock();
+        try {
+            return segment.search(terms, page * size, size);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        if (event.change() == BookChangedEvent.Change.REMOVED) {
+            remove(event.book().getBook_id());
+        } else {
+            index(new BookSearchDocument(event.book().getBook_id(), event.book().getTitle(),
+                    event.book().getDescription()));
+        }
+    }
+
+    private void compactIfNeeded() {
+        if (segment.deletedCount > 1024 && segment.deletedCount > segment.live / 4) {
+            segment = segment.compact();
+        }
+    }
+
+    private static final class Segment {
+        private final Map<String, PostingList> postings = new HashMap<>();
+        private final Map<Long, Integer> documentByBook = new HashMap<>();
+        private final BitSet deleted = new BitSet();
+        private long[] bookIds = new long[1024];
+        private int nextDocument = 0;
+        private int deletedCount = 0;
+        private int live = 0;
+
+        void add(BookSearchDocument document) {
+            remove(document.book_id());
+
+            Map<String, Integer> weights = new HashMap<>();
+            for (String term : TextNormalizer.tokenize(document.title())) {
+                weights.merge(term, TITLE_WEIGHT, Integer::sum);
+            }
+            for (String term : TextNormalizer.tokenize(document.description())) {
+                weights.merge(term, DESCRIPTION_WEIGHT, Integer::sum);
+            }
+
+            int doc = newDocument(document.book_id());
+            weights.forEach((term, weight) ->
+                    postings.computeIfAbsent(term, key -> new PostingList()).add(doc, weight));
+        }
+
+        void remove(Long bookId) {
+            Integer doc = documentByBook.remove(bookId);
+            if (doc != null) {
+                deleted.set(doc);
+                deletedCount++;
+                live--;
+            }
+        }
+
+        private int newDocument(long bookId) {
+            if (nextDocument == bookIds.length) {
+                bookIds = Arrays.copyOf(bookIds, bookIds.length * 2);
+            }
+            int doc = nextDocument++;
+            bookIds[doc] = bookId;
+            documentByBook.put(bookId, doc);
+            live++;
+            return doc;
+        }
+
+        SearchResult search(List<String> terms, int offset, int limit) {
+            List<PostingList> lists = new ArrayList<>(terms.size());
+            for (String term : terms) {
+                PostingList list = postings.get(term);
+                if (list == null) {
+                    return new SearchResult(List.of(), 0);
+                }
+                lists.add(list);
+            }
+            // Walk the rarest term and look the rest up, the cost depends on the rarest term only.
+            lists.sort(Comparator.comparingInt(list -> list.size));
+
+            double[] idf = new double[lists.size()];
+            for (int i = 0; i < lists.size(); i++) {
+                idf[i] = Math.log(1.0 + (double) Math.max(live, 1) / lists.get(i).size);
+            }
+
+            int keep = offset + limit;
+            PriorityQueue<ScoredDocument> top = new PriorityQueue<>(ScoredDocument.WORST_FIRST);
+            int[] cursors = new int[lists.size()];
+            int total = 0;
+
+            PostingList rarest = lists.get(0);
+            candidates:
+            for (int i = 0; i < rarest.size; i++) {
+                int doc = rarest.documents[i];
+                if (deleted.get(doc)) {
+                    continue;
+                }
+
+                double score = rarest.weights[i] * idf[0];
+                for (int l = 1; l < lists.size(); l++) {
+                    PostingList other = lists.get(l);
+                    int position = other.seek(doc, cursors[l]);
+                    cursors[l] = position;
+                    if (position >= other.size || other.documents[position] != doc) {
+                        continue candidates;
+                    }
+                    score += other.weights[position] * idf[l];
+                }
+
+                total++;
+                // Compared like the final ranking, so ties are cut by book id and not by document order.
+                ScoredDocument candidate = new ScoredDocument(bookIds[doc], score);
+                if (top.size() < keep) {
+                    top.offer(candidate);
+                } else if (ScoredDocument.WORST_FIRST.compare(candidate, top.peek()) > 0) {
+                    top.poll();
+                    top.offer(candidate);
+                }
+            }
+
+            List<Long> ranked = new ArrayList<>(top.size());
+            while (!top.isEmpty()) {
+                ranked.add(top.poll().bookId());
+            }
+            Collections.reverse(ranked);
+
+            List<Long> page = offset >= ranked.size() ? List.of() : ranked.subList(offset, ranked.size());
+            return new SearchResult(List.copyOf(page), total);
+        }
+
+        Segment compact() {
+            Segment compacted = new Segment();
+            int[] remap = new int[nextDocument];
+            for (int doc = 0; doc < nextDocument; doc++) {
+                remap[doc] = deleted.get(doc) ? -1 : compacted.newDocument(bookIds[doc]);
+            }
+            postings.forEach((term, list) -> {
+                PostingList remapped = list.remap(remap);
+                if (remapped.size > 0) {
+                    compacted.postings.put(term, remapped);
+                }
+            });
+            return compacted;
+        }
+    }
+
+    private static final class PostingList {
+        private int[] documents = new int[4];
+        private short[] weights = new short[4];
+        private int size = 0;
+
+        void add(int doc, int weight) {
+            if (size == documents.length) {
+                documents = Arrays.copyOf(documents, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            documents[size] = doc;
+            weights[size] = (short) Math.min(weight, Short.MAX_VALUE);
+            size++;
+        }
+
+        // Position of the first document >= doc, starting at from.
+        int seek(int doc, int from) {
+            int position = Arrays.binarySearch(documents, from, size, doc);
+            return position >= 0 ? position : -position - 1;
+        }
+
+        PostingList remap(int[] remap) {
+            PostingList remapped = new PostingList();
+            for (int i = 0; i < size; i++) {
+                int doc = remap[documents[i]];
+                if (doc >= 0) {
+                    remapped.add(doc, weights[i]);
+                }
+            }
+            return remapped;
+        }
+    }
+
+    private record ScoredDocument(long bookId, double score) {
+        static final Comparator<ScoredDocument> WORST_FIRST = Comparator
+                .comparingDouble(ScoredDocument::score)
+                .thenComparing(Comparator.comparingLong(ScoredDocument::bookId).reversed());
+    }
+}
@@ -0,0 +1,12 @@
+package com.jordi.booknook.search;
+
+public record BookTitleRow(
+        Long book_id,
+        String title,
+        Double average_rating,
+        Long rating_count
+) {
+    public Suggestion toSuggestion() {
+        return Suggestion.forBook(book_id, title, average_rating, rating_count);
+    }
+}
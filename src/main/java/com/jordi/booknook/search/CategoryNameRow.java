@@ -0,0 +1,11 @@
+package com.jordi.booknook.search;
+
+public record CategoryNameRow(
+        Long category_id,
+        String name,
+        Long book_count
+) {
+    public Suggestion toSuggestion() {
+        return Suggestion.forCategory(category_id, name, book_count);
+    }
+}
@@ -0,0 +1,12 @@
+package com.jordi.booknook.search;
+
+import java.util.List;
+import java.util.Map;
+
+public record FacetResult(
+        List<Long> book_ids,
+        int total,
+        Map<Long, Integer> category_counts,
+        List<PriceFacet> prices
+) {
+}
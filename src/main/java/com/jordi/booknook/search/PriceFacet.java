@@ -0,0 +1,11 @@
+package com.jordi.booknook.search;
+
+import java.math.BigDecimal;
+
+// A null max_price is an open ended bucket.
+public record PriceFacet(
+        BigDecimal min_price,
+        BigDecimal max_price,
+        int count
+) {
+}
@@ -0,0 +1,9 @@
+package com.jordi.booknook.search;
+
+import java.util.List;
+
+public record SearchResult(
+        List<Long> book_ids,
+        int total
+) {
+}
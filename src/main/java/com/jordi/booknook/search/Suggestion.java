@@ -0,0 +1,24 @@
+package com.jordi.booknook.search;
+
+public record Suggestion(
+        Type type,
+        Long id,
+        String text,
+        double score
+) {
+    public enum Type {
+        BOOK,
+        CATEGORY
+    }
+
+    // Books rank by their average rating, weighted by how many people rated them.
+    public static Suggestion forBook(Long book_id, String title, Double average_rating, Long rating_count) {
+        double average = average_rating == null ? 0.0 : average_rating;
+        long count = rating_count == null ? 0 : rating_count;
+        return new Suggestion(Type.BOOK, book_id, title, average * Math.log1p(count));
+    }
+
+    public static Suggestion forCategory(Long category_id, String name, Long book_count) {
+        return new Suggestion(Type.CATEGORY, category_id, name, Math.log1p(book_count == null ? 0 : book_count));
+    }
+}
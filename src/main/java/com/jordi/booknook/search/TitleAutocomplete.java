@@ -0,0 +1,366 @@
+package com.jordi.booknook.search;
+
+import com.jordi.booknook.events.BookChangedEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Prefix autocomplete over normalized book titles and category names.
+ *
+ * Keys are stored in a radix tree, so chains of single-child nodes collapse into one edge.
+ * Every node keeps the best suggestions found anywhere below it, which makes a lookup cost
+ * only the length of the prefix; inserts and removals refresh that cache along their path.
+ */
+@Component
+public class TitleAutocomplete {
+    public static final int MAX_SUGGESTIONS = 10;
+
+    private static final Suggestion[] NO_SUGGESTIONS = new Suggestion[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final Comparator<Suggestion> RANKING = Comparator
+            .comparingDouble(Suggestion::score).reversed()
+            .thenComparing(Suggestion::text)
+            .thenComparing(Suggestion::id);
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Node root = new Node("");
+    private final Map<String, String> keys = new HashMap<>();
+    private Set<String> changedWhileBuilding;
+    private volatile boolean ready = false;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Loads the given suggestions. Entries changed while the load is running are
+     * skipped, since the change already left the tree in its newest state.
+     */
+    public void rebuild(Stream<Suggestion> suggestions) {
+        lock.writeLock().lock();
+        try {
+            changedWhileBuilding = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        suggestions.forEach(suggestion -> {
+            lock.writeLock().lock();
+            try {
+                if (!changedWhileBuilding.contains(entryId(suggestion.type(), suggestion.id()))) {
+                    putLocked(suggestion);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+
+        lock.writeLock().lock();
+        try {
+            changedWhileBuilding = null;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void put(Suggestion suggestion) {
+        lock.writeLock().lock();
+        try {
+            markChanged(suggestion.type(), suggestion.id());
+            putLocked(suggestion);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Suggestion.Type type, Long id) {
+        lock.writeLock().lock();
+        try {
+            markChanged(type, id);
+            removeLocked(type, id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String key = TextNormalizer.normalize(prefix);
+        if (key.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            int depth = 0;
+
+            while (depth < key.length()) {
+                int index = node.childIndex(key.charAt(depth));
+                if (index < 0) {
+                    return List.of();
+                }
+
+                Node child = node.children[index];
+                int remaining = key.length() - depth;
+
+                // The prefix may end halfway through an edge, every key below it still matches.
+                if (remaining <= child.label.length()) {
+                    return child.label.startsWith(key.substring(depth)) ? child.top(limit) : List.of();
+                }
+                if (!key.startsWith(child.label, depth)) {
+                    return List.of();
+                }
+
+                depth += child.label.length();
+                node = child;
+            }
+
+            return node.top(limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rough heap footprint of the tree, assuming compressed object pointers.
+     */
+    public AutocompleteStats stats() {
+        lock.readLock().lock();
+        try {
+            long[] totals = new long[2];
+            measure(root, totals);
+            return new AutocompleteStats(keys.size(), (int) totals[0], totals[1]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        if (event.change() == BookChangedEvent.Change.REMOVED) {
+            remove(Suggestion.Type.BOOK, event.book().getBook_id());
+        } else {
+            put(Suggestion.forBook(event.book().getBook_id(), event.book().getTitle(),
+                    event.book().getAverage_rating(), event.book().getRating_count()));
+        }
+    }
+
+    private void markChanged(Suggestion.Type type, Long id) {
+        if (changedWhileBuilding != null) {
+            changedWhileBuilding.add(entryId(type, id));
+        }
+    }
+
+    private void putLocked(Suggestion suggestion) {
+        removeLocked(suggestion.type(), suggestion.id());
+
+        String key = suggestion.text() == null ? "" : TextNormalizer.normalize(suggestion.text());
+        if (key.isEmpty()) {
+            return;
+        }
+
+        insert(root, key, 0, suggestion);
+        keys.put(entryId(suggestion.type(), suggestion.id()), key);
+    }
+
+    private void removeLocked(Suggestion.Type type, Long id) {
+        String key = keys.remove(entryId(type, id));
+        if (key != null) {
+            delete(root, key, 0, type, id);
+        }
+    }
+
+    private static String entryId(Suggestion.Type type, Long id) {
+        return type.name() + ":" + id;
+    }
+
+    private static void insert(Node node, String key, int depth, Suggestion suggestion) {
+        if (depth == key.length()) {
+            node.terminals = Arrays.copyOf(node.terminals, node.terminals.length + 1);
+            node.terminals[node.terminals.length - 1] = suggestion;
+            node.refreshTop();
+            return;
+        }
+
+        int index = node.childIndex(key.charAt(depth));
+        if (index < 0) {
+            Node leaf = new Node(key.substring(depth));
+            leaf.terminals = new Suggestion[]{suggestion};
+            leaf.refreshTop();
+            node.addChild(-index - 1, leaf);
+            node.refreshTop();
+            return;
+        }
+
+        Node child = node.children[index];
+        int common = commonPrefixLength(child.label, key, depth);
+
+        if (common < child.label.length()) {
+            Node split = new Node(child.label.substring(0, common));
+            child.label = child.label.substring(common);
+            split.children = new Node[]{child};
+            split.refreshTop();
+            node.children[index] = split;
+            child = split;
+        }
+
+        insert(child, key, depth + common, suggestion);
+        node.refreshTop();
+    }
+
+    private static boolean delete(Node node, String key, int depth, Suggestion.Type type, Long id) {
+        if (depth == key.length()) {
+            return node.removeTerminal(type, id);
+        }
+
+        int index = node.childIndex(key.charAt(depth));
+        if (index < 0) {
+            return false;
+        }
+
+        Node child = node.children[index];
+        if (!key.startsWith(child.label, depth) || !delete(child, key, depth + child.label.length(), type, id)) {
+            return false;
+        }
+
+        if (child.terminals.length == 0 && child.children.length == 0) {
+            node.removeChild(index);
+        } else if (child.terminals.length == 0 && child.children.length == 1) {
+            // Keep the tree compressed: a node with no entries and one child becomes part of the edge.
+            Node only = child.children[0];
+            only.label = child.label + only.label;
+            node.children[index] = only;
+        }
+
+        node.refreshTop();
+        return true;
+    }
+
+    private static int commonPrefixLength(String label, String key, int depth) {
+        int max = Math.min(label.length(), key.length() - depth);
+        int length = 0;
+        while (length < max && label.charAt(length) == key.charAt(depth + length)) {
+            length++;
+        }
+        return length;
+    }
+
+    private static void measure(Node node, long[] totals) {
+        totals[0]++;
+        // Node header and fields, its label and its three arrays.
+        totals[1] += 32;
+        totals[1] += stringBytes(node.label);
+        totals[1] += arrayBytes(node.children.length);
+        totals[1] += arrayBytes(node.terminals.length);
+        totals[1] += arrayBytes(node.top.length);
+
+        for (Suggestion suggestion : node.terminals) {
+            // Record header and fields, plus the boxed id and the original text.
+            totals[1] += 32 + 16 + stringBytes(suggestion.text());
+        }
+        for (Node child : node.children) {
+            measure(child, totals);
+        }
+    }
+
+    private static long stringBytes(String value) {
+        return value.isEmpty() ? 0 : 24 + align(16 + value.length());
+    }
+
+    private static long arrayBytes(int length) {
+        return length == 0 ? 0 : align(16 + 4L * length);
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    private static final class Node {
+        private String label;
+        private Node[] children = NO_CHILDREN;
+        private Suggestion[] terminals = NO_SUGGESTIONS;
+        private Suggestion[] top = NO_SUGGESTIONS;
+
+        Node(String label) {
+            this.label = label;
+        }
+
+        // Children are kept sorted by the first character of their label.
+        int childIndex(char first) {
+            int low = 0;
+            int high = children.length - 1;
+
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                char current = children[mid].label.charAt(0);
+
+                if (current < first) {
+                    low = mid + 1;
+                } else if (current > first) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+
+            return -(low + 1);
+        }
+
+        void addChild(int position, Node child) {
+            Node[] grown = new Node[children.length + 1];
+            System.arraycopy(children, 0, grown, 0, position);
+            grown[position] = child;
+            System.arraycopy(children, position, grown, position + 1, children.length - position);
+            children = grown;
+        }
+
+        void removeChild(int position) {
+            Node[] shrunk = new Node[children.length - 1];
+            System.arraycopy(children, 0, shrunk, 0, position);
+            System.arraycopy(children, position + 1, shrunk, position, children.length - position - 1);
+            children = shrunk.length == 0 ? NO_CHILDREN : shrunk;
+        }
+
+        boolean removeTerminal(Suggestion.Type type, Long id) {
+            for (int i = 0; i < terminals.length; i++) {
+                if (terminals[i].type() == type && terminals[i].id().equals(id)) {
+                    Suggestion[] shrunk = new Suggestion[terminals.length - 1];
+                    System.arraycopy(terminals, 0, shrunk, 0, i);
+                    System.arraycopy(terminals, i + 1, shrunk, i, terminals.length - i - 1);
+                    terminals = shrunk.length == 0 ? NO_SUGGESTIONS : shrunk;
+                    refreshTop();
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // Children already hold their own best entries, so only those need to be merged.
+        void refreshTop() {
+            List<Suggestion> candidates = new ArrayList<>(Arrays.asList(terminals));
+            for (Node child : children) {
+                candidates.addAll(Arrays.asList(child.top));
+            }
+
+            candidates.sort(RANKING);
+            int size = Math.min(candidates.size(), MAX_SUGGESTIONS);
+            top = size == 0 ? NO_SUGGESTIONS : candidates.subList(0, size).toArray(NO_SUGGESTIONS);
+        }
+
+        List<Suggestion> top(int limit) {
+            return List.of(Arrays.copyOf(top, Math.min(limit, top.length)));
+        }
+    }
+}
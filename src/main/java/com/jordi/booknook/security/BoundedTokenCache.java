@@ -0,0 +1,105 @@
+package com.jordi.booknook.security;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.microsoft.aad.msal4j.ITokenCacheAccessAspect;
+import com.microsoft.aad.msal4j.ITokenCacheAccessContext;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the MSAL token cache of a long-lived client application to the most recently
+ * signed-in accounts.
+ *
+ * MSAL's in-memory cache grows with every account that signs in and is never trimmed.
+ * Once it may hold more than maxAccounts, the serialized cache is cut down to the half of
+ * them whose newest access token was cached last, and loaded back in place of the full one.
+ * Each write adds at most one account, so the cache is only serialized again after another
+ * maxAccounts / 2 logins instead of on every one.
+ */
+public class BoundedTokenCache implements ITokenCacheAccessAspect {
+    private static final List<String> SECTIONS = List.of("Account", "AccessToken", "RefreshToken", "IdToken");
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final int maxAccounts;
+    private final int keptAccounts;
+
+    // The accounts kept by the last trim plus one for every write since.
+    private int accountsAtMost;
+
+    public BoundedTokenCache(int maxAccounts) {
+        this.maxAccounts = maxAccounts;
+        this.keptAccounts = Math.max(maxAccounts / 2, 1);
+    }
+
+    @Override
+    public void beforeCacheAccess(ITokenCacheAccessContext context) {
+    }
+
+    /*
+     * A login that writes between serialize and deserialize can lose its cached tokens. Password
+     * logins never read them back, so that only costs a silent refresh nobody asks for.
+     */
+    @Override
+    public synchronized void afterCacheAccess(ITokenCacheAccessContext context) {
+        if (!context.hasCacheChanged() || ++accountsAtMost <= maxAccounts) {
+            return;
+        }
+
+        String trimmed = trim(context.tokenCache().serialize());
+        if (trimmed != null) {
+            context.tokenCache().deserialize(trimmed);
+        }
+    }
+
+    // Returns null when the cache is already within bounds.
+    String trim(String serialized) {
+        // If the cache can't be read it is left alone until maxAccounts more writes.
+        accountsAtMost = 0;
+
+        try {
+            JsonNode cache = MAPPER.readTree(serialized);
+            Map<String, Long> lastCachedAt = new HashMap<>();
+
+            cache.path("AccessToken").forEach(token -> lastCachedAt.merge(
+                    token.path("home_account_id").asText(), token.path("cached_at").asLong(), Math::max));
+            cache.path("Account").forEach(account ->
+                    lastCachedAt.putIfAbsent(account.path("home_account_id").asText(), 0L));
+
+            if (lastCachedAt.size() <= maxAccounts) {
+                accountsAtMost = lastCachedAt.size();
+                return null;
+            }
+
+            Set<String> kept = lastCachedAt.entrySet().stream()
+                    .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()))
+                    .limit(keptAccounts)
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toSet());
+
+            for (String section : SECTIONS) {
+                if (cache.get(section) instanceof ObjectNode entries) {
+                    Iterator<JsonNode> iterator = entries.elements();
+                    while (iterator.hasNext()) {
+                        if (!kept.contains(iterator.next().path("home_account_id").asText())) {
+                            iterator.remove();
+                        }
+                    }
+                }
+            }
+
+            accountsAtMost = kept.size();
+            return MAPPER.writeValueAsString(cache);
+        } catch (Exception e) {
+            // Unknown cache layout: leave it as MSAL wrote it rather than break the login.
+            return null;
+        }
+    }
+}
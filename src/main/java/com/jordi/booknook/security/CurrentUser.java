@@ -0,0 +1,16 @@
+package com.jordi.booknook.security;
+
+import com.jordi.booknook.models.UserEntity;
+
+/**
+ * The parts of the authenticated user that services need. It is cached across requests,
+ * so it holds no entity; use UserRepository.getReferenceById when an entity must point to the user.
+ */
+public record CurrentUser(
+        Long user_id,
+        String username
+) {
+    public static CurrentUser from(UserEntity user) {
+        return new CurrentUser(user.getUser_id(), user.getUsername());
+    }
+}
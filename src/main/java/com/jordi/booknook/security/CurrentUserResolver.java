@@ -1,34 +1,86 @@
 package com.jordi.booknook.security;
 
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.jordi.booknook.cache.CacheLoads;
+import com.jordi.booknook.events.UserChangedEvent;
 import com.jordi.booknook.models.UserEntity;
 import com.jordi.booknook.repositories.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
+import java.time.Duration;
 import java.util.Optional;
+import java.util.function.Supplier;
 
+/**
+ * Resolves the local profile of the authenticated caller.
+ *
+ * The identity key of the token maps to the user id and username through a bounded cache,
+ * so a warm request doesn't query the users table at all. The result is also kept on the
+ * request, which makes repeated calls within one request free. Entries are dropped when
+ * the user is updated or deleted.
+ */
 @Component
 public class CurrentUserResolver {
+    private static final String REQUEST_ATTRIBUTE = CurrentUserResolver.class.getName() + ".currentUser";
+
     private final UserRepository users;
+    private final AsyncCache<String, CurrentUser> cache;
+
+    public CurrentUserResolver(UserRepository users,
+                               @Value("${booknook.cache.users.max-size:10000}") long maxSize,
+                               @Value("${booknook.cache.users.ttl:5m}") Duration ttl) {
+        this.users = users;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .buildAsync();
+    }
+
+    public CurrentUser requireCurrentUser() {
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        if (request != null && request.getAttribute(REQUEST_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) instanceof CurrentUser user) {
+            return user;
+        }
+
+        CurrentUser user = resolve(SecurityContextHolder.getContext().getAuthentication());
 
-    public CurrentUserResolver(UserRepository users) { this.users = users; }
+        if (request != null) {
+            request.setAttribute(REQUEST_ATTRIBUTE, user, RequestAttributes.SCOPE_REQUEST);
+        }
+
+        return user;
+    }
 
-    public UserEntity requireCurrentUser() {
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        cache.synchronous().asMap().values().removeIf(user -> user.user_id().equals(event.user_id()));
+    }
 
+    private CurrentUser resolve(Authentication auth) {
         if (auth instanceof org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken jat) {
             var jwt = (org.springframework.security.oauth2.jwt.Jwt) jat.getPrincipal();
             String key = Optional.ofNullable(jwt.getClaimAsString("oid")).orElse(jwt.getSubject());
-            return users.findByAuthSub(key)
-                    .orElseThrow(() -> new IllegalStateException("Local profile not found for authSub=" + key));
+            return cached("sub:" + key, () -> users.findByAuthSub(key)
+                    .orElseThrow(() -> new IllegalStateException("Local profile not found for authSub=" + key)));
         }
 
         if (auth.getPrincipal() instanceof UserDetailsImplementation udi) {
-            return users.findByUsername(udi.getUsername())
-                    .orElseThrow(() -> new IllegalStateException("Local profile not found for username=" + udi.getUsername()));
+            return cached("username:" + udi.getUsername(), () -> users.findByUsername(udi.getUsername())
+                    .orElseThrow(() -> new IllegalStateException("Local profile not found for username=" + udi.getUsername())));
         }
 
         throw new IllegalStateException("Unsupported authentication principal: " + auth.getPrincipal());
     }
+
+    // A missing profile throws out of the loader, so it is never cached.
+    private CurrentUser cached(String key, Supplier<UserEntity> loader) {
+        return CacheLoads.getOrLoad(cache, key, ignored -> CurrentUser.from(loader.get()));
+    }
 }
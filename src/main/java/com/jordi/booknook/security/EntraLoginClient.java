@@ -0,0 +1,144 @@
+package com.jordi.booknook.security;
+
+import com.jordi.booknook.payload.response.LoginLatencyResponse;
+import com.microsoft.aad.msal4j.IAuthenticationResult;
+import com.microsoft.aad.msal4j.IHttpClient;
+import com.microsoft.aad.msal4j.PublicClientApplication;
+import com.microsoft.aad.msal4j.UserNamePasswordParameters;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.MalformedURLException;
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Username/password (ROPC) sign-in against Entra ID through one long-lived MSAL client.
+ *
+ * PublicClientApplication is thread-safe and keeps the authority metadata it discovers,
+ * so it is built once instead of per login. Token requests run on a small dedicated pool
+ * and callers get a future, which lets the servlet thread go back to the pool meanwhile.
+ */
+@Component
+public class EntraLoginClient {
+    private final PublicClientApplication application;
+    private final ExecutorService executor;
+    private final Set<String> scopes;
+    private final Duration timeout;
+
+    private final LongAdder logins = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    @Autowired
+    public EntraLoginClient(@Value("${azure.ropc.client-id}") String clientId,
+                            @Value("${azure.ropc.authority:https://login.microsoftonline.com/${azure.tenant-id}/}") String authority,
+                            @Value("${azure.api-app-id}") String apiAppId,
+                            @Value("${booknook.auth.login.threads:8}") int threads,
+                            @Value("${booknook.auth.login.timeout:15s}") Duration timeout,
+                            @Value("${booknook.auth.token-cache.max-accounts:1000}") int maxCachedAccounts) throws MalformedURLException {
+        this(clientId, authority, apiAppId, threads, timeout, maxCachedAccounts, null);
+    }
+
+    /**
+     * @param httpClient replaces MSAL's HTTP client, so tests can answer the discovery and
+     *                   token requests themselves; null uses the default one.
+     */
+    public EntraLoginClient(String clientId, String authority, String apiAppId, int threads, Duration timeout,
+                            int maxCachedAccounts, IHttpClient httpClient) throws MalformedURLException {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(threads * 50),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "entra-login-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        this.executor = pool;
+
+        PublicClientApplication.Builder builder = PublicClientApplication.builder(clientId)
+                .authority(authority)
+                .executorService(executor)
+                .setTokenCacheAccessAspect(new BoundedTokenCache(maxCachedAccounts));
+        if (httpClient != null) {
+            builder.httpClient(httpClient);
+        }
+        this.application = builder.build();
+
+        this.scopes = new LinkedHashSet<>(List.of(
+                "api://" + apiAppId + "/books.read",
+                "api://" + apiAppId + "/books.write",
+                "openid", "profile", "email", "offline_access"
+        ));
+        this.timeout = timeout;
+    }
+
+    public Set<String> scopes() {
+        return scopes;
+    }
+
+    /**
+     * Always goes to the token endpoint: a cached token must never stand in for
+     * checking the password.
+     */
+    public CompletableFuture<IAuthenticationResult> login(String username, char[] password) {
+        UserNamePasswordParameters params = UserNamePasswordParameters
+                .builder(scopes, username, password)
+                .build();
+
+        long start = System.nanoTime();
+        inFlight.incrementAndGet();
+
+        CompletableFuture<IAuthenticationResult> result;
+        try {
+            result = application.acquireToken(params);
+        } catch (RuntimeException e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+
+        return result
+                .orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((ignored, error) -> record(System.nanoTime() - start, error != null));
+    }
+
+    public LoginLatencyResponse stats() {
+        long count = logins.sum();
+        double average = count == 0 ? 0 : totalNanos.sum() / (double) count / 1_000_000.0;
+
+        return new LoginLatencyResponse(count, failures.sum(), inFlight.get(), average, maxNanos.get() / 1_000_000.0);
+    }
+
+    public int cachedAccounts() {
+        return application.getAccounts().join().size();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void record(long nanos, boolean failed) {
+        inFlight.decrementAndGet();
+        logins.increment();
+        if (failed) {
+            failures.increment();
+        }
+        totalNanos.add(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+}
@@ -3,7 +3,10 @@ package com.jordi.booknook.security;
 import com.azure.identity.ClientSecretCredential;
 import com.azure.identity.ClientSecretCredentialBuilder;
 import com.microsoft.graph.authentication.TokenCredentialAuthProvider;
+import com.microsoft.graph.httpcore.HttpClients;
 import com.microsoft.graph.requests.GraphServiceClient;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -17,6 +20,7 @@ public class GraphConfig {
     @Value("${azure.tenant-id}")        String tenantId;
     @Value("${azure.admin.client-id}")  String adminClientId;
     @Value("${azure.admin.client-secret}") String adminClientSecret;
+    @Value("${booknook.auth.graph.max-requests:64}") int maxRequests;
 
     @Bean
     public GraphServiceClient<Request> graphClient() {
@@ -32,6 +36,16 @@ public class GraphConfig {
                 cred
         );
 
-        return GraphServiceClient.builder().authenticationProvider(authProvider).buildClient();
+        // Async calls share OkHttp's dispatcher, which runs at most 5 per host by default and
+        // every call goes to graph.microsoft.com. Calls over the limit wait in its queue.
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(maxRequests);
+        dispatcher.setMaxRequestsPerHost(maxRequests);
+
+        OkHttpClient httpClient = HttpClients.createDefault(authProvider).newBuilder()
+                .dispatcher(dispatcher)
+                .build();
+
+        return GraphServiceClient.builder().httpClient(httpClient).buildClient();
     }
 }
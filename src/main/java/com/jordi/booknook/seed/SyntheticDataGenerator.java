@@ -0,0 +1,355 @@
+package com.jordi.booknook.seed;
+
+import com.jordi.booknook.repositories.ShelfRepositoryImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * One-off job that fills an empty database with a synthetic catalog for load and scale
+ * testing. Start the app with booknook.seed.enabled=true and the booknook.seed.* sizes.
+ *
+ * Books and users are drawn with Zipfian popularity, so a few books get most of the reviews
+ * and shelf entries and most shelves hold a handful of books while a few hold hundreds. Every
+ * phase draws from its own random stream derived from the seed, so the same settings always
+ * produce the same rows. Rows are written with explicit ids in JDBC batches, which the MySQL
+ * driver sends as multi-row inserts with rewriteBatchedStatements on.
+ */
+@Component
+@ConditionalOnProperty(name = "booknook.seed.enabled", havingValue = "true")
+public class SyntheticDataGenerator implements ApplicationRunner {
+    private static final Logger log = LoggerFactory.getLogger(SyntheticDataGenerator.class);
+
+    static final int BATCH_SIZE = 1000;
+    static final int MAX_SHELF_BOOKS = 500;
+    static final int MAX_USER_REVIEWS = 2000;
+    static final LocalDateTime FIRST_DAY = LocalDateTime.of(2020, 1, 1, 0, 0);
+    static final long FIVE_YEARS_IN_SECONDS = 5L * 365 * 24 * 60 * 60;
+
+    // Random stream of each phase, the low 32 bits hold the id of the row being generated.
+    private static final long POPULARITY = 1L << 32;
+    private static final long QUALITY = 2L << 32;
+    private static final long CATEGORIES = 3L << 32;
+    private static final long BOOKS = 4L << 32;
+    private static final long USERS = 5L << 32;
+    private static final long SHELVES = 6L << 32;
+    private static final long REVIEWS = 7L << 32;
+
+    private static final String INSERT_REVIEW = "INSERT INTO book_reviews (book_reviews_id, book_id, user_id, rating, " +
+            "review, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    static final String[] GENRES = {
+            "Fantasy", "Science Fiction", "Mystery", "Thriller", "Romance", "Horror", "Historical Fiction",
+            "Biography", "Poetry", "Travel", "Cooking", "History", "Philosophy", "Science", "Self Help",
+            "Young Adult", "Children", "Graphic Novels", "Classics", "Humor"
+    };
+
+    static final String[] WORDS = {
+            "silent", "river", "dragon", "winter", "garden", "shadow", "empire", "letters", "ocean", "night",
+            "kingdom", "stone", "forest", "secret", "glass", "city", "storm", "mirror", "journey", "island",
+            "memory", "house", "fire", "queen", "lost", "summer", "bridge", "wolf", "star", "crown",
+            "salt", "orchard", "harbor", "lantern", "thief", "atlas", "ember", "tide", "wild", "echo"
+    };
+
+    private static final String[] OPINIONS = {
+            "Could not put it down.", "Slow start but worth it.", "Not for me.", "A beautiful read.",
+            "The ending surprised me.", "Too long.", "I will read it again.", "Great characters."
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int books;
+    private final int categories;
+    private final int users;
+    private final int reviews;
+    private final double skew;
+    private final long seed;
+
+    public SyntheticDataGenerator(JdbcTemplate jdbcTemplate,
+                                  @Value("${booknook.seed.books:1000000}") int books,
+                                  @Value("${booknook.seed.categories:200}") int categories,
+                                  @Value("${booknook.seed.users:100000}") int users,
+                                  @Value("${booknook.seed.reviews:5000000}") int reviews,
+                                  @Value("${booknook.seed.skew:1.0}") double skew,
+                                  @Value("${booknook.seed.seed:42}") long seed) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.books = books;
+        this.categories = categories;
+        this.users = users;
+        this.reviews = reviews;
+        this.skew = skew;
+        this.seed = seed;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!jdbcTemplate.queryForList("SELECT book_id FROM books LIMIT 1", Long.class).isEmpty()) {
+            log.warn("Synthetic data not generated, the books table already has rows.");
+            return;
+        }
+
+        long start = System.nanoTime();
+        generate();
+        log.info("Synthetic data generated with {} books, {} users and {} reviews in {} ms.", books, users,
+                reviews, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Writes categories, books with their categories and images, users with their default
+     * shelves and the books on them, and reviews. The tables are expected to be empty.
+     */
+    public void generate() {
+        Popularity popularBooks = new Popularity(books, random(POPULARITY));
+        Popularity activeUsers = new Popularity(users, random(POPULARITY | 1));
+        ZipfDistribution categoryPopularity = new ZipfDistribution(categories, skew);
+
+        // The mean rating of each book, reviews scatter around it.
+        float[] quality = new float[books + 1];
+        SplittableRandom qualityRandom = random(QUALITY);
+        for (int book = 1; book <= books; book++) {
+            quality[book] = (float) (2.0 + qualityRandom.nextDouble() * 2.8);
+        }
+
+        // Reviews are generated twice from the same streams: once here to fill the book
+        // aggregates, and again when they are written after the books and users.
+        int[] reviewsByUser = activeUsers.counts(reviews, Math.max(1, Math.min(MAX_USER_REVIEWS, books / 10)));
+        // Reviews per book and number of stars, five slots per book.
+        int[] ratingHistogram = new int[(books + 1) * 5];
+        forEachReview(reviewsByUser, popularBooks, quality, review -> {
+            int book = ((Long) review[1]).intValue();
+            ratingHistogram[book * 5 + (Integer) review[3] - 1]++;
+        });
+
+        writeCategories();
+        writeBooks(categoryPopularity, ratingHistogram);
+        writeUsers(popularBooks);
+
+        List<Object[]> rows = new ArrayList<>(BATCH_SIZE);
+        forEachReview(reviewsByUser, popularBooks, quality, review -> {
+            rows.add(review);
+            if (rows.size() == BATCH_SIZE) {
+                insert(INSERT_REVIEW, rows);
+            }
+        });
+        insert(INSERT_REVIEW, rows);
+    }
+
+    private void writeCategories() {
+        List<Object[]> rows = new ArrayList<>(BATCH_SIZE);
+        SplittableRandom random = random(CATEGORIES);
+
+        for (long category = 1; category <= categories; category++) {
+            int round = (int) ((category - 1) / GENRES.length);
+            String name = GENRES[(int) ((category - 1) % GENRES.length)] + (round == 0 ? "" : " " + (round + 1));
+            Timestamp created = timestamp(random);
+            rows.add(new Object[]{category, name, created, created});
+            if (rows.size() == BATCH_SIZE) {
+                insert("INSERT INTO category_entity (category_id, name, created_at, updated_at) VALUES (?, ?, ?, ?)", rows);
+            }
+        }
+        insert("INSERT INTO category_entity (category_id, name, created_at, updated_at) VALUES (?, ?, ?, ?)", rows);
+    }
+
+    // Every book gets one to three categories, drawn by category popularity, and one to three images.
+    private void writeBooks(ZipfDistribution categoryPopularity, int[] ratingHistogram) {
+        List<Object[]> bookRows = new ArrayList<>(BATCH_SIZE);
+        List<Object[]> categoryRows = new ArrayList<>(BATCH_SIZE * 3);
+        List<Object[]> imageRows = new ArrayList<>(BATCH_SIZE * 3);
+        long image = 0;
+
+        for (int book = 1; book <= books; book++) {
+            SplittableRandom random = random(BOOKS | book);
+            Timestamp created = timestamp(random);
+            String title = title(random);
+            BigDecimal price = BigDecimal.valueOf(Math.min(99.99, Math.max(2.99, Math.exp(Math.log(15) + random.nextGaussian() * 0.5))))
+                    .setScale(2, RoundingMode.HALF_UP);
+            long[] stars = new long[5];
+            long ratingCount = 0;
+            long ratingSum = 0;
+            for (int rating = 1; rating <= 5; rating++) {
+                stars[rating - 1] = ratingHistogram[book * 5 + rating - 1];
+                ratingCount += stars[rating - 1];
+                ratingSum += rating * stars[rating - 1];
+            }
+            double average = ratingCount == 0 ? 0.0 : (double) ratingSum / ratingCount;
+
+            bookRows.add(new Object[]{(long) book, title, "A story about " + WORDS[random.nextInt(WORDS.length)] + " and "
+                    + WORDS[random.nextInt(WORDS.length)] + ".", "cover-" + book + ".jpg", price,
+                    ratingCount, ratingSum, average, stars[0], stars[1], stars[2], stars[3], stars[4], created, created});
+
+            Set<Integer> bookCategories = new HashSet<>();
+            int wanted = Math.min(categories, 1 + random.nextInt(3));
+            while (bookCategories.size() < wanted) {
+                bookCategories.add(categoryPopularity.sample(random));
+            }
+            for (int category : bookCategories) {
+                categoryRows.add(new Object[]{(long) book, (long) category});
+            }
+
+            for (int i = 1 + random.nextInt(3); i > 0; i--) {
+                imageRows.add(new Object[]{++image, (long) book, "image-" + image + ".jpg", created, created});
+            }
+
+            // Categories and images point at the books, so the books of a chunk go first.
+            if (bookRows.size() == BATCH_SIZE || book == books) {
+                insert("INSERT INTO books (book_id, title, description, cover, price, rating_count, rating_sum, average_rating, " +
+                        "rating_1_count, rating_2_count, rating_3_count, rating_4_count, rating_5_count, created_at, updated_at) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", bookRows);
+                insert("INSERT INTO book_category (book_id, category_id) VALUES (?, ?)", categoryRows);
+                insert("INSERT INTO book_images (book_images_id, book_id, media, created_at, updated_at) VALUES (?, ?, ?, ?, ?)", imageRows);
+            }
+        }
+    }
+
+    // Every user gets the default shelves, each holding a Zipfian number of popular-skewed books.
+    private void writeUsers(Popularity popularBooks) {
+        List<String[]> defaultShelves = ShelfRepositoryImpl.DEFAULT_SHELVES;
+        ZipfDistribution shelfSizes = new ZipfDistribution(Math.min(MAX_SHELF_BOOKS, books) + 1, 2.0);
+
+        List<Object[]> userRows = new ArrayList<>(BATCH_SIZE);
+        List<Object[]> shelfRows = new ArrayList<>(BATCH_SIZE * defaultShelves.size());
+        List<Object[]> shelfBookRows = new ArrayList<>(BATCH_SIZE * 4);
+
+        for (int user = 1; user <= users; user++) {
+            SplittableRandom random = random(USERS | user);
+            userRows.add(new Object[]{(long) user, "reader" + user, "reader" + user + "@booknook.test"});
+
+            for (int i = 0; i < defaultShelves.size(); i++) {
+                long shelf = (long) (user - 1) * defaultShelves.size() + i + 1;
+                Timestamp created = timestamp(random);
+                String[] defaults = defaultShelves.get(i);
+                shelfRows.add(new Object[]{shelf, (long) user, defaults[0], defaults[1], defaults[2], created, created});
+
+                SplittableRandom shelfRandom = random(SHELVES | shelf);
+                for (int book : popularBooks.distinct(shelfSizes.sample(shelfRandom) - 1, shelfRandom)) {
+                    shelfBookRows.add(new Object[]{shelf, (long) book});
+                }
+            }
+
+            if (userRows.size() == BATCH_SIZE || user == users) {
+                insert("INSERT INTO users (user_id, username, email) VALUES (?, ?, ?)", userRows);
+                insert("INSERT INTO shelves (shelf_id, user_id, name, image, description, public_shelf, created_at, updated_at) " +
+                        "VALUES (?, ?, ?, ?, ?, TRUE, ?, ?)", shelfRows);
+                insert("INSERT INTO book_shelf (shelf_id, book_id) VALUES (?, ?)", shelfBookRows);
+            }
+        }
+    }
+
+    // A user reviews a book at most once. Rows are book_reviews_id, book_id, user_id, rating, review and timestamps.
+    private void forEachReview(int[] reviewsByUser, Popularity popularBooks, float[] quality, ReviewConsumer consumer) {
+        long id = 0;
+
+        for (int user = 1; user <= users; user++) {
+            if (reviewsByUser[user] == 0) {
+                continue;
+            }
+
+            SplittableRandom random = random(REVIEWS | user);
+            for (int book : popularBooks.distinct(reviewsByUser[user], random)) {
+                int rating = (int) Math.max(1, Math.min(5, Math.round(quality[book] + random.nextGaussian() * 0.9)));
+                Timestamp created = timestamp(random);
+                consumer.accept(new Object[]{++id, (long) book, (long) user, rating,
+                        OPINIONS[random.nextInt(OPINIONS.length)], created, created});
+            }
+        }
+    }
+
+    private void insert(String sql, List<Object[]> rows) {
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(sql, rows);
+            rows.clear();
+        }
+    }
+
+    private SplittableRandom random(long stream) {
+        return new SplittableRandom(seed ^ (stream * 0x9E3779B97F4A7C15L));
+    }
+
+    private static Timestamp timestamp(SplittableRandom random) {
+        return Timestamp.valueOf(FIRST_DAY.plusSeconds(random.nextLong(FIVE_YEARS_IN_SECONDS)));
+    }
+
+    private static String title(SplittableRandom random) {
+        StringBuilder title = new StringBuilder();
+        for (int i = 2 + random.nextInt(3); i > 0; i--) {
+            String word = WORDS[random.nextInt(WORDS.length)];
+            title.append(title.isEmpty() ? Character.toUpperCase(word.charAt(0)) + word.substring(1) : " " + word);
+        }
+        return title.toString();
+    }
+
+    @FunctionalInterface
+    private interface ReviewConsumer {
+        void accept(Object[] review);
+    }
+
+    /**
+     * Zipfian popularity over the ids 1..size. Ranks are shuffled onto ids so the most popular
+     * rows are spread over the table instead of being the oldest ones.
+     */
+    private final class Popularity {
+        private final ZipfDistribution ranks;
+        private final int[] idByRank;
+
+        Popularity(int size, SplittableRandom random) {
+            this.ranks = new ZipfDistribution(size, skew);
+            this.idByRank = new int[size + 1];
+            for (int rank = 1; rank <= size; rank++) {
+                idByRank[rank] = rank;
+            }
+            for (int rank = size; rank > 1; rank--) {
+                int other = 1 + random.nextInt(rank);
+                int id = idByRank[rank];
+                idByRank[rank] = idByRank[other];
+                idByRank[other] = id;
+            }
+        }
+
+        int sample(SplittableRandom random) {
+            return idByRank[ranks.sample(random)];
+        }
+
+        // How many of the samples land on each id. An id that already has max samples is drawn
+        // again, so the total only falls short when every id is full.
+        int[] counts(int samples, int max) {
+            int[] counts = new int[ranks.size() + 1];
+            SplittableRandom random = SyntheticDataGenerator.this.random(POPULARITY | 2);
+            long tries = (long) samples * 20;
+            for (int placed = 0; placed < samples && tries > 0; tries--) {
+                int id = sample(random);
+                if (counts[id] < max) {
+                    counts[id]++;
+                    placed++;
+                }
+            }
+            return counts;
+        }
+
+        // Up to count different ids in the order they were drawn, giving up on the long tail after enough tries.
+        List<Integer> distinct(int count, SplittableRandom random) {
+            Set<Integer> seen = new HashSet<>();
+            List<Integer> ids = new ArrayList<>(count);
+            for (int tries = 0; ids.size() < count && tries < count * 20; tries++) {
+                int id = sample(random);
+                if (seen.add(id)) {
+                    ids.add(id);
+                }
+            }
+            return ids;
+        }
+    }
+}
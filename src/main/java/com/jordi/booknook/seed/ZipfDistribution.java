@@ -0,0 +1,44 @@
+package com.jordi.booknook.seed;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Zipf distribution over the ranks 1..size, where rank k is drawn with a probability
+ * proportional to 1 / k^exponent. Sampling is a binary search over the precomputed
+ * cumulative probabilities.
+ */
+public final class ZipfDistribution {
+    private final double[] cumulative;
+
+    public ZipfDistribution(int size, double exponent) {
+        if (size < 1) {
+            throw new IllegalArgumentException("A Zipf distribution needs at least one rank.");
+        }
+
+        this.cumulative = new double[size];
+        double total = 0;
+        for (int rank = 1; rank <= size; rank++) {
+            total += 1 / Math.pow(rank, exponent);
+            cumulative[rank - 1] = total;
+        }
+        for (int i = 0; i < size; i++) {
+            cumulative[i] /= total;
+        }
+    }
+
+    public int size() {
+        return cumulative.length;
+    }
+
+    /**
+     * @return - A rank from 1 to size, 1 being the most likely one.
+     */
+    public int sample(SplittableRandom random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return Math.min(index, cumulative.length - 1) + 1;
+    }
+}
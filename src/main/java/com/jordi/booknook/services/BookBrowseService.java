@@ -0,0 +1,65 @@
+package com.jordi.booknook.services;
+
+import com.jordi.booknook.exceptions.IndexNotReadyException;
+import com.jordi.booknook.models.CategoryEntity;
+import com.jordi.booknook.payload.response.BrowseResponse;
+import com.jordi.booknook.payload.response.CategoryFacet;
+import com.jordi.booknook.repositories.BookRepository;
+import com.jordi.booknook.repositories.CategoryRepository;
+import com.jordi.booknook.search.BookFacetIndex;
+import com.jordi.booknook.search.FacetResult;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Faceted browsing of the catalog by category and price.
+ *
+ * Filtering and counting happen in the BookFacetIndex; the database only serves the views
+ * of the books on the requested page, and the category names come from the second-level
+ * cache. A size of 0 returns the counts alone.
+ */
+@Service
+public class BookBrowseService {
+    private final BookFacetIndex facetIndex;
+    private final BookRepository bookRepository;
+    private final CategoryRepository categoryRepository;
+
+    public BookBrowseService(BookFacetIndex facetIndex, BookRepository bookRepository,
+                             CategoryRepository categoryRepository) {
+        this.facetIndex = facetIndex;
+        this.bookRepository = bookRepository;
+        this.categoryRepository = categoryRepository;
+    }
+
+    @Transactional(readOnly = true)
+    public BrowseResponse browse(List<Long> category_ids, BigDecimal min_price, BigDecimal max_price,
+                                 Integer page, Integer size) {
+        // Loaded after startup. Until then every browse would count no books in any facet.
+        if (!facetIndex.isReady()) {
+            throw new IndexNotReadyException("The catalog facets are still being counted, try again in a moment.");
+        }
+
+        int pageSize = size != null && size == 0 ? 0 : BookService.clampPageSize(size);
+        // A large page number would overflow an int offset, any offset past the last book is an empty page.
+        long offset = (long) (page == null ? 0 : Math.max(page, 0)) * pageSize;
+
+        FacetResult result = facetIndex.browse(category_ids == null ? List.of() : category_ids,
+                min_price, max_price, (int) Math.min(offset, Integer.MAX_VALUE), pageSize);
+
+        Map<Long, String> names = categoryRepository.findAll()
+                .stream()
+                .collect(Collectors.toMap(CategoryEntity::getCategory_id, CategoryEntity::getName));
+        List<CategoryFacet> categories = result.category_counts().entrySet()
+                .stream()
+                .map(count -> new CategoryFacet(count.getKey(), names.get(count.getKey()), count.getValue()))
+                .toList();
+
+        return new BrowseResponse(bookRepository.findViewsInOrder(result.book_ids()), result.total(),
+                categories, result.prices());
+    }
+}
@@ -1,24 +1,43 @@
 package com.jordi.booknook.services;
 
+import com.jordi.booknook.cache.SingleFlight;
+import com.jordi.booknook.exceptions.InvalidCursorException;
+import com.jordi.booknook.exceptions.InvalidSortException;
+import com.jordi.booknook.events.BookDetailsChangedEvent;
+import com.jordi.booknook.events.BookRatingChangedEvent;
 import com.jordi.booknook.models.BookEntity;
 import com.jordi.booknook.models.BookReviewEntity;
-import com.jordi.booknook.models.UserEntity;
 import com.jordi.booknook.payload.request.NewReviewRequest;
 import com.jordi.booknook.payload.request.UpdateReviewRequest;
+import com.jordi.booknook.payload.response.BookView;
+import com.jordi.booknook.payload.response.CoalescingStatsResponse;
+import com.jordi.booknook.payload.response.CursorPage;
 import com.jordi.booknook.payload.response.NewReviewResponse;
+import com.jordi.booknook.payload.response.RatingHistogram;
+import com.jordi.booknook.payload.response.ReviewView;
 import com.jordi.booknook.payload.response.ReviewsByBookResponse;
 import com.jordi.booknook.payload.response.ReviewsByUserResponse;
+import com.jordi.booknook.payload.response.ReviewsPageResponse;
 import com.jordi.booknook.payload.response.UpdateReviewResponse;
+import com.jordi.booknook.payload.response.UserReviewView;
 import com.jordi.booknook.repositories.BookRepository;
 import com.jordi.booknook.repositories.BookReviewRepository;
 import com.jordi.booknook.repositories.UserRepository;
+import com.jordi.booknook.security.CurrentUser;
 import com.jordi.booknook.security.CurrentUserResolver;
 import jakarta.persistence.EntityNotFoundException;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
 
 @Service
 public class BookReviewService {
@@ -26,39 +45,139 @@ public class BookReviewService {
     private final BookRepository bookRepository;
     private final UserRepository userRepository;
     private final CurrentUserResolver currentUser;
+    private final ApplicationEventPublisher eventPublisher;
+    private final SingleFlight<Long, ReviewsByBookResponse> reviewLoads = new SingleFlight<>();
 
-    public BookReviewService(BookReviewRepository bookReviewRepository, BookRepository bookRepository, UserRepository userRepository, CurrentUserResolver currentUserResolver) {
+    public BookReviewService(BookReviewRepository bookReviewRepository, BookRepository bookRepository, UserRepository userRepository, CurrentUserResolver currentUserResolver, ApplicationEventPublisher eventPublisher) {
         this.bookReviewRepository = bookReviewRepository;
         this.bookRepository = bookRepository;
         this.userRepository = userRepository;
         this.currentUser= currentUserResolver;
+        this.eventPublisher = eventPublisher;
     }
 
+    /*
+     * Not transactional: concurrent requests for the same book wait for one load without
+     * holding a connection each, the load runs its queries on the first caller's thread.
+     */
     public ReviewsByBookResponse getReviewsByBook(Long book_id) {
-        Optional<BookEntity> book = bookRepository.findById(book_id);
+        return reviewLoads.execute(book_id, () -> loadReviewsByBook(book_id));
+    }
+
+    public CoalescingStatsResponse getReviewLoadStats() {
+        return reviewLoads.stats();
+    }
+
+    private ReviewsByBookResponse loadReviewsByBook(Long book_id) {
+        Optional<BookView> book = bookRepository.findViewById(book_id);
 
         if (book.isEmpty()){
             throw new EntityNotFoundException("Book not found.");
         }
 
-        List<BookReviewEntity> reviews = bookReviewRepository.findBookReviewEntitiesByBook(book.get());
+        bookRepository.withDetails(List.of(book.get()));
+        List<ReviewView> reviews = bookReviewRepository.findViewsByBook(book_id);
 
         return new ReviewsByBookResponse(book.get(), reviews);
     }
 
-    public ReviewsByUserResponse getReviewsByUser() {
-        UserEntity user = currentUser.requireCurrentUser();
+    /**
+     * @return - A keyset page of the reviews of the book sorted "newest" (the default),
+     * "highest" or "lowest". Equal ratings come newest first by highest and oldest first by
+     * lowest, so both orders are read straight from one index. The first page also carries
+     * the rating histogram, read from the aggregates stored on the book.
+     */
+    @Transactional(readOnly = true)
+    public ReviewsPageResponse getReviewsPage(Long book_id, String sort, String after, Integer limit) {
+        ReviewOrder order = ReviewOrder.from(sort);
+        int pageSize = BookService.clampPageSize(limit);
+        // One extra row tells us whether there is a next page without a COUNT query.
+        Limit rows = Limit.of(pageSize + 1);
+
+        RatingHistogram histogram = null;
+        List<ReviewView> reviews;
+
+        if (after == null || after.isBlank()) {
+            histogram = bookRepository.findRatingHistogram(book_id)
+                    .orElseThrow(() -> new EntityNotFoundException("Book not found."));
+            reviews = switch (order) {
+                case NEWEST -> bookReviewRepository.findNewestByBook(book_id, rows);
+                case HIGHEST -> bookReviewRepository.findHighestByBookAfter(book_id, 6, Long.MAX_VALUE, rows);
+                case LOWEST -> bookReviewRepository.findLowestByBookAfter(book_id, 0, 0L, rows);
+            };
+        } else {
+            // Newest pages continue from a creation date, the others from a rating.
+            String[] keys = KeysetCursor.decode(after, 3);
+            if (!order.name().equals(keys[0])) {
+                throw new InvalidCursorException("Invalid cursor.");
+            }
+            try {
+                long lastReviewId = Long.parseLong(keys[2]);
+                reviews = switch (order) {
+                    case NEWEST -> bookReviewRepository.findNewestByBookBefore(
+                            book_id, LocalDateTime.parse(keys[1]), lastReviewId, rows);
+                    case HIGHEST -> bookReviewRepository.findHighestByBookAfter(
+                            book_id, Integer.parseInt(keys[1]), lastReviewId, rows);
+                    case LOWEST -> bookReviewRepository.findLowestByBookAfter(
+                            book_id, Integer.parseInt(keys[1]), lastReviewId, rows);
+                };
+            } catch (NumberFormatException | DateTimeParseException exception) {
+                throw new InvalidCursorException("Invalid cursor.");
+            }
+        }
+
+        if (reviews.size() <= pageSize) {
+            return new ReviewsPageResponse(histogram, reviews, null);
+        }
+
+        List<ReviewView> page = List.copyOf(reviews.subList(0, pageSize));
+        ReviewView last = page.get(pageSize - 1);
+        String nextCursor = KeysetCursor.encode(order.name(),
+                order == ReviewOrder.NEWEST ? last.created_at() : last.rating(), last.book_reviews_id());
 
-        Optional<UserEntity> authenticatedUser = userRepository.findByUsername(user.getUsername());
+        return new ReviewsPageResponse(histogram, page, nextCursor);
+    }
+
+    @Transactional(readOnly = true)
+    public ReviewsByUserResponse getReviewsByUser() {
+        CurrentUser user = currentUser.requireCurrentUser();
 
-        List<BookReviewEntity> reviews = bookReviewRepository.findBookReviewEntitiesByUser(authenticatedUser.orElseThrow());
+        List<ReviewView> reviews = bookReviewRepository.findViewsByUser(user.user_id());
         return new ReviewsByUserResponse(reviews);
     }
 
+    /**
+     * @return - A keyset page of the reviews of the current user, newest first, each with the
+     * title and cover of its book, read in one query.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<UserReviewView> getReviewsPageByUser(String after, Integer limit) {
+        CurrentUser user = currentUser.requireCurrentUser();
+        int pageSize = BookService.clampPageSize(limit);
+
+        Function<Limit, List<UserReviewView>> reviews;
+        if (after == null || after.isBlank()) {
+            reviews = rows -> bookReviewRepository.findNewestByUser(user.user_id(), rows);
+        } else {
+            String[] keys = KeysetCursor.decode(after, 2);
+            try {
+                LocalDateTime lastCreatedAt = LocalDateTime.parse(keys[0]);
+                long lastReviewId = Long.parseLong(keys[1]);
+                reviews = rows -> bookReviewRepository.findNewestByUserBefore(
+                        user.user_id(), lastCreatedAt, lastReviewId, rows);
+            } catch (NumberFormatException | DateTimeParseException exception) {
+                throw new InvalidCursorException("Invalid cursor.");
+            }
+        }
+
+        return KeysetCursor.page(pageSize, reviews,
+                review -> KeysetCursor.encode(review.created_at(), review.book_reviews_id()));
+    }
+
+    @Transactional
     public NewReviewResponse addReviewByUser(NewReviewRequest newReview) {
-        UserEntity user = currentUser.requireCurrentUser();
+        CurrentUser user = currentUser.requireCurrentUser();
 
-        Optional<UserEntity> authenticatedUser = userRepository.findByUsername(user.getUsername());
         Optional<BookEntity> book = bookRepository.findById(newReview.book_id());
 
         if (book.isEmpty()) {
@@ -66,16 +185,21 @@ public class BookReviewService {
         }
 
         BookReviewEntity newBookReview = bookReviewRepository.saveAndFlush(
-                new BookReviewEntity(book.get(), authenticatedUser.orElseThrow(), newReview.rating(), newReview.review()));
+                new BookReviewEntity(book.get(), userRepository.getReferenceById(user.user_id()), newReview.rating(), newReview.review()));
+
+        bookRepository.addRating(book.get().getBook_id(), newReview.rating());
+        eventPublisher.publishEvent(new BookDetailsChangedEvent(book.get().getBook_id()));
+        eventPublisher.publishEvent(new BookRatingChangedEvent(book.get().getBook_id(), 1, newReview.rating()));
 
         return new NewReviewResponse(newBookReview.getBook_reviews_id(),newBookReview.getBook().getBook_id(),newBookReview.getBook().getTitle(), newBookReview.getRating(), newBookReview.getReview());
     }
 
+    @Transactional
     public UpdateReviewResponse updateReviewById(Long book_reviews_id, UpdateReviewRequest request){
-        UserEntity user = currentUser.requireCurrentUser();
+        CurrentUser user = currentUser.requireCurrentUser();
 
-        Optional<UserEntity> authenticatedUser = userRepository.findByUsername(user.getUsername());
-        Optional<BookReviewEntity> review = bookReviewRepository.findById(book_reviews_id);
+        // The rating read here is the one the aggregates move away from, so it must not change until commit.
+        Optional<BookReviewEntity> review = bookReviewRepository.findByIdForUpdate(book_reviews_id);
 
         if (review.isEmpty()){
             throw new EntityNotFoundException("Review not found.");
@@ -83,11 +207,14 @@ public class BookReviewService {
 
         BookReviewEntity updatedBookReview = review.get();
 
-        if (updatedBookReview.getUser() != authenticatedUser.orElseThrow()){
+        if (!Objects.equals(updatedBookReview.getUser().getUser_id(), user.user_id())){
             throw new AccessDeniedException("Not allowed to update that Book review.");
         }
 
+        int previousRating = updatedBookReview.getRating();
+        int ratingDelta = 0;
         if (request.rating() != null){
+            ratingDelta = request.rating() - previousRating;
             updatedBookReview.setRating(request.rating());
         }
         if (request.review() != null){
@@ -96,6 +223,12 @@ public class BookReviewService {
 
         bookReviewRepository.save(updatedBookReview);
 
+        if (ratingDelta != 0){
+            bookRepository.adjustRating(updatedBookReview.getBook().getBook_id(), previousRating, request.rating());
+            eventPublisher.publishEvent(new BookDetailsChangedEvent(updatedBookReview.getBook().getBook_id()));
+            eventPublisher.publishEvent(new BookRatingChangedEvent(updatedBookReview.getBook().getBook_id(), 0, ratingDelta));
+        }
+
         return new UpdateReviewResponse(
                 updatedBookReview.getBook_reviews_id(),
                 updatedBookReview.getBook().getBook_id(),
@@ -104,4 +237,23 @@ public class BookReviewService {
                 updatedBookReview.getReview()
             );
     }
+
+    private enum ReviewOrder {
+        NEWEST,
+        HIGHEST,
+        LOWEST;
+
+        static ReviewOrder from(String sort) {
+            if (sort == null) {
+                return NEWEST;
+            }
+
+            return switch (sort) {
+                case "newest" -> NEWEST;
+                case "highest" -> HIGHEST;
+                case "lowest" -> LOWEST;
+                default -> throw new InvalidSortException("Sort must be newest, highest or lowest.");
+            };
+        }
+    }
 }
@@ -1,13 +1,22 @@
 package com.jordi.booknook.services;
 
-import com.jordi.booknook.models.BookEntity;
-
+import com.jordi.booknook.cache.BookCache;
+import com.jordi.booknook.cache.SingleFlight;
+import com.jordi.booknook.exceptions.IndexNotReadyException;
 import com.jordi.booknook.payload.request.SortRequest;
+import com.jordi.booknook.payload.response.BookView;
+import com.jordi.booknook.payload.response.CacheStatsResponse;
+import com.jordi.booknook.payload.response.CoalescingStatsResponse;
+import com.jordi.booknook.payload.response.CursorPage;
 import com.jordi.booknook.repositories.BookRepository;
 import com.jordi.booknook.models.UniversalSearch;
-import org.springframework.data.domain.Example;
-import org.springframework.data.domain.ExampleMatcher;
+import com.jordi.booknook.search.AutocompleteStats;
+import com.jordi.booknook.search.BookSearchIndex;
+import com.jordi.booknook.search.Suggestion;
+import com.jordi.booknook.search.TitleAutocomplete;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
 import java.util.List;
@@ -15,41 +24,138 @@ import java.util.Optional;
 
 @Service
 public class BookService {
+    static final int DEFAULT_PAGE_SIZE = 20;
+    static final int MAX_PAGE_SIZE = 100;
+
     private final BookRepository bookRepository;
+    private final BookSearchIndex searchIndex;
+    private final TitleAutocomplete autocomplete;
+    private final BookCache bookCache;
+    private final SingleFlight<Long, Optional<BookView>> bookLoads = new SingleFlight<>();
 
-    public BookService(BookRepository bookRepository) {
+    public BookService(BookRepository bookRepository, BookSearchIndex searchIndex, TitleAutocomplete autocomplete,
+                       BookCache bookCache) {
         this.bookRepository = bookRepository;
+        this.searchIndex = searchIndex;
+        this.autocomplete = autocomplete;
+        this.bookCache = bookCache;
+    }
+
+    /*
+     * Read methods return views built straight from the queried columns, the book rows and
+     * their categories and images are read in one read-only transaction.
+     */
+    @Transactional(readOnly = true)
+    public List<BookView> getBooks() {
+        List<BookView> books = bookRepository.findAllViews();
+        bookRepository.withDetails(books);
+
+        return books;
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<BookView> getBooksPage(String after, Integer limit) {
+        Long lastBookId = after == null || after.isBlank() ? 0L : KeysetCursor.decodeId(after);
+        int pageSize = clampPageSize(limit);
+
+        CursorPage<BookView> page = KeysetCursor.page(pageSize,
+                rows -> bookRepository.findPageAfter(lastBookId, rows),
+                book -> KeysetCursor.encode(book.book_id()));
+        bookRepository.withDetails(page.items());
+
+        return page;
     }
 
-    public List<BookEntity> getBooks() {
-        return bookRepository.findAll();
+    // Not transactional on purpose, a cache hit shouldn't need a database connection.
+    public Optional<BookView> getBookById(Long book_id) {
+        Optional<BookView> cached = bookCache.getIfPresent(book_id);
+        if (cached != null) {
+            return cached;
+        }
+
+        // Concurrent misses for the same id wait on one load, the single flight counts them.
+        return bookLoads.execute(book_id, () -> bookCache.get(book_id, this::loadBook));
     }
 
-    public Optional<BookEntity> getBookById(Long book_id) {
-        return bookRepository.findById(book_id);
+    public CoalescingStatsResponse getBookLoadStats() {
+        return bookLoads.stats();
     }
 
-    public List<BookEntity> search(UniversalSearch search){
-        BookEntity probe = new BookEntity();
+    public CacheStatsResponse getBookCacheStats() {
+        return bookCache.stats();
+    }
 
-        if (StringUtils.hasText(search.value())){
-            probe.setTitle(search.value());
-            probe.setDescription(search.value());
-        }else {
+    private Optional<BookView> loadBook(Long book_id) {
+        Optional<BookView> book = bookRepository.findViewById(book_id);
+        book.ifPresent(view -> bookRepository.withDetails(List.of(view)));
+
+        return book;
+    }
+
+    @Transactional(readOnly = true)
+    public List<BookView> search(UniversalSearch search){
+        if (!StringUtils.hasText(search.value())){
             return List.of();
         }
 
-        Example<BookEntity> example = Example.of(probe, ExampleMatcher
-                .matchingAny()
-                .withIgnoreCase()
-                .withStringMatcher(ExampleMatcher.StringMatcher.CONTAINING));
+        int page = search.page() == null ? 0 : Math.max(search.page(), 0);
+        int size = clampPageSize(search.size());
+
+        // The index is built right after startup, until then fall back to the database.
+        if (!searchIndex.isReady()){
+            return searchInDatabase(search.value(), page, size);
+        }
+
+        List<Long> bookIds = searchIndex.search(search.value(), page, size).book_ids();
 
-        return bookRepository.findAll(example);
+        return bookRepository.findViewsInOrder(bookIds);
     }
 
-    public List<BookEntity> getAllBooksSortedByPriceOrReview(SortRequest sortRequest){
+    private List<BookView> searchInDatabase(String value, int page, int size){
+        String escaped = value.toLowerCase()
+                .replace("!", "!!")
+                .replace("%", "!%")
+                .replace("_", "!_");
+
+        List<BookView> books = bookRepository.searchViews("%" + escaped + "%", PageRequest.of(page, size));
+        bookRepository.withDetails(books);
+
+        return books;
+    }
+
+    public List<Suggestion> autocomplete(String prefix, Integer limit){
+        if (!StringUtils.hasText(prefix)){
+            return List.of();
+        }
+
+        // Built right after startup. Until then an empty list would read as no title matching.
+        if (!autocomplete.isReady()){
+            throw new IndexNotReadyException("Suggestions are still being loaded, try again in a moment.");
+        }
+
+        int size = limit == null ? TitleAutocomplete.MAX_SUGGESTIONS
+                : Math.min(Math.max(limit, 1), TitleAutocomplete.MAX_SUGGESTIONS);
+
+        return autocomplete.suggest(prefix, size);
+    }
+
+    public AutocompleteStats getAutocompleteStats(){
+        return autocomplete.stats();
+    }
+
+    @Transactional(readOnly = true)
+    public List<BookView> getAllBooksSortedByPriceOrReview(SortRequest sortRequest){
         String sortBy = sortRequest.sortBy();
+        int page = sortRequest.page() == null ? 0 : Math.max(sortRequest.page(), 0);
+        int size = clampPageSize(sortRequest.size());
+
+        List<BookView> books = bookRepository.findAllSorted(sortBy, page, size);
+        bookRepository.withDetails(books);
+
+        return books;
+    }
 
-        return bookRepository.findAllSorted(sortBy);
+    static int clampPageSize(Integer size) {
+        return size == null ? DEFAULT_PAGE_SIZE : Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
     }
 }
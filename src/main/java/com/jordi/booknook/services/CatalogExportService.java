@@ -0,0 +1,73 @@
+package com.jordi.booknook.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jordi.booknook.payload.response.BookView;
+import com.jordi.booknook.repositories.BookRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+@Service
+public class CatalogExportService {
+    private static final int BATCH_SIZE = 500;
+
+    private final BookRepository bookRepository;
+    private final ObjectMapper objectMapper;
+
+    public CatalogExportService(BookRepository bookRepository, ObjectMapper objectMapper) {
+        this.bookRepository = bookRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Writes the whole catalog as newline delimited JSON, one book per line.
+     * Books are read as views through a forward-only cursor and written in batches, each batch
+     * getting its categories and images in two queries, so memory use doesn't grow with the
+     * size of the catalog.
+     * @param out - The stream to write to, it is flushed but not closed.
+     * @return - The number of exported books.
+     */
+    @Transactional(readOnly = true)
+    public long exportCatalog(OutputStream out) throws IOException {
+        long exported = 0;
+
+        try (Stream<BookView> books = bookRepository.streamCatalog();
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+            List<BookView> batch = new ArrayList<>(BATCH_SIZE);
+            Iterator<BookView> iterator = books.iterator();
+            while (iterator.hasNext()) {
+                batch.add(iterator.next());
+
+                if (batch.size() == BATCH_SIZE || !iterator.hasNext()) {
+                    exported += writeBatch(generator, batch);
+                    batch = new ArrayList<>(BATCH_SIZE);
+                }
+            }
+
+            generator.flush();
+        }
+
+        return exported;
+    }
+
+    private int writeBatch(JsonGenerator generator, List<BookView> batch) throws IOException {
+        bookRepository.withDetails(batch);
+
+        for (BookView book : batch) {
+            objectMapper.writeValue(generator, book);
+            generator.writeRaw('\n');
+        }
+
+        generator.flush();
+        return batch.size();
+    }
+}
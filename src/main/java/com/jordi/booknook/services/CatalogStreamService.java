@@ -0,0 +1,83 @@
+package com.jordi.booknook.services;
+
+import com.jordi.booknook.payload.response.BookView;
+import com.jordi.booknook.payload.response.ReviewView;
+import com.jordi.booknook.repositories.BookRepository;
+import com.jordi.booknook.repositories.BookReviewRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Streams the catalog and the reviews of a book for the public read endpoints.
+ *
+ * Rows are read in keyset pages on a small dedicated scheduler, staying at most one page
+ * ahead of what the client has taken, and a connection is only held for the duration of
+ * one page query. Spring MVC writes each row on the response writer pool of
+ * AsyncResponseConfig with a blocking servlet write, so a slow client holds a writer while
+ * its bytes are accepted, and every open stream shares those writers.
+ */
+@Service
+public class CatalogStreamService {
+    private final BookRepository bookRepository;
+    private final BookReviewRepository bookReviewRepository;
+    private final int pageSize;
+    private final Scheduler scheduler;
+
+    public CatalogStreamService(BookRepository bookRepository, BookReviewRepository bookReviewRepository,
+                                @Value("${booknook.stream.page-size:200}") int pageSize,
+                                @Value("${booknook.stream.threads:8}") int threads) {
+        this.bookRepository = bookRepository;
+        this.bookReviewRepository = bookReviewRepository;
+        this.pageSize = pageSize;
+        this.scheduler = Schedulers.newBoundedElastic(threads, threads * 1000, "catalog-stream");
+    }
+
+    public Flux<BookView> streamBooks() {
+        return pages(after -> {
+            List<BookView> books = bookRepository.findPageAfter(after, Limit.of(pageSize));
+            bookRepository.withDetails(books);
+            return books;
+        }, BookView::book_id);
+    }
+
+    /**
+     * @return - The reviews of the book in id order, or an EntityNotFoundException when the
+     * book doesn't exist.
+     */
+    public Flux<ReviewView> streamReviewsByBook(Long book_id) {
+        return Mono.fromCallable(() -> bookRepository.existsById(book_id))
+                .subscribeOn(scheduler)
+                .flatMapMany(exists -> exists
+                        ? pages(after -> bookReviewRepository.findViewsByBookAfter(book_id, after, Limit.of(pageSize)),
+                                ReviewView::book_reviews_id)
+                        : Flux.error(new EntityNotFoundException("Book not found.")));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.dispose();
+    }
+
+    // A page shorter than the page size is the last one.
+    private <T> Flux<T> pages(Function<Long, List<T>> pageAfter, Function<T, Long> key) {
+        return page(pageAfter, 0L)
+                .expand(rows -> rows.size() < pageSize
+                        ? Mono.empty()
+                        : page(pageAfter, key.apply(rows.get(rows.size() - 1))))
+                .flatMapIterable(rows -> rows, 1);
+    }
+
+    private <T> Mono<List<T>> page(Function<Long, List<T>> pageAfter, Long after) {
+        return Mono.fromCallable(() -> pageAfter.apply(after)).subscribeOn(scheduler);
+    }
+}
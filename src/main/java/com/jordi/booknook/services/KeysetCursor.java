@@ -0,0 +1,75 @@
+package com.jordi.booknook.services;
+
+import com.jordi.booknook.exceptions.InvalidCursorException;
+import com.jordi.booknook.payload.response.CursorPage;
+import org.springframework.data.domain.Limit;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Opaque cursors for keyset pagination. A cursor carries the sort key values of the
+ * last row of a page so the next page can continue with a "WHERE key > last" seek
+ * instead of an OFFSET scan. Clients must treat the value as an opaque token.
+ */
+public final class KeysetCursor {
+    private static final String VERSION = "v1";
+    private static final String SEPARATOR = "|";
+
+    private KeysetCursor() {
+    }
+
+    public static String encode(Object... keys) {
+        String raw = VERSION + SEPARATOR + Arrays.stream(keys)
+                .map(String::valueOf)
+                .collect(Collectors.joining(SEPARATOR));
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String[] decode(String cursor, int expectedKeys) {
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException exception) {
+            throw new InvalidCursorException("Invalid cursor.");
+        }
+
+        String[] parts = raw.split("\\" + SEPARATOR, -1);
+        if (parts.length != expectedKeys + 1 || !VERSION.equals(parts[0])) {
+            throw new InvalidCursorException("Invalid cursor.");
+        }
+
+        return Arrays.copyOfRange(parts, 1, parts.length);
+    }
+
+    public static Long decodeId(String cursor) {
+        try {
+            return Long.valueOf(decode(cursor, 1)[0]);
+        } catch (NumberFormatException exception) {
+            throw new InvalidCursorException("Invalid cursor.");
+        }
+    }
+
+    /**
+     * Reads one row more than the page size, which tells whether there is a next page
+     * without a COUNT query.
+     * @param rows - Reads the rows after the cursor, at most as many as the given limit.
+     * @param cursorAfter - The cursor that continues after the given row.
+     * @return - The page, with a next cursor only when more rows follow.
+     */
+    public static <T> CursorPage<T> page(int pageSize, Function<Limit, List<T>> rows, Function<T, String> cursorAfter) {
+        List<T> read = rows.apply(Limit.of(pageSize + 1));
+
+        if (read.size() <= pageSize) {
+            return new CursorPage<>(read, null);
+        }
+
+        List<T> page = List.copyOf(read.subList(0, pageSize));
+        return new CursorPage<>(page, cursorAfter.apply(page.get(pageSize - 1)));
+    }
+}
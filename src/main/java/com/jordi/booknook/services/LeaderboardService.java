@@ -0,0 +1,67 @@
+package com.jordi.booknook.services;
+
+import com.jordi.booknook.cache.BookCache;
+import com.jordi.booknook.exceptions.IndexNotReadyException;
+import com.jordi.booknook.leaderboard.BookLeaderboard;
+import com.jordi.booknook.leaderboard.RankedBook;
+import com.jordi.booknook.payload.response.BookView;
+import com.jordi.booknook.payload.response.LeaderboardEntry;
+import com.jordi.booknook.repositories.BookRepository;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@Service
+public class LeaderboardService {
+    private final BookLeaderboard leaderboard;
+    private final BookRepository bookRepository;
+    private final BookCache bookCache;
+
+    public LeaderboardService(BookLeaderboard leaderboard, BookRepository bookRepository, BookCache bookCache) {
+        this.leaderboard = leaderboard;
+        this.bookRepository = bookRepository;
+        this.bookCache = bookCache;
+    }
+
+    /*
+     * The ranking comes from memory and the views from the book cache, only the books that
+     * aren't cached are read, with one query. Not transactional so a fully cached page
+     * doesn't need a database connection.
+     */
+    public List<LeaderboardEntry> getTopRated(Long category_id, Integer limit) {
+        // The rating counts are streamed in after startup, a ranking read earlier would miss rated books.
+        if (!leaderboard.isReady()) {
+            throw new IndexNotReadyException("The leaderboard is still being built, try again in a moment.");
+        }
+
+        int size = limit == null ? leaderboard.size() : Math.min(Math.max(limit, 1), leaderboard.size());
+        List<RankedBook> top = leaderboard.top(category_id, size);
+
+        Map<Long, BookView> books = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (RankedBook ranked : top) {
+            Optional<BookView> cached = bookCache.getIfPresent(ranked.book_id());
+            if (cached == null) {
+                missing.add(ranked.book_id());
+            } else {
+                cached.ifPresent(book -> books.put(book.book_id(), book));
+            }
+        }
+        if (!missing.isEmpty()) {
+            bookRepository.findViewsInOrder(missing).forEach(book -> books.put(book.book_id(), book));
+        }
+
+        List<LeaderboardEntry> entries = new ArrayList<>(top.size());
+        for (RankedBook ranked : top) {
+            BookView book = books.get(ranked.book_id());
+            if (book != null) {
+                entries.add(new LeaderboardEntry(entries.size() + 1, ranked.score(), book));
+            }
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,238 @@
+package com.jordi.booknook.services;
+
+import com.jordi.booknook.models.UserEntity;
+import com.jordi.booknook.payload.response.RegistrationStatsResponse;
+import com.jordi.booknook.repositories.ShelfRepository;
+import com.jordi.booknook.repositories.UserRepository;
+import com.jordi.booknook.security.payload.request.RegisterRequest;
+import com.microsoft.graph.models.PasswordProfile;
+import com.microsoft.graph.models.User;
+import com.microsoft.graph.requests.GraphServiceClient;
+import jakarta.annotation.PreDestroy;
+import okhttp3.Request;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registers users in Entra ID and keeps a local profile for them.
+ *
+ * The Graph call is asynchronous, so no thread waits on Entra while a user is created. Created
+ * users are queued and a single writer saves whatever has piled up in one transaction, with
+ * the default shelves of every new profile inserted as one JDBC batch.
+ */
+@Service
+public class RegistrationService {
+    private final GraphServiceClient<Request> graph;
+    private final UserRepository userRepository;
+    private final ShelfRepository shelfRepository;
+    private final TransactionOperations transactions;
+    private final String tenantDomain;
+    private final int batchSize;
+    private final int maxPending;
+    private final Semaphore pending;
+
+    private final BlockingQueue<Profile> profiles = new LinkedBlockingQueue<>();
+    private final AtomicBoolean writeScheduled = new AtomicBoolean();
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "registration-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final LongAdder registrations = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final AtomicInteger largestBatch = new AtomicInteger();
+
+    public RegistrationService(GraphServiceClient<Request> graph,
+                               UserRepository userRepository,
+                               ShelfRepository shelfRepository,
+                               TransactionOperations transactions,
+                               @Value("${azure.tenant-domain}") String tenantDomain,
+                               @Value("${booknook.auth.register.batch-size:200}") int batchSize,
+                               @Value("${booknook.auth.register.max-pending:1000}") int maxPending) {
+        this.graph = graph;
+        this.userRepository = userRepository;
+        this.shelfRepository = shelfRepository;
+        this.transactions = transactions;
+        this.tenantDomain = tenantDomain;
+        this.batchSize = batchSize;
+        this.maxPending = maxPending;
+        this.pending = new Semaphore(maxPending);
+    }
+
+    /**
+     * Lowercases the username and drops anything Entra doesn't accept in a mail nickname.
+     * @return - The sanitized username, blank when nothing usable is left.
+     */
+    public static String sanitizeUsername(String username) {
+        return username.trim().toLowerCase().replaceAll("[^a-z0-9._-]", "");
+    }
+
+    /**
+     * Creates the user in Entra ID and then saves its local profile.
+     * @param username - The sanitized username.
+     * @param request - The registration request.
+     * @return - The user created by Graph, once its profile is saved. Fails right away with a
+     * RejectedExecutionException when too many registrations are already in progress.
+     */
+    public CompletableFuture<User> register(String username, RegisterRequest request) {
+        if (!pending.tryAcquire()) {
+            return CompletableFuture.failedFuture(new RejectedExecutionException("Too many registrations in progress."));
+        }
+
+        long start = System.nanoTime();
+
+        CompletableFuture<User> created;
+        try {
+            created = graph.users().buildRequest().postAsync(graphUser(username, request));
+        } catch (RuntimeException e) {
+            created = CompletableFuture.failedFuture(e);
+        }
+
+        return created
+                .thenCompose(user -> saveProfile(username, request.email(), user))
+                .whenComplete((ignored, error) -> {
+                    pending.release();
+                    record(System.nanoTime() - start, error != null);
+                });
+    }
+
+    public RegistrationStatsResponse stats() {
+        long count = registrations.sum();
+        double average = count == 0 ? 0 : totalNanos.sum() / (double) count / 1_000_000.0;
+
+        return new RegistrationStatsResponse(count, failures.sum(), maxPending - pending.availablePermits(),
+                profiles.size(), batches.sum(), largestBatch.get(), average);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        writer.shutdown();
+    }
+
+    private User graphUser(String username, RegisterRequest request) {
+        var password = new PasswordProfile();
+        password.forceChangePasswordNextSignIn = false;     // for your learning app
+        password.password = request.password();            // must meet tenant password policy
+
+        var user = new User();
+        user.accountEnabled = true;
+        user.displayName = username;                        // or use something prettier
+        user.mailNickname = username;
+        user.userPrincipalName = username + "@" + tenantDomain; // e.g., yourtenant.onmicrosoft.com
+        user.passwordProfile = password;
+
+        // Optional: keep the email the user typed so you can contact them later
+        if (request.email() != null && !request.email().isBlank()) {
+            user.otherMails = new LinkedList<>();
+            user.otherMails.add(request.email());
+        }
+
+        // Optional: sometimes required for license assignment flows
+        user.usageLocation = "ES";
+
+        return user;
+    }
+
+    private CompletableFuture<User> saveProfile(String username, String email, User created) {
+        Profile profile = new Profile(username, email, created, new CompletableFuture<>());
+        profiles.add(profile);
+        scheduleWrite();
+        return profile.saved();
+    }
+
+    private void scheduleWrite() {
+        if (writeScheduled.compareAndSet(false, true)) {
+            writer.execute(this::writeQueued);
+        }
+    }
+
+    // Profiles queued while a batch is being written go into the next one.
+    private void writeQueued() {
+        try {
+            List<Profile> batch = new ArrayList<>(batchSize);
+            while (profiles.drainTo(batch, batchSize) > 0) {
+                write(batch);
+                batch.clear();
+            }
+        } finally {
+            writeScheduled.set(false);
+            if (!profiles.isEmpty()) {
+                scheduleWrite();
+            }
+        }
+    }
+
+    private void write(List<Profile> batch) {
+        try {
+            transactions.executeWithoutResult(status -> saveProfiles(batch));
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                batch.get(0).saved().completeExceptionally(e);
+                return;
+            }
+            // One bad profile shouldn't fail everyone else's, so retry them one by one.
+            for (Profile profile : batch) {
+                write(List.of(profile));
+            }
+            return;
+        }
+
+        batches.increment();
+        largestBatch.accumulateAndGet(batch.size(), Math::max);
+        batch.forEach(profile -> profile.saved().complete(profile.created()));
+    }
+
+    private void saveProfiles(List<Profile> batch) {
+        Map<String, UserEntity> users = new HashMap<>();
+        userRepository.findAllByUsernameIn(batch.stream().map(Profile::username).toList())
+                .forEach(user -> users.put(user.getUsername(), user));
+
+        List<UserEntity> newUsers = new ArrayList<>();
+        for (Profile profile : batch) {
+            // Graph returned id (also matches JWT 'oid' for users)
+            UserEntity user = users.computeIfAbsent(profile.username(), username -> {
+                UserEntity created = UserEntity.fromEntra(username, profile.email(), profile.created().id);
+                newUsers.add(created);
+                return created;
+            });
+            user.setAuthProvider("entra");
+            user.setAuthSub(profile.created().id);
+        }
+
+        userRepository.saveAll(users.values());
+        if (!newUsers.isEmpty()) {
+            shelfRepository.addDefaultShelves(newUsers.stream().map(UserEntity::getUser_id).toList());
+        }
+    }
+
+    private void record(long nanos, boolean failed) {
+        registrations.increment();
+        if (failed) {
+            failures.increment();
+        }
+        totalNanos.add(nanos);
+    }
+
+    private record Profile(String username, String email, User created, CompletableFuture<User> saved) {
+    }
+}
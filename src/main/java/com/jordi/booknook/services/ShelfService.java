@@ -1,25 +1,42 @@
 package com.jordi.booknook.services;
 
-import com.jordi.booknook.models.BookEntity;
 import com.jordi.booknook.models.ShelfEntity;
-import com.jordi.booknook.models.UserEntity;
 import com.jordi.booknook.payload.request.AddBookToShelfRequest;
 import com.jordi.booknook.payload.request.NewShelfRequest;
+import com.jordi.booknook.payload.request.ShelfBooksChangeRequest;
+import com.jordi.booknook.payload.request.ShelfBooksChangeRequest.Action;
+import com.jordi.booknook.payload.request.ShelfBooksChangeRequest.Change;
 import com.jordi.booknook.payload.request.UpdateShelfRequest;
 import com.jordi.booknook.payload.response.AddBookToShelfResponse;
+import com.jordi.booknook.payload.response.BookView;
+import com.jordi.booknook.payload.response.CursorPage;
 import com.jordi.booknook.payload.response.NewShelfResponse;
+import com.jordi.booknook.payload.response.ShelfBooksChangeResponse;
+import com.jordi.booknook.payload.response.ShelfBooksChangeResponse.Result;
+import com.jordi.booknook.payload.response.ShelfBooksChangeResponse.Status;
+import com.jordi.booknook.payload.response.ShelfSummary;
 import com.jordi.booknook.payload.response.UpdateShelfResponse;
 import com.jordi.booknook.repositories.BookRepository;
+import com.jordi.booknook.repositories.ShelfBookRow;
+import com.jordi.booknook.repositories.ShelfOwnerRow;
 import com.jordi.booknook.repositories.ShelfRepository;
 import com.jordi.booknook.repositories.UserRepository;
+import com.jordi.booknook.security.CurrentUser;
 import com.jordi.booknook.security.CurrentUserResolver;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class ShelfService {
@@ -35,23 +52,22 @@ public class ShelfService {
         this.currentUser = currentUserResolver;
     }
 
+    @Transactional
     public NewShelfResponse addNewShelf(NewShelfRequest request) {
-        UserEntity user = currentUser.requireCurrentUser();
+        CurrentUser user = currentUser.requireCurrentUser();
 
-        Optional<UserEntity> authenticatedUser = userRepository.findByUsername(user.getUsername());
-
-        ShelfEntity newShelf = shelfRepository.saveAndFlush(new ShelfEntity(authenticatedUser.orElseThrow(),
+        ShelfEntity newShelf = shelfRepository.saveAndFlush(new ShelfEntity(userRepository.getReferenceById(user.user_id()),
                 request.name(), request.image(), request.description(), request.public_shelf()));
 
-        return new NewShelfResponse(newShelf.getUser().getUsername(),newShelf.getShelf_id(),
+        return new NewShelfResponse(user.username(),newShelf.getShelf_id(),
                 newShelf.getName(), newShelf.getImage(), newShelf.getDescription(),
                 newShelf.getPublic_shelf());
     }
 
     public UpdateShelfResponse updateShelfById(Long shelf_id, UpdateShelfRequest request){
-        UserEntity user = currentUser.requireCurrentUser();
+        CurrentUser user = currentUser.requireCurrentUser();
 
-        String username = user.getUsername();
+        String username = user.username();
         Optional<ShelfEntity> shelf = shelfRepository.findById(shelf_id);
 
         if (shelf.isEmpty()) {
@@ -89,14 +105,16 @@ public class ShelfService {
 
     }
 
+    // Costs the same three statements however many books the shelf already has.
+    @Transactional
     public AddBookToShelfResponse addBookToShelf(AddBookToShelfRequest request){
-        UserEntity user = currentUser.requireCurrentUser();
+        CurrentUser user = currentUser.requireCurrentUser();
 
-        String username = user.getUsername();
-        Optional<BookEntity> bookToAdd = bookRepository.findById(request.book_id());
-        Optional<ShelfEntity> shelf = shelfRepository.findById(request.shelf_id());
+        String username = user.username();
+        Optional<String> title = bookRepository.findTitleById(request.book_id());
+        Optional<ShelfOwnerRow> shelf = shelfRepository.findOwnerById(request.shelf_id());
 
-        if (bookToAdd.isEmpty()){
+        if (title.isEmpty()){
             throw new EntityNotFoundException("Book Not Found.");
         }
 
@@ -104,38 +122,98 @@ public class ShelfService {
             throw new EntityNotFoundException("Shelf Not Found.");
         }
 
-        String shelfUsername = shelf.get().getUser().getUsername();
-
-        if (!Objects.equals(username, shelfUsername)){
+        if (!Objects.equals(username, shelf.get().username())){
             throw new AccessDeniedException("Not allowed to add a book to that shelf.");
         }
 
-        ShelfEntity updatedShelf = shelf.get();
-        updatedShelf.getBooks().add(bookToAdd.get());
-        BookEntity lastBook = updatedShelf.getBooks()
-                .stream()
-                .reduce((one, two) -> two)
-                .orElseThrow();
-
-        shelfRepository.save(updatedShelf);
+        shelfRepository.addBook(shelf.get().shelf_id(), request.book_id());
 
-        return new AddBookToShelfResponse(lastBook,updatedShelf);
+        return new AddBookToShelfResponse(shelf.get().shelf_id(), shelf.get().name(),
+                request.book_id(), title.get());
     }
 
-    public List<ShelfEntity> getAllUserShelves(){
-        UserEntity user = currentUser.requireCurrentUser();
+    /*
+     * Changes are applied in request order, so adding and then removing the same book leaves
+     * it off the shelf. Shelves, books and the rows already on the shelves are read with one
+     * query each, then only the rows that actually change are written in batches.
+     */
+    @Transactional
+    public ShelfBooksChangeResponse changeShelfBooks(ShelfBooksChangeRequest request){
+        CurrentUser user = currentUser.requireCurrentUser();
+
+        List<Change> changes = request.changes();
+        Set<Long> shelfIds = changes.stream().map(Change::shelf_id).collect(Collectors.toSet());
+        Set<Long> bookIds = changes.stream().map(Change::book_id).collect(Collectors.toSet());
+
+        Map<Long, ShelfOwnerRow> shelves = shelfRepository.findOwnersByIds(shelfIds).stream()
+                .collect(Collectors.toMap(ShelfOwnerRow::shelf_id, Function.identity()));
+        Set<Long> ownedShelfIds = shelves.values().stream()
+                .filter(shelf -> Objects.equals(user.username(), shelf.username()))
+                .map(ShelfOwnerRow::shelf_id)
+                .collect(Collectors.toSet());
+
+        Set<Long> existingBookIds = new HashSet<>();
+        Set<ShelfBookRow> before = new HashSet<>();
+        if (!ownedShelfIds.isEmpty()) {
+            existingBookIds.addAll(bookRepository.findExistingIds(bookIds));
+        }
+        if (!existingBookIds.isEmpty()) {
+            before.addAll(shelfRepository.findBooksOnShelves(ownedShelfIds, existingBookIds));
+        }
+
+        Set<ShelfBookRow> after = new HashSet<>(before);
+        List<Result> results = new ArrayList<>(changes.size());
+        int added = 0;
+        int removed = 0;
+        int failed = 0;
+
+        for (Change change : changes) {
+            Status status;
+
+            if (!shelves.containsKey(change.shelf_id())) {
+                status = Status.SHELF_NOT_FOUND;
+            } else if (!ownedShelfIds.contains(change.shelf_id())) {
+                status = Status.NOT_ALLOWED;
+            } else if (!existingBookIds.contains(change.book_id())) {
+                status = Status.BOOK_NOT_FOUND;
+            } else {
+                ShelfBookRow row = new ShelfBookRow(change.shelf_id(), change.book_id());
+
+                if (change.action() == Action.ADD) {
+                    status = after.add(row) ? Status.ADDED : Status.ALREADY_ON_SHELF;
+                } else {
+                    status = after.remove(row) ? Status.REMOVED : Status.NOT_ON_SHELF;
+                }
+            }
+
+            switch (status) {
+                case ADDED -> added++;
+                case REMOVED -> removed++;
+                case SHELF_NOT_FOUND, NOT_ALLOWED, BOOK_NOT_FOUND -> failed++;
+                default -> { }
+            }
+
+            results.add(new Result(change.action(), change.shelf_id(), change.book_id(), status));
+        }
+
+        shelfRepository.removeBooks(before.stream().filter(row -> !after.contains(row)).toList());
+        shelfRepository.addBooks(after.stream().filter(row -> !before.contains(row)).toList());
+
+        return new ShelfBooksChangeResponse(added, removed, failed, results);
+    }
 
-        Optional<UserEntity> authenticatedUser = userRepository.findByUsername(user.getUsername());
+    @Transactional(readOnly = true)
+    public List<ShelfSummary> getAllUserShelves(){
+        CurrentUser user = currentUser.requireCurrentUser();
 
-        return shelfRepository.findAllByUser(authenticatedUser.orElseThrow());
+        return shelfRepository.findSummariesByUser(user.user_id());
     }
 
-    public ShelfEntity getOneUserShelf(Long shelves_id){
-        UserEntity user = currentUser.requireCurrentUser();
+    @Transactional(readOnly = true)
+    public ShelfSummary getOneUserShelf(Long shelves_id){
+        CurrentUser user = currentUser.requireCurrentUser();
 
-        Optional<UserEntity> authenticatedUser = userRepository.findByUsername(user.getUsername());
-        Optional<ShelfEntity> shelf = shelfRepository.findOneByUserAndShelfId(authenticatedUser.orElseThrow(),
-                shelves_id);
+        Optional<ShelfSummary> shelf = shelfRepository.findSummaryByUserAndShelfId(user.user_id(), shelves_id);
 
         if (shelf.isEmpty()){
             throw new EntityNotFoundException("Shelf Not Found.");
@@ -144,15 +222,48 @@ public class ShelfService {
         return shelf.get();
     }
 
-    public List<ShelfEntity> getAllUserPrivateShelves(){
-        UserEntity user = currentUser.requireCurrentUser();
+    @Transactional(readOnly = true)
+    public List<ShelfSummary> getAllUserPrivateShelves(){
+        CurrentUser user = currentUser.requireCurrentUser();
 
-        return shelfRepository.findAllByUserAndPublicShelfIsFalse(user);
+        return shelfRepository.findPrivateSummariesByUser(user.user_id());
     }
 
-    public List<ShelfEntity> getAllUserPublicShelves(Long user_id){
-        Optional<UserEntity> user = userRepository.findById(user_id);
+    @Transactional(readOnly = true)
+    public List<ShelfSummary> getAllUserPublicShelves(Long user_id){
+        return shelfRepository.findPublicSummariesByUser(user_id);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<BookView> getUserShelfBooks(Long shelf_id, String after, Integer limit){
+        CurrentUser user = currentUser.requireCurrentUser();
+
+        if (!shelfRepository.existsByUserAndShelfId(user.user_id(), shelf_id)){
+            throw new EntityNotFoundException("Shelf Not Found.");
+        }
+
+        return shelfBooksPage(shelf_id, after, limit);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<BookView> getPublicShelfBooks(Long shelf_id, String after, Integer limit){
+        if (!shelfRepository.existsPublicById(shelf_id)){
+            throw new EntityNotFoundException("Shelf Not Found.");
+        }
+
+        return shelfBooksPage(shelf_id, after, limit);
+    }
+
+    // Seeks past the last book id of the previous page, so every page costs the same however long the shelf is.
+    private CursorPage<BookView> shelfBooksPage(Long shelf_id, String after, Integer limit) {
+        Long lastBookId = after == null || after.isBlank() ? 0L : KeysetCursor.decodeId(after);
+        int pageSize = BookService.clampPageSize(limit);
+
+        CursorPage<BookView> page = KeysetCursor.page(pageSize,
+                rows -> bookRepository.findShelfPageAfter(shelf_id, lastBookId, rows),
+                book -> KeysetCursor.encode(book.book_id()));
+        bookRepository.withDetails(page.items());
 
-        return shelfRepository.findAllByUserAndPublicShelfIsTrue(user.orElseThrow());
+        return page;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,81 @@
+package com.jordi.booknook.serviceTests;
+
+import com.jordi.booknook.controllers.AuthController;
+import com.jordi.booknook.repositories.UserRepository;
+import com.jordi.booknook.security.EntraLoginClient;
+import com.jordi.booknook.security.payload.request.LoginRequest;
+import com.jordi.booknook.services.RegistrationService;
+import com.microsoft.aad.msal4j.IAuthenticationResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class AuthControllerTest {
+    @Mock
+    UserRepository users;
+
+    @Mock
+    RegistrationService registrationService;
+
+    private ResponseEntity<?> login(EntraLoginClient loginClient, String password) throws Exception {
+        AuthController controller = new AuthController(users, registrationService, loginClient);
+        return controller.login(new LoginRequest("jordi@booknook.test", password)).get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void loginShouldAnswerUnauthorizedWhenEntraRejectsThePassword() throws Exception {
+        // Given: A login client whose token endpoint rejects the password.
+        EntraLoginClient loginClient = new EntraLoginClient("client-id", "https://login.microsoftonline.com/tenant-id/",
+                "api-id", 2, Duration.ofSeconds(5), 10, new EntraLoginClientTest.StandInEntra());
+
+        // When: The user logs in with it.
+        ResponseEntity<?> response = login(loginClient, "wrong");
+
+        // Then: We assert that the login is refused with the reason given by Entra ID.
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+        assertThat(response.getBody().toString()).contains("AADSTS50126");
+    }
+
+    @Test
+    void loginShouldAnswerGatewayTimeoutWhenEntraDoesNotAnswerInTime() throws Exception {
+        // Given: A token request that times out.
+        EntraLoginClient loginClient = mock(EntraLoginClient.class);
+        when(loginClient.login(eq("jordi@booknook.test"), any()))
+                .thenReturn(new CompletableFuture<IAuthenticationResult>().orTimeout(1, TimeUnit.MILLISECONDS));
+
+        // When: The user logs in.
+        ResponseEntity<?> response = login(loginClient, "secret");
+
+        // Then: We assert that it is reported as a timeout, not as wrong credentials.
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.GATEWAY_TIMEOUT);
+    }
+
+    @Test
+    void loginShouldAnswerServiceUnavailableWhenTooManyLoginsAreInProgress() throws Exception {
+        // Given: A login pool that is full.
+        EntraLoginClient loginClient = mock(EntraLoginClient.class);
+        when(loginClient.login(eq("jordi@booknook.test"), any()))
+                .thenReturn(CompletableFuture.failedFuture(new RejectedExecutionException("Login pool is full.")));
+
+        // When: The user logs in.
+        ResponseEntity<?> response = login(loginClient, "secret");
+
+        // Then: We assert that the user is told to try again instead of being refused.
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+    }
+}
@@ -0,0 +1,70 @@
+package com.jordi.booknook.serviceTests;
+
+import com.jordi.booknook.exceptions.IndexNotReadyException;
+import com.jordi.booknook.payload.response.BrowseResponse;
+import com.jordi.booknook.repositories.BookRepository;
+import com.jordi.booknook.repositories.CategoryRepository;
+import com.jordi.booknook.search.BookCategoryRow;
+import com.jordi.booknook.search.BookFacetIndex;
+import com.jordi.booknook.search.BookPriceRow;
+import com.jordi.booknook.services.BookBrowseService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class BookBrowseServiceTest {
+    BookFacetIndex facetIndex;
+    BookBrowseService service;
+
+    @Mock
+    BookRepository bookRepository;
+
+    @Mock
+    CategoryRepository categoryRepository;
+
+    @BeforeEach
+    void setUp(){
+        this.facetIndex = new BookFacetIndex();
+        this.service = new BookBrowseService(facetIndex, bookRepository, categoryRepository);
+    }
+
+    @Test
+    void browseShouldReturnErrorUntilTheFacetsAreCounted(){
+        // Given: A facet index that has not been built yet.
+        // When: We browse the catalog.
+        // Then: We assert that it throws a IndexNotReadyException instead of counting no books.
+        assertThrows(IndexNotReadyException.class, () -> service.browse(List.of(), null, null, 0, 10));
+    }
+
+    @Test
+    void browseShouldReturnAnEmptyPageForAPageNumberPastAnyOffset(){
+        // Given: A catalog of two books.
+        facetIndex.rebuild(
+                Stream.of(new BookPriceRow(1L, new BigDecimal("9.99")), new BookPriceRow(2L, new BigDecimal("19.99"))),
+                Stream.of(new BookCategoryRow(1L, 1L)));
+
+        when(bookRepository.findViewsInOrder(List.of())).thenCallRealMethod();
+
+        // When: We ask for a page whose offset doesn't fit in an int.
+        BrowseResponse response = service.browse(List.of(), null, null, Integer.MAX_VALUE, 100);
+
+        // Then: We assert that the page is empty but still carries the total, without reading any book.
+        assertThat(response.books()).isEmpty();
+        assertThat(response.total()).isEqualTo(2);
+        verify(bookRepository, never()).findViewsByIds(any());
+    }
+}
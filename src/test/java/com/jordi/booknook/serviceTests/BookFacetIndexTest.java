@@ -0,0 +1,112 @@
+package com.jordi.booknook.serviceTests;
+
+import com.jordi.booknook.search.BookCategoryRow;
+import com.jordi.booknook.search.BookFacetIndex;
+import com.jordi.booknook.search.BookPriceRow;
+import com.jordi.booknook.search.FacetResult;
+import com.jordi.booknook.search.PriceFacet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BookFacetIndexTest {
+    static final long FANTASY = 1L;
+    static final long HISTORY = 2L;
+    static final long COOKING = 3L;
+
+    BookFacetIndex index;
+
+    @BeforeEach
+    void setUp(){
+        // Books 1 to 3 are fantasy, 3 and 4 history and 5 cooking.
+        this.index = new BookFacetIndex();
+        index.rebuild(
+                Stream.of(
+                        new BookPriceRow(1L, new BigDecimal("4.99")),
+                        new BookPriceRow(2L, new BigDecimal("12.50")),
+                        new BookPriceRow(3L, new BigDecimal("15.00")),
+                        new BookPriceRow(4L, new BigDecimal("25.00")),
+                        new BookPriceRow(5L, new BigDecimal("60.00"))),
+                Stream.of(
+                        new BookCategoryRow(1L, FANTASY),
+                        new BookCategoryRow(2L, FANTASY),
+                        new BookCategoryRow(3L, FANTASY),
+                        new BookCategoryRow(3L, HISTORY),
+                        new BookCategoryRow(4L, HISTORY),
+                        new BookCategoryRow(5L, COOKING)));
+    }
+
+    @Test
+    void browseShouldMatchBooksInAnySelectedCategoryWithinThePriceRange() {
+        // Given: Fantasy and history books priced from 4.99 to 25.
+        // When: We browse both categories between 10 and 20, cutting through two price buckets.
+        FacetResult result = index.browse(List.of(FANTASY, HISTORY), new BigDecimal("10"), new BigDecimal("20"), 0, 10);
+
+        // Then: We assert that only the books priced inside the range are returned, in id order.
+        assertThat(result.book_ids()).containsExactly(2L, 3L);
+        assertThat(result.total()).isEqualTo(2);
+    }
+
+    @Test
+    void browseShouldCountEachFacetWithTheFiltersOfTheOtherFacet() {
+        // Given: A selection of the fantasy books up to 15.
+        // When: We browse it.
+        FacetResult result = index.browse(List.of(FANTASY), null, new BigDecimal("15"), 0, 10);
+
+        // Then: We assert that categories are counted within the price range only, most books first.
+        assertThat(result.category_counts()).containsExactly(Map.entry(FANTASY, 3), Map.entry(HISTORY, 1));
+
+        // And: That price buckets are counted within the selected categories only.
+        assertThat(result.prices()).extracting(PriceFacet::count).containsExactly(1, 0, 1, 1, 0, 0, 0);
+        assertThat(result.prices().get(0).max_price()).isEqualByComparingTo("5");
+        assertThat(result.prices().get(6).max_price()).isNull();
+    }
+
+    @Test
+    void browseShouldPaginateTheMatches() {
+        // Given: Five books.
+        // When: We browse everything in pages of 2.
+        FacetResult secondPage = index.browse(List.of(), null, null, 2, 2);
+        FacetResult pastTheEnd = index.browse(List.of(), null, null, 6, 2);
+
+        // Then: We assert that each page starts where the previous one ended.
+        assertThat(secondPage.book_ids()).containsExactly(3L, 4L);
+        assertThat(secondPage.total()).isEqualTo(5);
+        assertThat(pastTheEnd.book_ids()).isEmpty();
+    }
+
+    @Test
+    void changesShouldMoveBooksBetweenFacets() {
+        // Given: Book 5 moving from cooking to history at a lower price, and book 1 removed.
+        index.setCategories(5L, Set.of(HISTORY));
+        index.setPrice(5L, new BigDecimal("9.99"));
+        index.remove(1L);
+
+        // When: We browse history under 10.
+        FacetResult result = index.browse(List.of(HISTORY), null, new BigDecimal("10"), 0, 10);
+
+        // Then: We assert that book 5 is found and cooking, left empty, is no longer a facet.
+        assertThat(result.book_ids()).containsExactly(5L);
+        assertThat(result.category_counts()).containsOnlyKeys(HISTORY);
+        assertThat(index.size()).isEqualTo(4);
+    }
+
+    @Test
+    void setBooksShouldReplaceTheBooksOfACategory() {
+        // Given: The cooking category now holding books 1 and 2.
+        index.setBooks(COOKING, Set.of(1L, 2L));
+
+        // When: We browse cooking.
+        FacetResult result = index.browse(List.of(COOKING), null, null, 0, 10);
+
+        // Then: We assert that only its new books are found.
+        assertThat(result.book_ids()).containsExactly(1L, 2L);
+    }
+}
@@ -0,0 +1,138 @@
+package com.jordi.booknook.serviceTests;
+
+import com.jordi.booknook.leaderboard.BookLeaderboard;
+import com.jordi.booknook.leaderboard.BookRatingRow;
+import com.jordi.booknook.leaderboard.RankedBook;
+import com.jordi.booknook.search.BookCategoryRow;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class BookLeaderboardTest {
+    static final long FANTASY = 1L;
+    static final long HISTORY = 2L;
+
+    BookLeaderboard leaderboard;
+
+    @BeforeEach
+    void setUp(){
+        // Boards of 2 books, keeping up to 4, with a prior weight of 10 reviews.
+        this.leaderboard = new BookLeaderboard(2, 10);
+    }
+
+    private void rebuild(Stream<BookRatingRow> ratings, BookCategoryRow... categories) {
+        leaderboard.rebuild(ratings, Stream.of(categories), book_ids -> List.of());
+    }
+
+    private static List<Long> ids(List<RankedBook> top) {
+        return top.stream().map(RankedBook::book_id).toList();
+    }
+
+    @Test
+    void topShouldPreferManyGoodReviewsOverAFewPerfectOnes() {
+        // Given: A book with one 5 star review, one with a hundred 4.5s and one with a hundred 3s.
+        rebuild(Stream.of(
+                new BookRatingRow(1L, 1L, 5L),
+                new BookRatingRow(2L, 100L, 450L),
+                new BookRatingRow(3L, 100L, 300L)));
+
+        // When: We ask for the top books.
+        List<RankedBook> top = leaderboard.top(null, 10);
+
+        // Then: We assert that the book with many good reviews ranks first and only 2 books are served.
+        assertThat(ids(top)).containsExactly(2L, 1L);
+
+        // And: That the single review was pulled towards the catalog mean of 755 / 201.
+        double mean = 755.0 / 201;
+        assertThat(leaderboard.priorMean()).isCloseTo(mean, within(1e-9));
+        assertThat(top.get(1).score()).isCloseTo((5 + 10 * mean) / 11, within(1e-9));
+        assertThat(top.get(1).average_rating()).isEqualTo(5.0);
+    }
+
+    @Test
+    void addRatingShouldMoveTheBookInItsBoards() {
+        // Given: Two fantasy books and a history book with the same 20 reviews averaging 4.
+        rebuild(Stream.of(
+                        new BookRatingRow(1L, 20L, 80L),
+                        new BookRatingRow(2L, 20L, 80L),
+                        new BookRatingRow(3L, 20L, 80L)),
+                new BookCategoryRow(1L, FANTASY),
+                new BookCategoryRow(2L, FANTASY),
+                new BookCategoryRow(3L, HISTORY));
+
+        // When: Book 2 gets a 5 star review and book 1 has one of its ratings lowered.
+        leaderboard.addRating(2L, 1, 5);
+        leaderboard.addRating(1L, 0, -2);
+
+        // Then: We assert that book 2 leads fantasy and the catalog, and book 1 went last.
+        assertThat(ids(leaderboard.top(FANTASY, 2))).containsExactly(2L, 1L);
+        assertThat(ids(leaderboard.top(null, 2))).containsExactly(2L, 3L);
+        assertThat(ids(leaderboard.top(HISTORY, 2))).containsExactly(3L);
+    }
+
+    @Test
+    void boardsShouldRefillWhenTheirBooksDropOut() {
+        // Given: Ten books with 10 reviews each, book 10 rated best and book 1 worst.
+        rebuild(LongStream.rangeClosed(1, 10).mapToObj(id -> new BookRatingRow(id, 10L, 10 + 3 * id)));
+        assertThat(ids(leaderboard.top(null, 2))).containsExactly(10L, 9L);
+
+        // When: The four best kept books get very low ratings, one after the other.
+        for (long id = 10; id >= 7; id--) {
+            leaderboard.addRating(id, 100, 100);
+        }
+
+        // Then: We assert that the books left out of the board at build time are ranked again.
+        assertThat(ids(leaderboard.top(null, 2))).containsExactly(6L, 5L);
+    }
+
+    @Test
+    void categoryChangesShouldMoveBooksBetweenBoards() {
+        // Given: A rated fantasy book and an unrated history book.
+        rebuild(Stream.of(new BookRatingRow(1L, 5L, 20L)),
+                new BookCategoryRow(1L, FANTASY),
+                new BookCategoryRow(2L, HISTORY));
+
+        // When: Book 1 moves to history and book 2 gets its first review.
+        leaderboard.setCategories(1L, Set.of(HISTORY));
+        leaderboard.addRating(2L, 1, 3);
+
+        // Then: We assert that history ranks both and fantasy is gone.
+        assertThat(ids(leaderboard.top(HISTORY, 2))).containsExactly(1L, 2L);
+        assertThat(leaderboard.top(FANTASY, 2)).isEmpty();
+
+        // And: That a removed book leaves every board.
+        leaderboard.remove(1L);
+        assertThat(ids(leaderboard.top(null, 2))).containsExactly(2L);
+        assertThat(ids(leaderboard.top(HISTORY, 2))).containsExactly(2L);
+    }
+
+    @Test
+    void rebuildShouldReadAgainTheBooksRatedWhileItRuns() {
+        // Given: A review of book 1 committed while the aggregates are read, so they already count it.
+        Stream<BookRatingRow> ratings = Stream.of(new BookRatingRow(1L, 3L, 12L), new BookRatingRow(2L, 3L, 9L))
+                .peek(row -> {
+                    if (row.book_id() == 2L) {
+                        leaderboard.addRating(1L, 1, 4);
+                    }
+                });
+
+        // When: The leaderboard is built and reads the current aggregates of the books rated meanwhile.
+        leaderboard.rebuild(ratings, Stream.of(), book_ids -> {
+            assertThat(book_ids).containsExactly(1L);
+            return List.of(new BookRatingRow(1L, 3L, 12L));
+        });
+
+        // Then: We assert that the review was counted once.
+        RankedBook first = leaderboard.top(null, 1).get(0);
+        assertThat(first.book_id()).isEqualTo(1L);
+        assertThat(first.rating_count()).isEqualTo(3L);
+        assertThat(leaderboard.isReady()).isTrue();
+    }
+}
@@ -0,0 +1,121 @@
+package com.jordi.booknook.serviceTests;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jordi.booknook.cache.BookCache;
+import com.jordi.booknook.events.SpringContext;
+import com.jordi.booknook.payload.request.SortRequest;
+import com.jordi.booknook.payload.response.BookView;
+import com.jordi.booknook.search.BookSearchIndex;
+import com.jordi.booknook.search.TitleAutocomplete;
+import com.jordi.booknook.services.BookService;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Counts the statements needed to list books and serialize them the way the controllers do,
+ * so categories or images read once per book show up as a failing test.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({BookService.class, BookSearchIndex.class, TitleAutocomplete.class, BookCache.class, SpringContext.class})
+@Testcontainers(disabledWithoutDocker = true)
+public class BookListingQueryCountTest {
+    @Container
+    static MySQLContainer<?> mysql = new MySQLContainer<>("mysql:8.0");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", mysql::getJdbcUrl);
+        registry.add("spring.datasource.username", mysql::getUsername);
+        registry.add("spring.datasource.password", mysql::getPassword);
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "create-drop");
+    }
+
+    @Autowired
+    BookService service;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    EntityManager entityManager;
+
+    ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @BeforeEach
+    void setUp(){
+        jdbcTemplate.batchUpdate("INSERT INTO category_entity (category_id, name) VALUES (?, ?)",
+                LongStream.rangeClosed(1, 5).mapToObj(id -> new Object[]{id, "Category " + id}).toList());
+    }
+
+    // Every book gets two categories and two images.
+    private void seedBooks(long fromId, long toId) {
+        List<Long> ids = LongStream.rangeClosed(fromId, toId).boxed().toList();
+
+        jdbcTemplate.batchUpdate("INSERT INTO books (book_id, title, description, cover, price) VALUES (?, ?, ?, ?, ?)",
+                ids.stream().map(id -> new Object[]{id, "Book " + id, "Description " + id, "cover.jpg", 10 + id % 20}).toList());
+        jdbcTemplate.batchUpdate("INSERT INTO book_category (book_id, category_id) VALUES (?, ?)",
+                ids.stream().flatMap(id -> List.of(new Object[]{id, id % 5 + 1}, new Object[]{id, (id + 1) % 5 + 1}).stream()).toList());
+        jdbcTemplate.batchUpdate("INSERT INTO book_images (book_id, media) VALUES (?, ?)",
+                ids.stream().flatMap(id -> List.of(new Object[]{id, "front.jpg"}, new Object[]{id, "back.jpg"}).stream()).toList());
+    }
+
+    private long countStatements(Supplier<List<BookView>> listing) throws Exception {
+        entityManager.clear();
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<BookView> books = listing.get();
+        objectMapper.writeValueAsString(books);
+
+        return statistics.getPrepareStatementCount();
+    }
+
+    @Test
+    void getBooksShouldUseTheSameNumberOfStatementsForAnyCatalogSize() throws Exception {
+        // Given: A catalog of 50 books.
+        seedBooks(1, 50);
+        long smallCatalog = countStatements(service::getBooks);
+
+        // When: The catalog grows to 500 books.
+        seedBooks(51, 500);
+        long largeCatalog = countStatements(service::getBooks);
+
+        // Then: We assert that books, categories and images are loaded with one statement each.
+        assertThat(smallCatalog).isEqualTo(3);
+        assertThat(largeCatalog).isEqualTo(smallCatalog);
+    }
+
+    @Test
+    void pagedListingsShouldLoadAssociationsInBulk() throws Exception {
+        // Given: A catalog of 500 books.
+        seedBooks(1, 500);
+
+        // When: We list a sorted page and a keyset page.
+        long sorted = countStatements(() -> service.getAllBooksSortedByPriceOrReview(new SortRequest("priceAsc", 0, 100)));
+        long keyset = countStatements(() -> service.getBooksPage(null, 100).items());
+
+        // Then: We assert that each of them takes three statements.
+        assertThat(sorted).isEqualTo(3);
+        assertThat(keyset).isEqualTo(3);
+    }
+}
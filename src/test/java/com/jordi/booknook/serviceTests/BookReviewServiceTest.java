@@ -1,18 +1,30 @@
 package com.jordi.booknook.serviceTests;
 
+import com.jordi.booknook.events.BookDetailsChangedEvent;
+import com.jordi.booknook.exceptions.InvalidCursorException;
+import com.jordi.booknook.exceptions.InvalidSortException;
+import com.jordi.booknook.events.BookRatingChangedEvent;
 import com.jordi.booknook.models.BookEntity;
 import com.jordi.booknook.models.BookReviewEntity;
 import com.jordi.booknook.models.UserEntity;
 import com.jordi.booknook.payload.request.NewReviewRequest;
 import com.jordi.booknook.payload.request.UpdateReviewRequest;
+import com.jordi.booknook.payload.response.BookView;
+import com.jordi.booknook.payload.response.CursorPage;
 import com.jordi.booknook.payload.response.NewReviewResponse;
+import com.jordi.booknook.payload.response.RatingHistogram;
+import com.jordi.booknook.payload.response.ReviewView;
+import com.jordi.booknook.payload.response.ReviewsPageResponse;
 import com.jordi.booknook.payload.response.UpdateReviewResponse;
+import com.jordi.booknook.payload.response.UserReviewView;
 import com.jordi.booknook.repositories.BookRepository;
 import com.jordi.booknook.repositories.BookReviewRepository;
 import com.jordi.booknook.repositories.UserRepository;
+import com.jordi.booknook.security.CurrentUser;
 import com.jordi.booknook.security.CurrentUserResolver;
 import com.jordi.booknook.security.UserDetailsImplementation;
 import com.jordi.booknook.services.BookReviewService;
+import com.jordi.booknook.services.KeysetCursor;
 import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
@@ -21,6 +33,8 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.api.function.Executable;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -28,12 +42,16 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -52,6 +70,8 @@ public class BookReviewServiceTest {
     @Mock
     CurrentUserResolver currentUserResolver;
     @Mock
+    ApplicationEventPublisher eventPublisher;
+    @Mock
     Authentication auth;
     @Mock
     UserDetailsImplementation userDetails;
@@ -63,6 +83,7 @@ public class BookReviewServiceTest {
         BigDecimal price = new BigDecimal("12.50");
 
         user1 = new UserEntity("jordi", "jordi@email.com", "password");
+        user1.setUser_id(1L);
 
         book1 = new BookEntity("cover1", "title1", "description1",
                 price, date, date);
@@ -74,23 +95,27 @@ public class BookReviewServiceTest {
 
     @BeforeEach
     void setUp(){
-        this.service = new BookReviewService(reviewRepository,bookRepository,userRepository,currentUserResolver );
+        this.service = new BookReviewService(reviewRepository,bookRepository,userRepository,currentUserResolver,eventPublisher);
     }
 
     @Test
     void getReviewsByBookShouldReturnAll(){
         // Given: A list of 3 reviews assigned to the book1 entity.
-        BookReviewEntity review1 = new BookReviewEntity(book1,user1,5);
-        BookReviewEntity review2 = new BookReviewEntity(book1,user1,2);
-        BookReviewEntity review3 = new BookReviewEntity(book1,user1,3);
+        LocalDateTime date = LocalDateTime.now();
+        BookView book = new BookView(book1.getBook_id(), book1.getTitle(), book1.getDescription(),
+                book1.getCover(), book1.getPrice(), 3L, 3.3);
 
-        when(bookRepository.findById(book1.getBook_id())).thenReturn(Optional.of(book1));
+        ReviewView review1 = new ReviewView(1L, book1.getBook_id(), 5, null, date, date);
+        ReviewView review2 = new ReviewView(2L, book1.getBook_id(), 2, null, date, date);
+        ReviewView review3 = new ReviewView(3L, book1.getBook_id(), 3, null, date, date);
 
-        when(reviewRepository.findBookReviewEntitiesByBook(book1))
+        when(bookRepository.findViewById(book1.getBook_id())).thenReturn(Optional.of(book));
+
+        when(reviewRepository.findViewsByBook(book1.getBook_id()))
                 .thenReturn(List.of(review1,review2,review3));
 
         // When: The service method getReviewsByBook is called with the book1 entity id.
-        List<BookReviewEntity> reviews = service.getReviewsByBook(book1.getBook_id()).reviews();
+        List<ReviewView> reviews = service.getReviewsByBook(book1.getBook_id()).reviews();
 
         // Then: We get the exact 3 reviews we added for this test.
         assertThat(reviews).containsExactly(review1,review2,review3);
@@ -113,28 +138,141 @@ public class BookReviewServiceTest {
         assertEquals(expectedErrorMessage ,exception.getMessage());
     }
 
+    @Test
+    void getReviewsPageShouldReturnTheHistogramAndACursorOnTheFirstPage(){
+        // Given: A book with three reviews of 5, 3 and 2 stars, asked for in pages of 2 by highest rating.
+        LocalDateTime date = LocalDateTime.now();
+        ReviewView five = new ReviewView(4L, book1.getBook_id(), 5, null, date, date);
+        ReviewView three = new ReviewView(9L, book1.getBook_id(), 3, null, date, date);
+        ReviewView two = new ReviewView(6L, book1.getBook_id(), 2, null, date, date);
+
+        when(bookRepository.findRatingHistogram(book1.getBook_id()))
+                .thenReturn(Optional.of(new RatingHistogram(3L, 10L, 0L, 1L, 1L, 0L, 1L)));
+        when(reviewRepository.findHighestByBookAfter(book1.getBook_id(), 6, Long.MAX_VALUE, Limit.of(3)))
+                .thenReturn(List.of(five, three, two));
+
+        // When: The first page is requested.
+        ReviewsPageResponse page = service.getReviewsPage(book1.getBook_id(), "highest", null, 2);
+
+        // Then: We assert that it holds the two best reviews and the histogram from the stored aggregates.
+        assertThat(page.reviews()).containsExactly(five, three);
+        assertThat(page.histogram().average_rating()).isEqualTo(3.3);
+        assertThat(page.histogram().stars()).containsExactly(Map.entry(1, 0L), Map.entry(2, 1L), Map.entry(3, 1L),
+                Map.entry(4, 0L), Map.entry(5, 1L));
+
+        // And: That the cursor continues after the last review of the page.
+        assertThat(page.next_cursor()).isEqualTo(KeysetCursor.encode("HIGHEST", 3, 9L));
+    }
+
+    @Test
+    void getReviewsPageShouldContinueFromTheCursorWithoutTheHistogram(){
+        // Given: A cursor pointing after a 3 star review with id 9.
+        LocalDateTime date = LocalDateTime.now();
+        ReviewView two = new ReviewView(6L, book1.getBook_id(), 2, null, date, date);
+
+        when(reviewRepository.findHighestByBookAfter(book1.getBook_id(), 3, 9L, Limit.of(3)))
+                .thenReturn(List.of(two));
+
+        // When: The next page is requested with it.
+        ReviewsPageResponse page = service.getReviewsPage(book1.getBook_id(), "highest",
+                KeysetCursor.encode("HIGHEST", 3, 9L), 2);
+
+        // Then: We assert that it is the last page and that the histogram wasn't read again.
+        assertThat(page.reviews()).containsExactly(two);
+        assertThat(page.next_cursor()).isNull();
+        assertThat(page.histogram()).isNull();
+        verify(bookRepository, never()).findRatingHistogram(anyLong());
+    }
+
+    @Test
+    void getReviewsPageShouldReadTheLowestFirstWithEqualRatingsOldestFirst(){
+        // Given: Two 1 star reviews, with ids 3 and 7, asked for in pages of 1 by lowest rating.
+        LocalDateTime date = LocalDateTime.now();
+        ReviewView older = new ReviewView(3L, book1.getBook_id(), 1, null, date, date);
+        ReviewView newer = new ReviewView(7L, book1.getBook_id(), 1, null, date, date);
+
+        when(bookRepository.findRatingHistogram(book1.getBook_id()))
+                .thenReturn(Optional.of(new RatingHistogram(2L, 2L, 2L, 0L, 0L, 0L, 0L)));
+        when(reviewRepository.findLowestByBookAfter(book1.getBook_id(), 0, 0L, Limit.of(2)))
+                .thenReturn(List.of(older, newer));
+
+        // When: The first page is requested.
+        ReviewsPageResponse page = service.getReviewsPage(book1.getBook_id(), "lowest", null, 1);
+
+        // Then: We assert that the seek starts before every row and the cursor continues after the older review.
+        assertThat(page.reviews()).containsExactly(older);
+        assertThat(page.next_cursor()).isEqualTo(KeysetCursor.encode("LOWEST", 1, 3L));
+    }
+
+    @Test
+    void getReviewsPageShouldRejectAnUnknownSort(){
+        // Given: A misspelled sort.
+        // When: It is used to read the reviews of a book.
+        Executable action = () -> service.getReviewsPage(book1.getBook_id(), "higest", null, 2);
+
+        // Then: We assert that it is rejected instead of falling back to newest first.
+        assertThrows(InvalidSortException.class, action);
+        verify(bookRepository, never()).findRatingHistogram(anyLong());
+    }
+
+    @Test
+    void getReviewsPageShouldRejectACursorOfAnotherSort(){
+        // Given: A cursor from a page sorted by newest.
+        String cursor = KeysetCursor.encode("NEWEST", 0, 9L);
+
+        // When: It is used to read the reviews sorted by lowest rating.
+        Executable action = () -> service.getReviewsPage(book1.getBook_id(), "lowest", cursor, 2);
+
+        // Then: We assert that it is rejected as invalid.
+        assertThrows(InvalidCursorException.class, action);
+    }
+
     @Test
     void getReviewsByUserShouldReturnTheCurrentUserReviews(){
         // Given: A logged user "jordi" with 2 assigned reviews.
-        when(currentUserResolver.requireCurrentUser()).thenReturn(user1);
-        when(userRepository.findByUsername(user1.getUsername()))
-                .thenReturn(Optional.of(user1));
+        when(currentUserResolver.requireCurrentUser()).thenReturn(CurrentUser.from(user1));
 
         SecurityContextHolder.getContext().setAuthentication(auth);
 
-        BookReviewEntity review1 = new BookReviewEntity(book1,user1,5);
-        BookReviewEntity review2 = new BookReviewEntity(book1,user1,2);
+        LocalDateTime date = LocalDateTime.now();
+        ReviewView review1 = new ReviewView(1L, book1.getBook_id(), 5, null, date, date);
+        ReviewView review2 = new ReviewView(2L, book1.getBook_id(), 2, null, date, date);
 
-        when(reviewRepository.findBookReviewEntitiesByUser(user1))
+        when(reviewRepository.findViewsByUser(user1.getUser_id()))
                 .thenReturn(List.of(review1,review2));
 
         // When: The getReviewsByUser method is called with the current logged user.
-        List<BookReviewEntity> reviews = service.getReviewsByUser().reviews();
+        List<ReviewView> reviews = service.getReviewsByUser().reviews();
 
         // Then: We assert that we get the exact 2 reviews that the current user has assigned.
         assertThat(reviews).containsExactly(review1,review2);
     }
 
+    @Test
+    void getReviewsPageByUserShouldContinueFromTheCreationDateOfTheLastReview(){
+        // Given: A logged user "jordi" with 3 reviews, asked for in pages of 2.
+        when(currentUserResolver.requireCurrentUser()).thenReturn(CurrentUser.from(user1));
+
+        LocalDateTime date = LocalDateTime.of(2024, 5, 1, 10, 30);
+        UserReviewView newest = new UserReviewView(7L, book1.getBook_id(), "Title", "cover.jpg", 4, null, date, date);
+        UserReviewView middle = new UserReviewView(5L, book1.getBook_id(), "Title", "cover.jpg", 3, null, date.minusDays(1), date);
+        UserReviewView oldest = new UserReviewView(2L, book1.getBook_id(), "Title", "cover.jpg", 5, null, date.minusDays(2), date);
+
+        when(reviewRepository.findNewestByUser(user1.getUser_id(), Limit.of(3)))
+                .thenReturn(List.of(newest, middle, oldest));
+        when(reviewRepository.findNewestByUserBefore(user1.getUser_id(), date.minusDays(1), 5L, Limit.of(3)))
+                .thenReturn(List.of(oldest));
+
+        // When: The first page and the one after it are requested.
+        CursorPage<UserReviewView> firstPage = service.getReviewsPageByUser(null, 2);
+        CursorPage<UserReviewView> secondPage = service.getReviewsPageByUser(firstPage.next_cursor(), 2);
+
+        // Then: We assert that the second page starts after the last review of the first one and is the last.
+        assertThat(firstPage.items()).containsExactly(newest, middle);
+        assertThat(secondPage.items()).containsExactly(oldest);
+        assertThat(secondPage.next_cursor()).isNull();
+    }
+
     @Test
     void addReviewByUserShouldAddTheReviewsAndShouldReturn(){
         // Given: A request with a valid book and a review by a logged user.
@@ -142,9 +280,7 @@ public class BookReviewServiceTest {
 
         when(bookRepository.findById(book1.getBook_id())).thenReturn(Optional.of(book1));
 
-        when(currentUserResolver.requireCurrentUser()).thenReturn(user1);
-        when(userRepository.findByUsername(user1.getUsername()))
-                .thenReturn(Optional.of(user1));
+        when(currentUserResolver.requireCurrentUser()).thenReturn(CurrentUser.from(user1));
 
         SecurityContextHolder.getContext().setAuthentication(auth);
 
@@ -166,6 +302,11 @@ public class BookReviewServiceTest {
                 review1.getReview());
 
        assertThat(response).isEqualTo(expectedResponse);
+
+       // And: We verify that the rating aggregates of the book were incremented with the new rating.
+       verify(bookRepository).addRating(book1.getBook_id(), request.rating());
+       verify(eventPublisher).publishEvent(new BookDetailsChangedEvent(book1.getBook_id()));
+       verify(eventPublisher).publishEvent(new BookRatingChangedEvent(book1.getBook_id(), 1, request.rating()));
     }
 
     @Test
@@ -175,9 +316,7 @@ public class BookReviewServiceTest {
 
         NewReviewRequest noBookReviewRequest = new NewReviewRequest(nonExistentId,4,"Great");
 
-        when(currentUserResolver.requireCurrentUser()).thenReturn(user1);
-        when(userRepository.findByUsername(user1.getUsername()))
-                .thenReturn(Optional.of(user1));
+        when(currentUserResolver.requireCurrentUser()).thenReturn(CurrentUser.from(user1));
 
         SecurityContextHolder.getContext().setAuthentication(auth);
 
@@ -196,13 +335,11 @@ public class BookReviewServiceTest {
     @Test
     void updateReviewShouldUpdateTheReviewAndShouldReturn() {
         // Given: A request with a valid review that has both rating and review by the owner of that review.
-        when(currentUserResolver.requireCurrentUser()).thenReturn(user1);
-        when(userRepository.findByUsername(user1.getUsername()))
-                .thenReturn(Optional.of(user1));
+        when(currentUserResolver.requireCurrentUser()).thenReturn(CurrentUser.from(user1));
 
         SecurityContextHolder.getContext().setAuthentication(auth);
 
-        when(reviewRepository.findById(2L))
+        when(reviewRepository.findByIdForUpdate(2L))
                 .thenReturn(Optional.of(review));
 
         UpdateReviewRequest request = new UpdateReviewRequest(3, "No esta mal.");
@@ -235,9 +372,7 @@ public class BookReviewServiceTest {
 
         UpdateReviewRequest request = new UpdateReviewRequest(3, "No esta mal.");
 
-        when(currentUserResolver.requireCurrentUser()).thenReturn(user1);
-        when(userRepository.findByUsername(user1.getUsername()))
-                .thenReturn(Optional.of(user1));
+        when(currentUserResolver.requireCurrentUser()).thenReturn(CurrentUser.from(user1));
 
         SecurityContextHolder.getContext().setAuthentication(auth);
 
@@ -260,13 +395,12 @@ public class BookReviewServiceTest {
 
         UserEntity nonAllowedUser = new UserEntity(
                 "Tamara", "tamara@gmail.com", "asdasda");
+        nonAllowedUser.setUser_id(2L);
 
-        when(reviewRepository.findById(2L))
+        when(reviewRepository.findByIdForUpdate(2L))
                 .thenReturn(Optional.of(review));
 
-        when(currentUserResolver.requireCurrentUser()).thenReturn(user1);
-        when(userRepository.findByUsername(user1.getUsername()))
-                .thenReturn(Optional.of(nonAllowedUser));
+        when(currentUserResolver.requireCurrentUser()).thenReturn(CurrentUser.from(nonAllowedUser));
 
         SecurityContextHolder.getContext().setAuthentication(auth);
 
@@ -287,13 +421,11 @@ public class BookReviewServiceTest {
     @Test
     void updateReviewShouldUpdateTheReviewWithOnlyARatingAndShouldReturn() {
         // Given: A request with a valid review that has only a rating by the owner of that review.
-        when(currentUserResolver.requireCurrentUser()).thenReturn(user1);
-        when(userRepository.findByUsername(user1.getUsername()))
-                .thenReturn(Optional.of(user1));
+        when(currentUserResolver.requireCurrentUser()).thenReturn(CurrentUser.from(user1));
 
         SecurityContextHolder.getContext().setAuthentication(auth);
 
-        when(reviewRepository.findById(2L))
+        when(reviewRepository.findByIdForUpdate(2L))
                 .thenReturn(Optional.of(review));
 
         UpdateReviewRequest request = new UpdateReviewRequest(4, null);
@@ -334,13 +466,11 @@ public class BookReviewServiceTest {
     @Test
     void updateReviewShouldUpdateTheReviewWithOnlyAReviewTextAndShouldReturn() {
         // Given: A request with a valid review that has only a review text by the owner of that review.
-        when(currentUserResolver.requireCurrentUser()).thenReturn(user1);
-        when(userRepository.findByUsername(user1.getUsername()))
-                .thenReturn(Optional.of(user1));
+        when(currentUserResolver.requireCurrentUser()).thenReturn(CurrentUser.from(user1));
 
         SecurityContextHolder.getContext().setAuthentication(auth);
 
-        when(reviewRepository.findById(2L))
+        when(reviewRepository.findByIdForUpdate(2L))
                 .thenReturn(Optional.of(review));
 
         UpdateReviewRequest request = new UpdateReviewRequest(null, "No esta mal.");
@@ -379,4 +509,28 @@ public class BookReviewServiceTest {
         // And: That the rating has not changed comparing the initialReview with the updated one.
         assertThat(response.rating()).isEqualTo(initialReview.getRating());
     }
+
+    @Test
+    void updateReviewShouldAdjustTheBookRatingAggregatesByTheRatingDifference() {
+        // Given: A review with a rating of 2 owned by the logged user and a request that changes it to 5.
+        when(currentUserResolver.requireCurrentUser()).thenReturn(CurrentUser.from(user1));
+
+        SecurityContextHolder.getContext().setAuthentication(auth);
+
+        BookReviewEntity lowReview = new BookReviewEntity(book1, user1, 2, "Meh.");
+        lowReview.setBook_reviews_id(7L);
+
+        when(reviewRepository.findByIdForUpdate(7L))
+                .thenReturn(Optional.of(lowReview));
+
+        UpdateReviewRequest request = new UpdateReviewRequest(5, null);
+
+        // When: We call the updateReviewById with the review id and the request.
+        service.updateReviewById(lowReview.getBook_reviews_id(), request);
+
+        // Then: We verify that the book rating aggregates were adjusted from the old rating to the new one.
+        verify(bookRepository).adjustRating(book1.getBook_id(), 2, 5);
+        verify(eventPublisher).publishEvent(new BookDetailsChangedEvent(book1.getBook_id()));
+        verify(eventPublisher).publishEvent(new BookRatingChangedEvent(book1.getBook_id(), 0, 3));
+    }
 }
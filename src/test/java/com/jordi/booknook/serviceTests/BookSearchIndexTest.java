@@ -0,0 +1,90 @@
+package com.jordi.booknook.serviceTests;
+
+import com.jordi.booknook.search.BookSearchDocument;
+import com.jordi.booknook.search.BookSearchIndex;
+import com.jordi.booknook.search.SearchResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BookSearchIndexTest {
+    BookSearchIndex index;
+
+    @BeforeEach
+    void setUp(){
+        this.index = new BookSearchIndex();
+        index.rebuild(Stream.of(
+                new BookSearchDocument(1L, "Canción de hielo y fuego", "Una saga de fantasía épica."),
+                new BookSearchDocument(2L, "El señor de los anillos", "Fantasía clásica con anillos y elfos."),
+                new BookSearchDocument(3L, "Cocina española", "Recetas tradicionales.")));
+    }
+
+    @Test
+    void searchShouldMatchIgnoringAccentsAndCase() {
+        // Given: An index with a book titled "Canción de hielo y fuego".
+        // When: We search without accents and in upper case.
+        SearchResult result = index.search("CANCION", 0, 10);
+
+        // Then: We assert that the book is found.
+        assertThat(result.book_ids()).containsExactly(1L);
+    }
+
+    @Test
+    void searchShouldOnlyReturnBooksContainingEveryTerm() {
+        // Given: Two books about fantasy but only one of them with elves.
+        // When: We search for both terms.
+        SearchResult result = index.search("fantasia elfos", 0, 10);
+
+        // Then: We assert that only the book containing both terms is returned.
+        assertThat(result.book_ids()).containsExactly(2L);
+        assertThat(result.total()).isEqualTo(1);
+    }
+
+    @Test
+    void searchShouldRankTitleMatchesFirstAndPaginate() {
+        // Given: A new book with "fantasia" in the title, the other two only have it in the description.
+        index.index(new BookSearchDocument(4L, "Fantasía urbana", "Magia en la ciudad."));
+
+        // When: We search for "fantasia" asking for pages of 2 books.
+        SearchResult firstPage = index.search("fantasia", 0, 2);
+        SearchResult secondPage = index.search("fantasia", 1, 2);
+
+        // Then: We assert that the title match comes first and the rest follow on the next page.
+        assertThat(firstPage.total()).isEqualTo(3);
+        assertThat(firstPage.book_ids()).containsExactly(4L, 1L);
+        assertThat(secondPage.book_ids()).containsExactly(2L);
+    }
+
+    @Test
+    void searchShouldReflectUpdatedAndRemovedBooks() {
+        // Given: A book that changes its title and another that is removed.
+        index.index(new BookSearchDocument(3L, "Cocina mexicana", "Recetas tradicionales."));
+        index.remove(2L);
+
+        // When: We search for the old and new terms.
+        // Then: We assert that the index only returns the current data.
+        assertThat(index.search("española", 0, 10).book_ids()).isEmpty();
+        assertThat(index.search("mexicana", 0, 10).book_ids()).containsExactly(3L);
+        assertThat(index.search("anillos", 0, 10).book_ids()).isEmpty();
+        assertThat(index.size()).isEqualTo(2);
+    }
+
+    @Test
+    void searchShouldPaginateEqualScoresByBookId() {
+        // Given: Three books with the same text, the first of them updated so it is indexed last.
+        index.rebuild(Stream.of(
+                new BookSearchDocument(1L, "Dune", "Arena."),
+                new BookSearchDocument(2L, "Dune", "Arena."),
+                new BookSearchDocument(3L, "Dune", "Arena.")));
+        index.index(new BookSearchDocument(1L, "Dune", "Arena."));
+
+        // When: We search for them one per page.
+        // Then: We assert that the pages follow the book ids, without repeating or dropping any.
+        assertThat(index.search("dune", 0, 1).book_ids()).containsExactly(1L);
+        assertThat(index.search("dune", 1, 1).book_ids()).containsExactly(2L);
+        assertThat(index.search("dune", 2, 1).book_ids()).containsExactly(3L);
+    }
+}
@@ -1,9 +1,17 @@
 package com.jordi.booknook.serviceTests;
 
-import com.jordi.booknook.models.BookEntity;
 import com.jordi.booknook.models.UniversalSearch;
+import com.jordi.booknook.cache.BookCache;
+import com.jordi.booknook.events.BookDetailsChangedEvent;
+import com.jordi.booknook.exceptions.IndexNotReadyException;
+import com.jordi.booknook.exceptions.InvalidCursorException;
 import com.jordi.booknook.payload.request.SortRequest;
+import com.jordi.booknook.payload.response.BookView;
+import com.jordi.booknook.payload.response.CursorPage;
 import com.jordi.booknook.repositories.BookRepository;
+import com.jordi.booknook.search.BookSearchDocument;
+import com.jordi.booknook.search.BookSearchIndex;
+import com.jordi.booknook.search.TitleAutocomplete;
 import com.jordi.booknook.services.BookService;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
@@ -11,23 +19,30 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
 
 import java.math.BigDecimal;
-import java.time.LocalDateTime;
+import java.time.Duration;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 
 @ExtendWith(MockitoExtension.class)
 public class BookServiceTest {
     BookService service;
-    static BookEntity book1;
+    BookSearchIndex searchIndex;
+    BookCache bookCache;
+    static BookView book1;
 
     @Mock
     BookRepository bookRepository;
@@ -36,38 +51,37 @@ public class BookServiceTest {
     static void setUpCommonEntities(){
         // Create common entities that can be reused in multiple tests.
         BigDecimal price = new BigDecimal("12.50");
-        LocalDateTime date = LocalDateTime.now();
 
-        book1 = new BookEntity(
-                "Portada","Nuevo libro", "Un gran libro",price,date,date);
-        book1.setBook_id(5L);
+        book1 = new BookView(
+                5L, "Nuevo libro", "Un gran libro", "Portada", price, 0L, 0.0);
     }
 
     @BeforeEach
     void setUp(){
-        this.service =  new BookService(bookRepository);
+        this.searchIndex = new BookSearchIndex();
+        this.bookCache = new BookCache(100, Duration.ofMinutes(10), Duration.ofSeconds(30));
+        this.service =  new BookService(bookRepository, searchIndex, new TitleAutocomplete(), bookCache);
     }
 
     @Test
     void getAllBooksShouldReturn(){
         // Given: A valid request.
         BigDecimal price = new BigDecimal("12.50");
-        LocalDateTime date = LocalDateTime.now();
 
-        BookEntity book = new BookEntity(
-                "Portada","Nuevo libro", "Un gran libro",price,date,date);
-        BookEntity book2 = new BookEntity(
-                "Portada 1","Nuevo libro 2", "Un gran libro 2",price,date,date);
-        BookEntity book3 = new BookEntity(
-                "Portada 2","Nuevo libro 3", "Un gran libro 3",price,date,date);
+        BookView book = new BookView(
+                null, "Nuevo libro", "Un gran libro", "Portada", price, 0L, 0.0);
+        BookView book2 = new BookView(
+                null, "Nuevo libro 2", "Un gran libro 2", "Portada 1", price, 0L, 0.0);
+        BookView book3 = new BookView(
+                null, "Nuevo libro 3", "Un gran libro 3", "Portada 2", price, 0L, 0.0);
 
-        when(bookRepository.findAll())
+        when(bookRepository.findAllViews())
                 .thenReturn(List.of(book,book2,book3));
 
         // When: We call the getBooks service method.
-        List<BookEntity> books = service.getBooks();
+        List<BookView> books = service.getBooks();
 
-        List<BookEntity> expectedBooks = List.of(book, book2, book3);
+        List<BookView> expectedBooks = List.of(book, book2, book3);
 
         // Then: We assert that the list returned has exactly three books.
         assertThat(books).hasSize(3);
@@ -81,28 +95,78 @@ public class BookServiceTest {
         // Given: A valid request with a valid book id.
         Long bookId = 5L;
 
-        when(bookRepository.findById(bookId))
+        when(bookRepository.findViewById(bookId))
                 .thenReturn(Optional.of(book1));
 
         // When: We call the getBookById service method with a valid book id.
-        BookEntity book = service.getBookById(book1.getBook_id()).get();
+        BookView book = service.getBookById(book1.book_id()).get();
 
         // Then: We assert that the book is equal to book1.
         assertThat(book).isEqualTo(book1);
     }
 
+    @Test
+    void getBookByIdShouldOnlyQueryTheDatabaseOnceForRepeatedCalls(){
+        // Given: A book that exists.
+        when(bookRepository.findViewById(book1.book_id()))
+                .thenReturn(Optional.of(book1));
+
+        // When: We ask for the same book three times.
+        service.getBookById(book1.book_id());
+        service.getBookById(book1.book_id());
+        Optional<BookView> book = service.getBookById(book1.book_id());
+
+        // Then: We assert that the book is returned and the database was queried only once.
+        assertThat(book).contains(book1);
+        verify(bookRepository, times(1)).findViewById(book1.book_id());
+        assertThat(service.getBookCacheStats().hits()).isEqualTo(2);
+    }
+
+    @Test
+    void getBookByIdShouldCacheBooksThatDoNotExist(){
+        // Given: A book id that doesn't exist.
+        Long nonExistentId = 404L;
+
+        when(bookRepository.findViewById(nonExistentId))
+                .thenReturn(Optional.empty());
+
+        // When: We ask for it twice.
+        service.getBookById(nonExistentId);
+        Optional<BookView> book = service.getBookById(nonExistentId);
+
+        // Then: We assert that the book is not found and the database was queried only once.
+        assertThat(book).isEmpty();
+        verify(bookRepository, times(1)).findViewById(nonExistentId);
+    }
+
+    @Test
+    void getBookByIdShouldReloadTheBookAfterItsDetailsChange(){
+        // Given: A cached book.
+        when(bookRepository.findViewById(book1.book_id()))
+                .thenReturn(Optional.of(book1));
+
+        service.getBookById(book1.book_id());
+
+        // When: Its details change and we ask for it again.
+        bookCache.onBookDetailsChanged(new BookDetailsChangedEvent(book1.book_id()));
+        service.getBookById(book1.book_id());
+
+        // Then: We verify that the database was queried again.
+        verify(bookRepository, times(2)).findViewById(book1.book_id());
+    }
+
     @Test
     void searchShouldReturn() {
         // Given: A valid request with a search string.
         UniversalSearch search = new UniversalSearch("gran");
 
-        when(bookRepository.findAll(any(Example.class)))
+        when(bookRepository.searchViews("%gran%", PageRequest.of(0, 20)))
                 .thenReturn(List.of(book1));
 
         // When: We call the search service method with the valid search.
-        List<BookEntity> books = service.search(search);
+        List<BookView> books = service.search(search);
 
-        List<BookEntity> expectedBooks = List.of(book1);
+        List<BookView> expectedBooks = List.of(book1);
 
         // Then: We assert that the list returned has exactly one book.
         assertThat(books).hasSize(1);
@@ -111,15 +175,71 @@ public class BookServiceTest {
         assertThat(books).isEqualTo(expectedBooks);
     }
 
+    @Test
+    void searchShouldEscapeLikeWildcardsWhenSearchingTheDatabase() {
+        // Given: A search containing the LIKE wildcards "%" and "_".
+        UniversalSearch search = new UniversalSearch("100%_Real");
+
+        when(bookRepository.searchViews("%100!%!_real%", PageRequest.of(0, 20)))
+                .thenReturn(List.of());
+
+        // When: We call the search service method before the index is built.
+        List<BookView> books = service.search(search);
+
+        // Then: We verify that the wildcards were escaped and the value lower cased.
+        verify(bookRepository).searchViews("%100!%!_real%", PageRequest.of(0, 20));
+        assertThat(books).isEmpty();
+    }
+
+    @Test
+    void searchShouldReadTheRequestedPageFromTheDatabaseBeforeTheIndexIsBuilt() {
+        // Given: A search for the third page, asking for more books than a page can hold.
+        UniversalSearch search = new UniversalSearch("gran", 2, 500);
+
+        when(bookRepository.searchViews("%gran%", PageRequest.of(2, 100)))
+                .thenReturn(List.of(book1));
+
+        // When: We call the search service method before the index is built.
+        List<BookView> books = service.search(search);
+
+        // Then: We assert that only that page was read, with the same size limit as the index.
+        assertThat(books).containsExactly(book1);
+    }
+
+    @Test
+    void searchShouldReturnTheIndexedBooksInRankingOrder() {
+        // Given: A search index with two books, one of them matching the search in the title.
+        BigDecimal price = new BigDecimal("12.50");
+
+        BookView book2 = new BookView(
+                6L, "La gran aventura", "Una novela", "Portada 2", price, 0L, 0.0);
+
+        searchIndex.rebuild(Stream.of(
+                new BookSearchDocument(book1.book_id(), book1.title(), book1.description()),
+                new BookSearchDocument(book2.book_id(), book2.title(), book2.description())));
+
+        // An IN query doesn't guarantee any order, so we mock it returning the books in id order.
+        when(bookRepository.findViewsInOrder(List.of(6L, 5L))).thenCallRealMethod();
+        when(bookRepository.withDetails(any())).thenCallRealMethod();
+        when(bookRepository.findViewsByIds(List.of(6L, 5L)))
+                .thenReturn(List.of(book1, book2));
+
+        // When: We call the search service method with a search matching both books.
+        List<BookView> books = service.search(new UniversalSearch("gran"));
+
+        // Then: We assert that the book matching in the title comes first.
+        assertThat(books).containsExactly(book2, book1);
+    }
+
     @Test
     void searchShouldReturnEmptyListWhenEmptyStringSearch() {
         // Given: A valid request with an empty string search value.
         UniversalSearch search = new UniversalSearch("");
 
         // When: We call the search service method with the valid empty string search.
-        List<BookEntity> books = service.search(search);
+        List<BookView> books = service.search(search);
 
-        List<BookEntity> expectedEmptyList = List.of();
+        List<BookView> expectedEmptyList = List.of();
 
         // Then: We assert that the list returned has exactly zero books.
         assertThat(books).hasSize(0);
@@ -136,34 +256,33 @@ public class BookServiceTest {
         BigDecimal price = new BigDecimal("12.50");
         BigDecimal price2 = new BigDecimal("13.50");
         BigDecimal price3 = new BigDecimal("21.50");
-        LocalDateTime date = LocalDateTime.now();
 
-        BookEntity book = new BookEntity(
-                "Portada","Nuevo libro", "Un gran libro",price,date,date);
-        BookEntity book2 = new BookEntity(
-                "Portada 1","Nuevo libro 2", "Un gran libro 2",price2,date,date);
-        BookEntity book3 = new BookEntity(
-                "Portada 2","Nuevo libro 3", "Un gran libro 3",price3,date,date);
+        BookView book = new BookView(
+                null, "Nuevo libro", "Un gran libro", "Portada", price, 0L, 0.0);
+        BookView book2 = new BookView(
+                null, "Nuevo libro 2", "Un gran libro 2", "Portada 1", price2, 0L, 0.0);
+        BookView book3 = new BookView(
+                null, "Nuevo libro 3", "Un gran libro 3", "Portada 2", price3, 0L, 0.0);
 
 
         SortRequest request = new SortRequest("priceDesc");
 
-        List<BookEntity> allBooks = List.of(book,book2,book3);
+        List<BookView> allBooks = List.of(book,book2,book3);
 
         // We mock the repository method call that filters the books and returns them ordered by Price descendent.
-        when(bookRepository.findAllSorted(request.sortBy()))
+        when(bookRepository.findAllSorted(request.sortBy(), 0, 20))
                 .thenAnswer( invocation -> {
                     return allBooks.stream()
                             .sorted((Comparator
-                                    .comparing(BookEntity::getPrice)
+                                    .comparing(BookView::price)
                                     .reversed()))
                             .toList();
         });
 
         // When: We call the getAllBooksSortedByPriceOrReview service method with the valid request.
-        List<BookEntity> books = service.getAllBooksSortedByPriceOrReview(request);
+        List<BookView> books = service.getAllBooksSortedByPriceOrReview(request);
 
-        List<BookEntity> expectedBooksOrder = List.of(book3,book2,book);
+        List<BookView> expectedBooksOrder = List.of(book3,book2,book);
 
         // Then: We assert that the list returned has exactly 3 books.
         assertThat(books).hasSize(3);
@@ -171,4 +290,75 @@ public class BookServiceTest {
         // And: We assert that the list is equal to the expectedBookOrder list.
         assertThat(books).isEqualTo(expectedBooksOrder);
     }
+
+    @Test
+    void getAllBooksSortedByPriceOrReviewShouldClampThePageSize(){
+        // Given: A request asking for a negative page and a page size bigger than the maximum allowed.
+        SortRequest request = new SortRequest("ratingsDesc", -1, 5000);
+
+        when(bookRepository.findAllSorted("ratingsDesc", 0, 100))
+                .thenReturn(List.of(book1));
+
+        // When: We call the getAllBooksSortedByPriceOrReview service method with the request.
+        List<BookView> books = service.getAllBooksSortedByPriceOrReview(request);
+
+        // Then: We verify that the repository was asked for the first page with the maximum page size.
+        verify(bookRepository).findAllSorted("ratingsDesc", 0, 100);
+
+        // And: We assert that the list is the one returned by the repository.
+        assertThat(books).containsExactly(book1);
+    }
+
+    @Test
+    void getBooksPageShouldReturnAPageAndACursorToTheNextOne(){
+        // Given: Three books after the beginning of the catalog and a page limit of 2.
+        BigDecimal price = new BigDecimal("12.50");
+
+        BookView book = new BookView(
+                1L, "Nuevo libro", "Un gran libro", "Portada", price, 0L, 0.0);
+        BookView book2 = new BookView(
+                2L, "Nuevo libro 2", "Un gran libro 2", "Portada 1", price, 0L, 0.0);
+        BookView book3 = new BookView(
+                3L, "Nuevo libro 3", "Un gran libro 3", "Portada 2", price, 0L, 0.0);
+
+        // We mock the repository returning one extra row, meaning there is a next page.
+        when(bookRepository.findPageAfter(0L, Limit.of(3)))
+                .thenReturn(List.of(book, book2, book3));
+
+        // When: We call the getBooksPage service method without a cursor.
+        CursorPage<BookView> page = service.getBooksPage(null, 2);
+
+        // Then: We assert that only the first two books are returned.
+        assertThat(page.items()).containsExactly(book, book2);
+
+        // And: That the next cursor continues right after the last book of the page.
+        when(bookRepository.findPageAfter(2L, Limit.of(3)))
+                .thenReturn(List.of(book3));
+
+        CursorPage<BookView> nextPage = service.getBooksPage(page.next_cursor(), 2);
+
+        assertThat(nextPage.items()).containsExactly(book3);
+        assertThat(nextPage.next_cursor()).isNull();
+    }
+
+    @Test
+    void getBooksPageShouldReturnErrorWhenTheCursorIsInvalid(){
+        // Given: A cursor that was not generated by the API.
+        String invalidCursor = "not-a-cursor";
+
+        // When: We call the getBooksPage service method with the invalid cursor.
+        // Then: We assert that it throws a InvalidCursorException.
+        InvalidCursorException exception = assertThrows(InvalidCursorException.class,
+                () -> service.getBooksPage(invalidCursor, 2));
+
+        assertThat(exception.getMessage()).isEqualTo("Invalid cursor.");
+    }
+
+    @Test
+    void autocompleteShouldReturnErrorUntilTheSuggestionsAreLoaded(){
+        // Given: Title autocomplete that has not been built yet.
+        // When: We ask for suggestions.
+        // Then: We assert that it throws a IndexNotReadyException instead of suggesting nothing.
+        assertThrows(IndexNotReadyException.class, () -> service.autocomplete("nuevo", 5));
+    }
 }
@@ -0,0 +1,64 @@
+package com.jordi.booknook.serviceTests;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jordi.booknook.payload.response.BookView;
+import com.jordi.booknook.repositories.BookRepository;
+import com.jordi.booknook.services.CatalogExportService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class CatalogExportServiceTest {
+    CatalogExportService service;
+
+    @Mock
+    BookRepository bookRepository;
+
+    @BeforeEach
+    void setUp(){
+        this.service = new CatalogExportService(bookRepository, new ObjectMapper().findAndRegisterModules());
+    }
+
+    @Test
+    void exportCatalogShouldWriteOneJsonLinePerBookWithItsDetailsLoadedInBatch() throws IOException {
+        // Given: A catalog with two books.
+        BigDecimal price = new BigDecimal("12.50");
+
+        BookView book = new BookView(
+                1L, "Nuevo libro", "Un gran libro", "Portada", price, 0L, 0.0);
+        BookView book2 = new BookView(
+                2L, "Nuevo libro 2", "Un gran libro 2", "Portada 1", price, 0L, 0.0);
+
+        when(bookRepository.streamCatalog()).thenReturn(Stream.of(book, book2));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // When: We call the exportCatalog service method.
+        long exported = service.exportCatalog(out);
+
+        // Then: We assert that both books were exported, one per line.
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+
+        assertThat(exported).isEqualTo(2);
+        assertThat(lines).hasSize(2);
+        assertThat(lines[0]).contains("\"book_id\":1", "\"title\":\"Nuevo libro\"");
+        assertThat(lines[1]).contains("\"book_id\":2", "\"title\":\"Nuevo libro 2\"");
+
+        // And: We verify that the categories and images of both books were loaded together.
+        verify(bookRepository).withDetails(List.of(book, book2));
+    }
+}
@@ -0,0 +1,113 @@
+package com.jordi.booknook.serviceTests;
+
+import com.jordi.booknook.controllers.AsyncResponseConfig;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The whole catalog read by 2,000 concurrent clients, once as one JSON list from the blocking
+ * endpoint and once as NDJSON from the streaming one, on the same MySQL catalog. Logs the
+ * throughput, the p99 and how many request threads the server needed for the connections
+ * each core had open. Only run by mvn test -Pload-tests, see VirtualThreadsLoadTest for
+ * the open files limit.
+ */
+@Tag("load")
+@Testcontainers(disabledWithoutDocker = true)
+public class CatalogStreamLoadTest {
+    private static final Logger log = LoggerFactory.getLogger(CatalogStreamLoadTest.class);
+
+    static final int CLIENTS = 2000;
+    static final int REQUESTS_PER_CLIENT = 2;
+    static final int BOOKS = 1000;
+
+    @Container
+    static MySQLContainer<?> mysql = new MySQLContainer<>("mysql:8.0")
+            .withUrlParam("useCursorFetch", "true")
+            .withUrlParam("rewriteBatchedStatements", "true")
+            .withUrlParam("cachePrepStmts", "true")
+            .withUrlParam("prepStmtCacheSize", "250")
+            .withUrlParam("prepStmtCacheSqlLimit", "2048");
+
+    record Measurement(HttpLoad.Result load, int peakRequestThreads) {
+        @Override
+        public String toString() {
+            int cores = Runtime.getRuntime().availableProcessors();
+            return String.format("%s, %d connections per core served by at most %d request threads (%.1f per core)",
+                    load, CLIENTS / cores, peakRequestThreads, peakRequestThreads / (double) cores);
+        }
+    }
+
+    // Each endpoint gets its own server, so no idle worker is left over from the other one.
+    private static Measurement measure(String path) throws Exception {
+        try (LoadTestServer server = LoadTestServer.start(mysql,
+                "--spring.threads.virtual.enabled=false",
+                "--server.tomcat.accept-count=" + CLIENTS,
+                "--booknook.seed.books=" + BOOKS,
+                "--booknook.seed.categories=20",
+                "--booknook.seed.users=100",
+                "--booknook.seed.reviews=5000")) {
+            return measure(server.uri(path));
+        }
+    }
+
+    /**
+     * Samples the threads alive while the load runs that serve requests: the Tomcat workers,
+     * the streaming scheduler that reads the pages and the writers that send the rows.
+     * The clients share the JVM, so the JVM wide peak would count their threads too.
+     */
+    private static Measurement measure(URI uri) throws Exception {
+        HttpLoad.run(100, 1, (client, request) -> uri);
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        AtomicInteger peak = new AtomicInteger();
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+        sampler.scheduleAtFixedRate(() -> {
+            int alive = 0;
+            for (ThreadInfo thread : threads.getThreadInfo(threads.getAllThreadIds(), 0)) {
+                if (thread != null && (thread.getThreadName().contains("-exec-")
+                        || thread.getThreadName().startsWith("catalog-stream")
+                        || thread.getThreadName().startsWith(AsyncResponseConfig.THREAD_NAME_PREFIX))) {
+                    alive++;
+                }
+            }
+            peak.accumulateAndGet(alive, Math::max);
+        }, 0, 20, TimeUnit.MILLISECONDS);
+
+        try {
+            return new Measurement(HttpLoad.run(CLIENTS, REQUESTS_PER_CLIENT, (client, request) -> uri), peak.get());
+        } finally {
+            sampler.shutdownNow();
+        }
+    }
+
+    @Test
+    void catalogUnderTwoThousandClientsFromTheBlockingAndTheStreamingEndpoint() throws Exception {
+        // Given: A catalog of 1,000 books served by Tomcat's platform workers.
+        // When: 2,000 clients read the whole catalog from each endpoint, after a warm up with 100.
+        Measurement blocking = measure("/api/v1/books");
+        Measurement streaming = measure("/api/v1/books/stream");
+
+        log.info("Blocking list: {}", blocking);
+        log.info("NDJSON stream: {}", streaming);
+
+        // Then: We assert that every request was answered from both endpoints.
+        assertThat(blocking.load().failures()).isZero();
+        assertThat(streaming.load().failures()).isZero();
+    }
+}
@@ -0,0 +1,147 @@
+package com.jordi.booknook.serviceTests;
+
+import com.jordi.booknook.payload.response.BookView;
+import com.jordi.booknook.payload.response.ReviewView;
+import com.jordi.booknook.repositories.BookRepository;
+import com.jordi.booknook.repositories.BookReviewRepository;
+import com.jordi.booknook.services.CatalogStreamService;
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.reactivestreams.Subscription;
+import org.springframework.data.domain.Limit;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class CatalogStreamServiceTest {
+    @Mock
+    BookRepository bookRepository;
+
+    @Mock
+    BookReviewRepository bookReviewRepository;
+
+    private static BookView book(long id) {
+        return new BookView(id, "Book " + id, "Description", "cover.jpg", BigDecimal.TEN, 0L, null);
+    }
+
+    private static ReviewView review(long id) {
+        return new ReviewView(id, 1L, 5, "Great", LocalDateTime.now(), LocalDateTime.now());
+    }
+
+    @Test
+    void streamBooksShouldStayAtMostOnePageAheadOfTheClient() throws Exception {
+        // Given: A catalog of five books read in pages of two.
+        CatalogStreamService service = new CatalogStreamService(bookRepository, bookReviewRepository, 2, 2);
+        when(bookRepository.findPageAfter(anyLong(), any(Limit.class))).thenAnswer(invocation -> {
+            long after = invocation.getArgument(0);
+            return new ArrayList<>(LongStream.rangeClosed(after + 1, Math.min(after + 2, 5)).mapToObj(CatalogStreamServiceTest::book).toList());
+        });
+
+        // When: A client takes a single book.
+        List<BookView> received = new ArrayList<>();
+        CountDownLatch first = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        BaseSubscriber<BookView> client = new BaseSubscriber<>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                request(1);
+            }
+
+            @Override
+            protected void hookOnNext(BookView book) {
+                received.add(book);
+                first.countDown();
+            }
+
+            @Override
+            protected void hookOnComplete() {
+                done.countDown();
+            }
+        };
+        service.streamBooks().subscribe(client);
+        assertThat(first.await(5, TimeUnit.SECONDS)).isTrue();
+        Thread.sleep(100);
+
+        // Then: We assert that the third page wasn't read.
+        verify(bookRepository, never()).findPageAfter(eq(4L), any(Limit.class));
+
+        // And: That asking for the rest reads the remaining pages in order.
+        client.requestUnbounded();
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(received).extracting(BookView::book_id).containsExactly(1L, 2L, 3L, 4L, 5L);
+        verify(bookRepository).findPageAfter(eq(2L), any(Limit.class));
+        verify(bookRepository).findPageAfter(eq(4L), any(Limit.class));
+    }
+
+    @Test
+    void streamReviewsByBookShouldFailWhenTheBookDoesNotExist() {
+        // Given: A book that doesn't exist.
+        CatalogStreamService service = new CatalogStreamService(bookRepository, bookReviewRepository, 2, 2);
+        when(bookRepository.existsById(1L)).thenReturn(false);
+
+        // When: Its reviews are streamed.
+        // Then: We assert that the stream fails and no reviews are read.
+        assertThatThrownBy(() -> service.streamReviewsByBook(1L).collectList().block())
+                .isInstanceOf(EntityNotFoundException.class)
+                .hasMessage("Book not found.");
+        verify(bookReviewRepository, never()).findViewsByBookAfter(anyLong(), anyLong(), any(Limit.class));
+    }
+
+    @Test
+    void manyOpenStreamsShouldShareTheStreamThreads() {
+        // Given: A book with 50 reviews, read in pages of 10 by two stream threads.
+        CatalogStreamService service = new CatalogStreamService(bookRepository, bookReviewRepository, 10, 2);
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger mostRunning = new AtomicInteger();
+
+        when(bookRepository.existsById(1L)).thenReturn(true);
+        when(bookReviewRepository.findViewsByBookAfter(eq(1L), anyLong(), any(Limit.class))).thenAnswer(invocation -> {
+            threads.add(Thread.currentThread().getName());
+            mostRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(1);
+                long after = invocation.getArgument(1);
+                return LongStream.rangeClosed(after + 1, Math.min(after + 10, 50)).mapToObj(CatalogStreamServiceTest::review).toList();
+            } finally {
+                running.decrementAndGet();
+            }
+        });
+
+        // When: 500 clients stream the reviews at the same time.
+        List<Long> counts = Flux.range(0, 500)
+                .flatMap(client -> service.streamReviewsByBook(1L).count(), 500)
+                .collectList()
+                .block();
+
+        // Then: We assert that every client got every review.
+        assertThat(counts).hasSize(500).containsOnly(50L);
+
+        // And: That two threads, running at most two queries at once, served all of them.
+        assertThat(threads).hasSizeLessThanOrEqualTo(2).allMatch(name -> name.startsWith("catalog-stream"));
+        assertThat(mostRunning.get()).isLessThanOrEqualTo(2);
+    }
+}
@@ -0,0 +1,91 @@
+package com.jordi.booknook.serviceTests;
+
+import com.jordi.booknook.events.UserChangedEvent;
+import com.jordi.booknook.models.UserEntity;
+import com.jordi.booknook.repositories.UserRepository;
+import com.jordi.booknook.security.CurrentUser;
+import com.jordi.booknook.security.CurrentUserResolver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class CurrentUserResolverTest {
+    @Mock
+    UserRepository userRepository;
+
+    CurrentUserResolver resolver;
+    UserEntity user;
+
+    @BeforeEach
+    void setUp(){
+        this.resolver = new CurrentUserResolver(userRepository, 100, Duration.ofMinutes(5));
+
+        user = new UserEntity("jordi", "jordi@email.com", "password");
+        user.setUser_id(1L);
+
+        Jwt jwt = Jwt.withTokenValue("token")
+                .header("alg", "none")
+                .claim("oid", "entra-oid")
+                .build();
+        SecurityContextHolder.getContext().setAuthentication(new JwtAuthenticationToken(jwt));
+    }
+
+    @AfterEach
+    void tearDown(){
+        SecurityContextHolder.clearContext();
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    private void newRequest() {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+    }
+
+    @Test
+    void requireCurrentUserShouldQueryTheUserOnlyOnceAcrossRequests(){
+        // Given: A local profile for the token's oid.
+        when(userRepository.findByAuthSub("entra-oid")).thenReturn(Optional.of(user));
+
+        // When: Two requests ask for the current user, the first one twice.
+        newRequest();
+        resolver.requireCurrentUser();
+        resolver.requireCurrentUser();
+        newRequest();
+        CurrentUser current = resolver.requireCurrentUser();
+
+        // Then: We assert that the user is resolved and the users table was queried once.
+        assertThat(current).isEqualTo(new CurrentUser(1L, "jordi"));
+        verify(userRepository, times(1)).findByAuthSub("entra-oid");
+    }
+
+    @Test
+    void requireCurrentUserShouldReloadTheUserAfterItChanges(){
+        // Given: A cached profile.
+        when(userRepository.findByAuthSub("entra-oid")).thenReturn(Optional.of(user));
+        resolver.requireCurrentUser();
+
+        // When: The user is updated and a new request comes in.
+        resolver.onUserChanged(new UserChangedEvent(user.getUser_id()));
+        resolver.requireCurrentUser();
+
+        // Then: We verify that the profile was read again.
+        verify(userRepository, times(2)).findByAuthSub("entra-oid");
+    }
+}
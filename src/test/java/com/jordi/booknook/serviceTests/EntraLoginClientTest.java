@@ -0,0 +1,154 @@
+package com.jordi.booknook.serviceTests;
+
+import com.jordi.booknook.payload.response.LoginLatencyResponse;
+import com.jordi.booknook.security.EntraLoginClient;
+import com.microsoft.aad.msal4j.HttpRequest;
+import com.microsoft.aad.msal4j.HttpResponse;
+import com.microsoft.aad.msal4j.IAuthenticationResult;
+import com.microsoft.aad.msal4j.IHttpClient;
+import com.microsoft.aad.msal4j.IHttpResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs the MSAL client against a stand-in for the Entra discovery and token endpoints.
+ */
+public class EntraLoginClientTest {
+    StandInEntra entra;
+    EntraLoginClient client;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        this.entra = new StandInEntra();
+        this.client = new EntraLoginClient("client-id", "https://login.microsoftonline.com/tenant-id/",
+                "api-id", 2, Duration.ofSeconds(5), 10, entra);
+    }
+
+    @Test
+    void loginShouldReuseTheClientAndAlwaysAskTheTokenEndpoint() throws Exception {
+        // Given: A user with valid credentials.
+        // When: The user logs in twice.
+        IAuthenticationResult first = client.login("jordi@booknook.test", "secret".toCharArray()).get(5, TimeUnit.SECONDS);
+        IAuthenticationResult second = client.login("jordi@booknook.test", "secret".toCharArray()).get(5, TimeUnit.SECONDS);
+
+        // Then: We assert that both logins got a token from the token endpoint, not from the cache.
+        assertThat(first.accessToken()).isEqualTo("access-token-1");
+        assertThat(second.accessToken()).isEqualTo("access-token-2");
+
+        // And: That the latency of both is recorded.
+        LoginLatencyResponse stats = client.stats();
+        assertThat(stats.logins()).isEqualTo(2);
+        assertThat(stats.failures()).isZero();
+        assertThat(stats.in_flight()).isZero();
+    }
+
+    @Test
+    void loginShouldFailWhenTheTokenEndpointRejectsThePassword() {
+        // Given: A password the token endpoint rejects.
+        // When: The user logs in with it.
+        // Then: We assert that the future fails and the failure is counted.
+        assertThatThrownBy(() -> client.login("jordi@booknook.test", "wrong".toCharArray()).get(5, TimeUnit.SECONDS))
+                .hasRootCauseMessage("AADSTS50126: Invalid username or password.");
+        assertThat(client.stats().failures()).isEqualTo(1);
+    }
+
+    @Test
+    void tokenCacheShouldOnlyKeepTheMostRecentAccounts() throws Exception {
+        // Given: A client that caches tokens for at most one account.
+        EntraLoginClient smallCache = new EntraLoginClient("client-id", "https://login.microsoftonline.com/tenant-id/",
+                "api-id", 2, Duration.ofSeconds(5), 1, entra);
+
+        // When: Two different users log in.
+        smallCache.login("jordi@booknook.test", "secret".toCharArray()).get(5, TimeUnit.SECONDS);
+        smallCache.login("tamara@booknook.test", "secret".toCharArray()).get(5, TimeUnit.SECONDS);
+
+        // Then: We assert that only one account is left in the token cache.
+        assertThat(smallCache.cachedAccounts()).isEqualTo(1);
+    }
+
+    @Test
+    void tokenCacheShouldTrimToHalfOnlyOnceItIsFull() throws Exception {
+        // Given: A client that caches tokens for at most four accounts.
+        EntraLoginClient smallCache = new EntraLoginClient("client-id", "https://login.microsoftonline.com/tenant-id/",
+                "api-id", 2, Duration.ofSeconds(5), 4, entra);
+
+        // When: Four different users log in.
+        for (String user : List.of("jordi", "tamara", "laia", "pau")) {
+            smallCache.login(user + "@booknook.test", "secret".toCharArray()).get(5, TimeUnit.SECONDS);
+        }
+
+        // Then: We assert that all four accounts are still cached.
+        assertThat(smallCache.cachedAccounts()).isEqualTo(4);
+
+        // And: That a fifth user cuts the cache down to half of them.
+        smallCache.login("nuria@booknook.test", "secret".toCharArray()).get(5, TimeUnit.SECONDS);
+        assertThat(smallCache.cachedAccounts()).isEqualTo(2);
+    }
+
+    static class StandInEntra implements IHttpClient {
+        final List<String> requests = new CopyOnWriteArrayList<>();
+        int tokens = 0;
+
+        @Override
+        public IHttpResponse send(HttpRequest request) {
+            String url = request.url().toString();
+            requests.add(request.httpMethod() + " " + url);
+
+            if (url.contains("/userrealm/")) {
+                return json(200, "{\"ver\":\"1.0\",\"account_type\":\"Managed\",\"domain_name\":\"booknook.test\"," +
+                        "\"cloud_instance_name\":\"microsoftonline.com\",\"cloud_audience_urn\":\"urn:federation:MicrosoftOnline\"}");
+            }
+            if (url.contains("/discovery/instance")) {
+                return json(200, "{\"tenant_discovery_endpoint\":\"https://login.microsoftonline.com/tenant-id/v2.0/.well-known/openid-configuration\"," +
+                        "\"api-version\":\"1.1\",\"metadata\":[{\"preferred_network\":\"login.microsoftonline.com\"," +
+                        "\"preferred_cache\":\"login.windows.net\",\"aliases\":[\"login.microsoftonline.com\",\"login.windows.net\"]}]}");
+            }
+            if (url.endsWith("/oauth2/v2.0/token")) {
+                if (request.body().contains("password=wrong")) {
+                    return json(400, "{\"error\":\"invalid_grant\",\"error_description\":\"AADSTS50126: Invalid username or password.\"}");
+                }
+                synchronized (this) {
+                    tokens++;
+                    return json(200, "{\"token_type\":\"Bearer\",\"scope\":\"api://api-id/books.read api://api-id/books.write openid profile email\"," +
+                            "\"expires_in\":3600,\"ext_expires_in\":3600,\"access_token\":\"access-token-" + tokens + "\"," +
+                            "\"refresh_token\":\"refresh-token\",\"id_token\":\"" + idToken() + "\",\"client_info\":\"" + clientInfo(request.body()) + "\"}");
+                }
+            }
+            return json(404, "{}");
+        }
+
+        private static String idToken() {
+            long now = System.currentTimeMillis() / 1000;
+            return base64("{\"alg\":\"none\"}") + "." + base64("{\"aud\":\"client-id\",\"iss\":\"https://login.microsoftonline.com/tenant-id/v2.0\"," +
+                    "\"iat\":" + now + ",\"exp\":" + (now + 3600) + ",\"oid\":\"user-oid\",\"sub\":\"user-sub\",\"tid\":\"tenant-id\"," +
+                    "\"preferred_username\":\"jordi@booknook.test\",\"name\":\"Jordi\"}") + ".";
+        }
+
+        // Every username gets its own account in the token cache.
+        private static String clientInfo(String body) {
+            String uid = body.replaceAll(".*username=([^&]*).*", "$1");
+            return base64("{\"uid\":\"" + uid + "\",\"utid\":\"tenant-id\"}");
+        }
+
+        private static String base64(String value) {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        private static IHttpResponse json(int status, String body) {
+            HttpResponse response = new HttpResponse().statusCode(status).body(body);
+            response.addHeaders(Map.of("Content-Type", List.of("application/json")));
+            return response;
+        }
+    }
+}
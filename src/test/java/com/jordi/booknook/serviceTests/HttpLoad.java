@@ -0,0 +1,79 @@
+package com.jordi.booknook.serviceTests;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Closed-loop HTTP load: every client sends its next request as soon as the previous one is
+ * answered, so there are as many requests in flight, and connections open, as clients.
+ */
+final class HttpLoad {
+    static final Duration REQUEST_TIMEOUT = Duration.ofMinutes(2);
+
+    record Result(int requests, int failures, double requestsPerSecond, double p50Millis, double p99Millis) {
+        @Override
+        public String toString() {
+            return String.format("%d requests, %d failed, %.0f per second, p50 %.1f ms, p99 %.1f ms",
+                    requests, failures, requestsPerSecond, p50Millis, p99Millis);
+        }
+    }
+
+    private HttpLoad() {
+    }
+
+    /**
+     * @param uris - The URI of each request, by client and by request of that client.
+     * @return - The throughput and latencies. Errors and answers other than 200 count as failures.
+     */
+    static Result run(int clients, int requestsPerClient, BiFunction<Integer, Integer, URI> uris) throws Exception {
+        long[] latencies = new long[clients * requestsPerClient];
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger failures = new AtomicInteger();
+
+        try (HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build()) {
+            long start = System.nanoTime();
+            CompletableFuture<?>[] running = IntStream.range(0, clients)
+                    .mapToObj(client -> {
+                        CompletableFuture<Void> requests = CompletableFuture.completedFuture(null);
+                        for (int i = 0; i < requestsPerClient; i++) {
+                            int request = i;
+                            requests = requests.thenCompose(ignored -> {
+                                HttpRequest get = HttpRequest.newBuilder(uris.apply(client, request))
+                                        .timeout(REQUEST_TIMEOUT)
+                                        .build();
+                                long sent = System.nanoTime();
+                                return http.sendAsync(get, HttpResponse.BodyHandlers.discarding())
+                                        .handle((response, error) -> {
+                                            if (error != null || response.statusCode() != 200) {
+                                                failures.incrementAndGet();
+                                            }
+                                            latencies[completed.getAndIncrement()] = System.nanoTime() - sent;
+                                            return null;
+                                        });
+                            });
+                        }
+                        return requests;
+                    })
+                    .toArray(CompletableFuture[]::new);
+            CompletableFuture.allOf(running).get(10, TimeUnit.MINUTES);
+            long elapsed = System.nanoTime() - start;
+
+            Arrays.sort(latencies);
+            return new Result(latencies.length, failures.get(), latencies.length / (elapsed / 1_000_000_000.0),
+                    percentile(latencies, 0.50), percentile(latencies, 0.99));
+        }
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        return sorted[(int) Math.ceil(sorted.length * percentile) - 1] / 1_000_000.0;
+    }
+}
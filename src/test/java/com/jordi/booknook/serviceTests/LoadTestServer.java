@@ -0,0 +1,65 @@
+package com.jordi.booknook.serviceTests;
+
+import com.jordi.booknook.BookNookApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.testcontainers.containers.JdbcDatabaseContainer;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The whole application on a random port, over a database filled by the synthetic data
+ * generator the first time it starts. Entra settings are placeholders, so load tests can
+ * only call the anonymous endpoints.
+ */
+final class LoadTestServer implements AutoCloseable {
+    private final ConfigurableApplicationContext context;
+    private final int port;
+
+    private LoadTestServer(ConfigurableApplicationContext context) {
+        this.context = context;
+        this.port = ((WebServerApplicationContext) context).getWebServer().getPort();
+    }
+
+    /**
+     * @param properties - More --name=value arguments, e.g. to switch the thread mode or to size the catalog.
+     */
+    static LoadTestServer start(JdbcDatabaseContainer<?> database, String... properties) {
+        return start(database.getJdbcUrl(), database.getUsername(), database.getPassword(), properties);
+    }
+
+    static LoadTestServer start(String url, String username, String password, String... properties) {
+        List<String> args = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.datasource.url=" + url,
+                "--spring.datasource.username=" + username,
+                "--spring.datasource.password=" + password,
+                "--TENANT_ID=00000000-0000-0000-0000-000000000000",
+                "--TENANT_DOMAIN=booknook.test",
+                "--AZURE_APP_ID=load-test",
+                "--AZURE_APP_SECRET=load-test",
+                "--AZURE_ROPC_ID=load-test",
+                "--booknook.seed.enabled=true",
+                "--logging.level.org.springframework.security=WARN",
+                "--logging.level.org.springframework.web.client=WARN"));
+        args.addAll(List.of(properties));
+
+        return new LoadTestServer(new SpringApplicationBuilder(BookNookApplication.class).run(args.toArray(String[]::new)));
+    }
+
+    URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+}
@@ -0,0 +1,101 @@
+package com.jordi.booknook.serviceTests;
+
+import com.jordi.booknook.cache.BookCache;
+import com.jordi.booknook.monitoring.PinnedThreadMonitor;
+import com.jordi.booknook.payload.response.PinnedThreadsResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PinnedThreadMonitorTest {
+    PinnedThreadMonitor monitor;
+
+    @BeforeEach
+    void setUp() {
+        this.monitor = new PinnedThreadMonitor(true, Duration.ofMillis(10));
+        this.monitor.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        monitor.stop();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Blocks a virtual thread while it holds a monitor, which pins it on Java 21.
+    private static void blockWhilePinned() {
+        Object lock = new Object();
+        synchronized (lock) {
+            sleep(50);
+        }
+    }
+
+    @Test
+    void monitorShouldReportVirtualThreadsBlockingInsideSynchronized() throws Exception {
+        // Given: A monitor recording pins longer than 10 ms.
+        // When: A virtual thread sleeps while holding a monitor.
+        Thread.ofVirtual().start(PinnedThreadMonitorTest::blockWhilePinned).join();
+
+        // Then: We assert that the pin is reported with the stack that held the monitor.
+        waitUntil(() -> monitor.report().pinned() > 0);
+        PinnedThreadsResponse report = monitor.report();
+        assertThat(report.recording()).isTrue();
+        assertThat(report.max_millis()).isGreaterThanOrEqualTo(40);
+        assertThat(report.sites()).singleElement()
+                .satisfies(site -> assertThat(site.stack()).anyMatch(frame -> frame.contains("PinnedThreadMonitorTest.blockWhilePinned")));
+    }
+
+    @Test
+    void bookCacheLoadsShouldNotPinVirtualThreads() throws Exception {
+        // Given: A book cache whose loader blocks like a query would.
+        BookCache cache = new BookCache(100, Duration.ofMinutes(10), Duration.ofSeconds(30));
+
+        // When: A virtual thread loads a book through the cache, and another one pins on purpose afterwards.
+        Thread.ofVirtual().start(() -> cache.get(1L, id -> {
+            sleep(50);
+            return Optional.empty();
+        })).join();
+        Thread.ofVirtual().start(PinnedThreadMonitorTest::blockWhilePinned).join();
+
+        // Then: We assert that only the deliberate pin was recorded.
+        waitUntil(() -> monitor.report().pinned() > 0);
+        assertThat(monitor.report().pinned()).isEqualTo(1);
+        assertThat(monitor.report().sites()).singleElement()
+                .satisfies(site -> assertThat(site.stack()).anyMatch(frame -> frame.contains("PinnedThreadMonitorTest.blockWhilePinned")));
+    }
+
+    @Test
+    void monitorShouldNotRecordWhenDisabled() {
+        // Given: A monitor that is disabled.
+        PinnedThreadMonitor disabled = new PinnedThreadMonitor(false, Duration.ofMillis(10));
+
+        // When: It is started.
+        disabled.start();
+
+        // Then: We assert that it reports it isn't recording.
+        assertThat(disabled.report().recording()).isFalse();
+        assertThat(disabled.report().pinned()).isZero();
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("waiting for the recording").isLessThan(deadline);
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.jordi.booknook.serviceTests;
+
+import com.jordi.booknook.events.SpringContext;
+import com.jordi.booknook.payload.response.RegistrationStatsResponse;
+import com.jordi.booknook.repositories.ShelfRepository;
+import com.jordi.booknook.repositories.UserRepository;
+import com.jordi.booknook.services.RegistrationService;
+import com.microsoft.graph.models.User;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Signup throughput against a Graph stand-in that answers after a fixed delay, with the
+ * profiles and default shelves written to MySQL. Only run by mvn test -Pload-tests.
+ */
+@Tag("load")
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(SpringContext.class)
+@Testcontainers(disabledWithoutDocker = true)
+public class RegistrationBurstLoadTest {
+    private static final Logger log = LoggerFactory.getLogger(RegistrationBurstLoadTest.class);
+
+    static final int SIGNUPS = 2000;
+    static final long GRAPH_LATENCY_MILLIS = 50;
+
+    @Container
+    static MySQLContainer<?> mysql = new MySQLContainer<>("mysql:8.0")
+            .withUrlParam("rewriteBatchedStatements", "true");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", mysql::getJdbcUrl);
+        registry.add("spring.datasource.username", mysql::getUsername);
+        registry.add("spring.datasource.password", mysql::getPassword);
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "create-drop");
+    }
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    ShelfRepository shelfRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    void signupBurstShouldOverlapGraphCallsAndBatchProfileWrites() throws Exception {
+        // Given: A Graph that takes 50 ms per user, so signups one after the other would top out at 20 per second.
+        RegistrationService service = RegistrationServiceTest.service(GRAPH_LATENCY_MILLIS, SIGNUPS, 200,
+                userRepository, shelfRepository, new TransactionTemplate(transactionManager));
+
+        // When: 2,000 users register at the same time.
+        long start = System.nanoTime();
+        List<CompletableFuture<User>> signups = IntStream.range(0, SIGNUPS)
+                .mapToObj(i -> service.register("user" + i, RegistrationServiceTest.request("user" + i)))
+                .toList();
+        CompletableFuture.allOf(signups.toArray(CompletableFuture[]::new)).get(2, TimeUnit.MINUTES);
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+        RegistrationStatsResponse stats = service.stats();
+        log.info("{} signups in {} s, {} per second. {} profile batches, the largest of {}, {} ms per signup on average.",
+                SIGNUPS, String.format("%.2f", seconds), String.format("%.0f", SIGNUPS / seconds),
+                stats.profile_batches(), stats.largest_batch(), String.format("%.1f", stats.average_millis()));
+
+        // Then: We assert that every user got a profile and its default shelves.
+        assertThat(stats.failures()).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Long.class)).isEqualTo(SIGNUPS);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(DISTINCT user_id) FROM shelves", Long.class)).isEqualTo(SIGNUPS);
+    }
+}
@@ -0,0 +1,248 @@
+package com.jordi.booknook.serviceTests;
+
+import com.jordi.booknook.models.UserEntity;
+import com.jordi.booknook.payload.response.RegistrationStatsResponse;
+import com.jordi.booknook.repositories.ShelfRepository;
+import com.jordi.booknook.repositories.UserRepository;
+import com.jordi.booknook.security.payload.request.RegisterRequest;
+import com.jordi.booknook.services.RegistrationService;
+import com.microsoft.graph.models.User;
+import com.microsoft.graph.requests.GraphServiceClient;
+import okhttp3.Dispatcher;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs registrations against a stand-in for the Graph users endpoint that answers after a fixed delay.
+ */
+@ExtendWith(MockitoExtension.class)
+public class RegistrationServiceTest {
+    @Mock
+    UserRepository userRepository;
+
+    @Mock
+    ShelfRepository shelfRepository;
+
+    List<Long> usersWithDefaultShelves;
+    List<Integer> batchSizes;
+    AtomicLong nextUserId;
+
+    @BeforeEach
+    void setUp() {
+        this.usersWithDefaultShelves = new CopyOnWriteArrayList<>();
+        this.batchSizes = new CopyOnWriteArrayList<>();
+        this.nextUserId = new AtomicLong();
+    }
+
+    private RegistrationService service(long graphLatencyMillis, int maxPending) {
+        return service(graphLatencyMillis, maxPending, 200);
+    }
+
+    static RegistrationService service(long graphLatencyMillis, int maxPending, int batchSize,
+                                       UserRepository userRepository, ShelfRepository shelfRepository,
+                                       TransactionOperations transactions) {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(64);
+        dispatcher.setMaxRequestsPerHost(64);
+
+        OkHttpClient httpClient = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .addInterceptor(new StandInGraph(graphLatencyMillis))
+                .build();
+        GraphServiceClient<Request> graph = GraphServiceClient.builder().httpClient(httpClient).buildClient();
+
+        return new RegistrationService(graph, userRepository, shelfRepository, transactions,
+                "booknook.test", batchSize, maxPending);
+    }
+
+    private RegistrationService service(long graphLatencyMillis, int maxPending, int batchSize) {
+        return service(graphLatencyMillis, maxPending, batchSize, userRepository, shelfRepository,
+                TransactionOperations.withoutTransaction());
+    }
+
+    // Saving assigns ids like the database would, and waits for release before returning.
+    private void stubSaves(CountDownLatch release) {
+        when(userRepository.saveAll(anyCollection())).thenAnswer(invocation -> {
+            Collection<UserEntity> users = invocation.getArgument(0);
+            users.stream().filter(user -> user.getUser_id() == null)
+                    .forEach(user -> user.setUser_id(nextUserId.incrementAndGet()));
+            batchSizes.add(users.size());
+            release.await(5, TimeUnit.SECONDS);
+            return List.copyOf(users);
+        });
+        doAnswer(invocation -> usersWithDefaultShelves.addAll(invocation.getArgument(0)))
+                .when(shelfRepository).addDefaultShelves(anyList());
+    }
+
+    private void stubSaves() {
+        stubSaves(new CountDownLatch(0));
+    }
+
+    // Graph answers on OkHttp threads and profiles are written on the writer thread, a moment after register returns.
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("Waited 5 seconds.").isLessThan(deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    static RegisterRequest request(String username) {
+        return new RegisterRequest(username, username + "@mail.test", null, "Secret123!");
+    }
+
+    @Test
+    void registerShouldCreateTheUserInEntraAndSaveItsProfileWithDefaultShelves() throws Exception {
+        // Given: A new user.
+        stubSaves();
+        RegistrationService service = service(0, 10);
+
+        // When: The user registers.
+        User created = service.register("jordi", request("jordi")).get(5, TimeUnit.SECONDS);
+
+        // Then: We assert that the user was created in Entra.
+        assertThat(created.userPrincipalName).isEqualTo("jordi@booknook.test");
+
+        // And: That the local profile is linked to it and got its default shelves.
+        verify(userRepository).saveAll(anyCollection());
+        assertThat(usersWithDefaultShelves).containsExactly(1L);
+    }
+
+    @Test
+    void registerShouldLinkAnExistingProfileWithoutAddingShelves() throws Exception {
+        // Given: A user that already has a local profile.
+        UserEntity existing = new UserEntity("jordi", "jordi@mail.test", null);
+        existing.setUser_id(7L);
+        when(userRepository.findAllByUsernameIn(List.of("jordi"))).thenReturn(List.of(existing));
+        RegistrationService service = service(0, 10);
+
+        // When: The user registers in Entra.
+        User created = service.register("jordi", request("jordi")).get(5, TimeUnit.SECONDS);
+
+        // Then: We assert that the profile now points to the Entra user and no shelves were added.
+        assertThat(existing.getAuthProvider()).isEqualTo("entra");
+        assertThat(existing.getAuthSub()).isEqualTo(created.id);
+        verify(shelfRepository, never()).addDefaultShelves(anyList());
+    }
+
+    @Test
+    void registerShouldRejectRegistrationsOverTheLimit() {
+        // Given: A service that allows two registrations in progress and a slow Graph.
+        RegistrationService service = service(1000, 2);
+        service.register("first", request("first"));
+        service.register("second", request("second"));
+
+        // When: A third user registers.
+        // Then: We assert that it fails right away.
+        assertThatThrownBy(() -> service.register("third", request("third")).get(100, TimeUnit.MILLISECONDS))
+                .hasCauseInstanceOf(RejectedExecutionException.class);
+        assertThat(service.stats().in_flight()).isEqualTo(2);
+    }
+
+    @Test
+    void profilesQueuedWhileABatchIsWrittenShouldGoIntoTheNextBatches() throws Exception {
+        // Given: Batches of up to 2 profiles and a writer held on the profile of the first user.
+        CountDownLatch release = new CountDownLatch(1);
+        stubSaves(release);
+        RegistrationService service = service(0, 10, 2);
+
+        List<CompletableFuture<User>> signups = new ArrayList<>();
+        signups.add(service.register("user0", request("user0")));
+        await(() -> batchSizes.size() == 1);
+
+        // When: Five more users register while it is held, and then it is let go.
+        IntStream.rangeClosed(1, 5).forEach(i -> signups.add(service.register("user" + i, request("user" + i))));
+        await(() -> service.stats().queued_profiles() == 5);
+        release.countDown();
+        CompletableFuture.allOf(signups.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+
+        // Then: We assert that the first profile was written alone and the queued ones in batches of 2, 2 and 1.
+        assertThat(batchSizes).containsExactly(1, 2, 2, 1);
+
+        // And: That every user got a profile and default shelves.
+        assertThat(usersWithDefaultShelves).hasSize(6).doesNotHaveDuplicates();
+        RegistrationStatsResponse stats = service.stats();
+        assertThat(stats.registrations()).isEqualTo(6);
+        assertThat(stats.failures()).isZero();
+        assertThat(stats.profile_batches()).isEqualTo(4);
+        assertThat(stats.largest_batch()).isEqualTo(2);
+    }
+
+    static class StandInGraph implements Interceptor {
+        private static final Pattern PRINCIPAL_NAME = Pattern.compile("\"userPrincipalName\"\\s*:\\s*\"([^\"]+)\"");
+
+        private final long latencyMillis;
+
+        StandInGraph(long latencyMillis) {
+            this.latencyMillis = latencyMillis;
+        }
+
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            Request request = chain.request();
+            Buffer body = new Buffer();
+            request.body().writeTo(body);
+
+            Matcher principalName = PRINCIPAL_NAME.matcher(body.readUtf8());
+            if (!request.method().equals("POST") || !request.url().encodedPath().endsWith("/users") || !principalName.find()) {
+                return response(request, 400, "{\"error\":{\"code\":\"BadRequest\",\"message\":\"Unexpected request.\"}}");
+            }
+
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+
+            return response(request, 201, "{\"id\":\"" + UUID.randomUUID() + "\",\"userPrincipalName\":\"" + principalName.group(1) + "\"}");
+        }
+
+        private static Response response(Request request, int code, String json) {
+            return new Response.Builder()
+                    .request(request)
+                    .protocol(Protocol.HTTP_1_1)
+                    .code(code)
+                    .message(code == 201 ? "Created" : "Bad Request")
+                    .body(ResponseBody.create(json, MediaType.get("application/json")))
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.jordi.booknook.serviceTests;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.jordi.booknook.cache.SecondLevelCacheConfig;
+import com.jordi.booknook.cache.SecondLevelCacheRegions;
+import com.jordi.booknook.payload.response.CacheRegionStatsResponse;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.EntityNotFoundException;
+import org.hibernate.cache.spi.CacheImplementor;
+import org.hibernate.cache.spi.Region;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.spi.StatisticsImplementor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.cache.CacheManager;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class SecondLevelCacheRegionsTest {
+    @Mock
+    EntityManagerFactory entityManagerFactory;
+
+    @Mock
+    SessionFactoryImplementor sessionFactory;
+
+    @Mock
+    CacheImplementor cache;
+
+    @Mock
+    StatisticsImplementor statistics;
+
+    CacheManager cacheManager;
+    SecondLevelCacheRegions regions;
+
+    @BeforeEach
+    void setUp() {
+        when(entityManagerFactory.unwrap(SessionFactoryImplementor.class)).thenReturn(sessionFactory);
+        when(sessionFactory.getCache()).thenReturn(cache);
+        when(sessionFactory.getStatistics()).thenReturn(statistics);
+
+        this.cacheManager = new SecondLevelCacheConfig().secondLevelCacheManager(2, 2, 2, 2, 2, 2, Duration.ofMinutes(1));
+        this.regions = new SecondLevelCacheRegions(entityManagerFactory, cacheManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        cacheManager.close();
+    }
+
+    private static CacheRegionStatistics regionStatistics(long hits, long misses, long puts) {
+        CacheRegionStatistics statistics = mock(CacheRegionStatistics.class);
+        when(statistics.getHitCount()).thenReturn(hits);
+        when(statistics.getMissCount()).thenReturn(misses);
+        when(statistics.getPutCount()).thenReturn(puts);
+        return statistics;
+    }
+
+    @Test
+    void secondLevelCacheManagerShouldBoundEveryRegionToItsSize() {
+        // Given: Regions sized for two entries.
+        // When: Ten categories are cached.
+        for (long id = 1; id <= 10; id++) {
+            cacheManager.getCache(SecondLevelCacheConfig.CATEGORIES).put(id, "Category " + id);
+        }
+
+        // Then: We assert that the region kept at most two of them.
+        Cache<?, ?> categories = cacheManager.getCache(SecondLevelCacheConfig.CATEGORIES).unwrap(Cache.class);
+        categories.cleanUp();
+        assertThat(categories.estimatedSize()).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    void statsShouldReportEachRegionSortedByName() {
+        // Given: Two regions, one with a cached category.
+        when(cache.getCacheRegionNames()).thenReturn(Set.of(SecondLevelCacheConfig.ROLES, SecondLevelCacheConfig.CATEGORIES));
+        CacheRegionStatistics categoryStatistics = regionStatistics(3, 1, 1);
+        when(statistics.getCacheRegionStatistics(SecondLevelCacheConfig.CATEGORIES)).thenReturn(categoryStatistics);
+        when(statistics.getCacheRegionStatistics(SecondLevelCacheConfig.ROLES)).thenReturn(null);
+        cacheManager.getCache(SecondLevelCacheConfig.CATEGORIES).put(1L, "Fantasy");
+
+        // When: The stats are requested.
+        List<CacheRegionStatsResponse> stats = regions.stats();
+
+        // Then: We assert that every region is reported with its size, counts and hit rate.
+        assertThat(stats).containsExactly(
+                new CacheRegionStatsResponse(SecondLevelCacheConfig.CATEGORIES, 1, 3, 1, 1, 0.75),
+                new CacheRegionStatsResponse(SecondLevelCacheConfig.ROLES, 0, 0, 0, 0, 0));
+    }
+
+    @Test
+    void evictShouldClearTheRegion() {
+        // Given: An existing region.
+        Region region = mock(Region.class);
+        when(cache.getRegion(SecondLevelCacheConfig.BOOK_CATEGORIES)).thenReturn(region);
+
+        // When: It is evicted.
+        regions.evict(SecondLevelCacheConfig.BOOK_CATEGORIES);
+
+        // Then: We assert that its entries were dropped.
+        verify(region).clear();
+    }
+
+    @Test
+    void evictShouldFailForAnUnknownRegion() {
+        // Given: A region that doesn't exist.
+        when(cache.getRegion("unknown")).thenReturn(null);
+
+        // When: It is evicted.
+        // Then: We assert that it is reported as not found.
+        assertThatThrownBy(() -> regions.evict("unknown"))
+                .isInstanceOf(EntityNotFoundException.class)
+                .hasMessage("Cache region not found.");
+    }
+
+    @Test
+    void evictShouldRejectTheUpdateTimestampsRegion() {
+        // Given: The region that tells Hibernate when each table last changed.
+        // When: It is evicted on its own.
+        // Then: We assert that it is refused before the region is even looked up.
+        assertThatThrownBy(() -> regions.evict(SecondLevelCacheConfig.UPDATE_TIMESTAMPS))
+                .isInstanceOf(IllegalArgumentException.class);
+        verify(cache, never()).getRegion(SecondLevelCacheConfig.UPDATE_TIMESTAMPS);
+    }
+}
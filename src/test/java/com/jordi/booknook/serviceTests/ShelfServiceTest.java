@@ -5,13 +5,24 @@ import com.jordi.booknook.models.ShelfEntity;
 import com.jordi.booknook.models.UserEntity;
 import com.jordi.booknook.payload.request.AddBookToShelfRequest;
 import com.jordi.booknook.payload.request.NewShelfRequest;
+import com.jordi.booknook.payload.request.ShelfBooksChangeRequest;
+import com.jordi.booknook.payload.request.ShelfBooksChangeRequest.Action;
+import com.jordi.booknook.payload.request.ShelfBooksChangeRequest.Change;
 import com.jordi.booknook.payload.request.UpdateShelfRequest;
 import com.jordi.booknook.payload.response.AddBookToShelfResponse;
+import com.jordi.booknook.payload.response.BookView;
+import com.jordi.booknook.payload.response.CursorPage;
 import com.jordi.booknook.payload.response.NewShelfResponse;
+import com.jordi.booknook.payload.response.ShelfBooksChangeResponse;
+import com.jordi.booknook.payload.response.ShelfBooksChangeResponse.Status;
+import com.jordi.booknook.payload.response.ShelfSummary;
 import com.jordi.booknook.payload.response.UpdateShelfResponse;
 import com.jordi.booknook.repositories.BookRepository;
+import com.jordi.booknook.repositories.ShelfBookRow;
+import com.jordi.booknook.repositories.ShelfOwnerRow;
 import com.jordi.booknook.repositories.ShelfRepository;
 import com.jordi.booknook.repositories.UserRepository;
+import com.jordi.booknook.security.CurrentUser;
 import com.jordi.booknook.security.CurrentUserResolver;
 import com.jordi.booknook.security.UserDetailsImplementation;
 import com.jordi.booknook.services.ShelfService;
@@ -23,19 +34,23 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.api.function.Executable;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -90,9 +105,7 @@ public class ShelfServiceTest {
    @Test
    void addNewShelfShouldAddANewShelfAndShouldReturn() {
        // Given: A valid request with a new shelf and a logged user.
-       when(currentUserResolver.requireCurrentUser()).thenReturn(user1);
-       when(userRepository.findByUsername(user1.getUsername()))
-               .thenReturn(Optional.of(user1));
+       when(currentUserResolver.requireCurrentUser()).thenReturn(CurrentUser.from(user1));
 
        SecurityContextHolder.getContext().setAuthentication(auth);
 
@@ -140,7 +153,7 @@ public class ShelfServiceTest {
                false
        );
 
-       when(currentUserResolver.requireCurrentUser()).thenReturn(user1);
+       when(currentUserResolver.requireCurrentUser()).thenReturn(CurrentUser.from(user1));
 
        SecurityContextHolder.getContext().setAuthentication(auth);
 
@@ -183,7 +196,7 @@ public class ShelfServiceTest {
                false
        );
 
-       when(currentUserResolver.requireCurrentUser()).thenReturn(user1);
+       when(currentUserResolver.requireCurrentUser()).thenReturn(CurrentUser.from(user1));
 
        SecurityContextHolder.getContext().setAuthentication(auth);
 
@@ -209,7 +222,7 @@ public class ShelfServiceTest {
                null
        );
 
-       when(currentUserResolver.requireCurrentUser()).thenReturn(user1);
+       when(currentUserResolver.requireCurrentUser()).thenReturn(CurrentUser.from(user1));
 
        SecurityContextHolder.getContext().setAuthentication(auth);
 
@@ -268,7 +281,7 @@ public class ShelfServiceTest {
                 null
         );
 
-        when(currentUserResolver.requireCurrentUser()).thenReturn(user1);
+        when(currentUserResolver.requireCurrentUser()).thenReturn(CurrentUser.from(user1));
 
         SecurityContextHolder.getContext().setAuthentication(auth);
 
@@ -327,7 +340,7 @@ public class ShelfServiceTest {
                 null
         );
 
-        when(currentUserResolver.requireCurrentUser()).thenReturn(user1);
+        when(currentUserResolver.requireCurrentUser()).thenReturn(CurrentUser.from(user1));
 
         SecurityContextHolder.getContext().setAuthentication(auth);
 
@@ -386,7 +399,7 @@ public class ShelfServiceTest {
                 false
         );
 
-        when(currentUserResolver.requireCurrentUser()).thenReturn(user1);
+        when(currentUserResolver.requireCurrentUser()).thenReturn(CurrentUser.from(user1));
 
         SecurityContextHolder.getContext().setAuthentication(auth);
 
@@ -451,7 +464,7 @@ public class ShelfServiceTest {
         when(shelfRepository.findById(2L))
                 .thenReturn(Optional.of(shelf));
 
-        when(currentUserResolver.requireCurrentUser()).thenReturn(nonAllowedUser);
+        when(currentUserResolver.requireCurrentUser()).thenReturn(CurrentUser.from(nonAllowedUser));
 
         SecurityContextHolder.getContext().setAuthentication(auth);
 
@@ -474,35 +487,28 @@ public class ShelfServiceTest {
         // Given: A valid request with a valid shelf id, book id and a logged user that owns the shelf
         AddBookToShelfRequest request = new AddBookToShelfRequest(5L,2L);
 
-        when(currentUserResolver.requireCurrentUser()).thenReturn(user1);
+        when(currentUserResolver.requireCurrentUser()).thenReturn(CurrentUser.from(user1));
 
         SecurityContextHolder.getContext().setAuthentication(auth);
 
-        when(bookRepository.findById(request.book_id()))
-                .thenReturn(Optional.of(book1));
+        when(bookRepository.findTitleById(request.book_id()))
+                .thenReturn(Optional.of(book1.getTitle()));
 
-        when(shelfRepository.findById(request.shelf_id()))
-                .thenReturn(Optional.of(shelf));
-
-        ShelfEntity updatedShelf = shelf;
-
-        updatedShelf.getBooks().add(book1);
+        when(shelfRepository.findOwnerById(request.shelf_id()))
+                .thenReturn(Optional.of(new ShelfOwnerRow(shelf.getShelf_id(), shelf.getName(), user1.getUsername())));
 
         // When: We call the method addBookToShelf with the valid request.
         AddBookToShelfResponse response = service.addBookToShelf(request);
 
-        /* Then: We assert that the response we get back is the same as the expectedResponse.
-                 extracting the last book from the updated shelf and comparing it with the
-                 response we get back from the service method
-         */
-        BookEntity lastBook = updatedShelf.getBooks()
-                .stream()
-                .reduce((one, two) -> two)
-                .orElseThrow();
-
-        AddBookToShelfResponse expectedResponse = new AddBookToShelfResponse(lastBook,updatedShelf);
+        // Then: We assert that the response names the shelf and the book that was added.
+        AddBookToShelfResponse expectedResponse = new AddBookToShelfResponse(shelf.getShelf_id(),
+                shelf.getName(), book1.getBook_id(), book1.getTitle());
 
         assertThat(response).isEqualTo(expectedResponse);
+
+        // And: That the book was inserted on the shelf without loading the books already on it.
+        verify(shelfRepository).addBook(shelf.getShelf_id(), book1.getBook_id());
+        verify(shelfRepository, never()).findById(any());
     }
 
     @Test
@@ -510,12 +516,12 @@ public class ShelfServiceTest {
         // Given: A bad request with a valid shelf with correct owner but an invalid book.
         AddBookToShelfRequest request = new AddBookToShelfRequest(1L,2L);
 
-        when(currentUserResolver.requireCurrentUser()).thenReturn(user1);
+        when(currentUserResolver.requireCurrentUser()).thenReturn(CurrentUser.from(user1));
 
         SecurityContextHolder.getContext().setAuthentication(auth);
 
-        when(shelfRepository.findById(request.shelf_id()))
-                .thenReturn(Optional.of(shelf));
+        when(shelfRepository.findOwnerById(request.shelf_id()))
+                .thenReturn(Optional.of(new ShelfOwnerRow(shelf.getShelf_id(), shelf.getName(), user1.getUsername())));
 
         // When: We call the service method addBookToShelf with the bad request.
         Executable action = () -> service.addBookToShelf(request);
@@ -534,12 +540,12 @@ public class ShelfServiceTest {
         // Given: A bad request with a valid book, an invalid shelf and a logged user.
         AddBookToShelfRequest request = new AddBookToShelfRequest(5L,1L);
 
-        when(currentUserResolver.requireCurrentUser()).thenReturn(user1);
+        when(currentUserResolver.requireCurrentUser()).thenReturn(CurrentUser.from(user1));
 
         SecurityContextHolder.getContext().setAuthentication(auth);
 
-        when(bookRepository.findById(request.book_id()))
-                .thenReturn(Optional.of(book1));
+        when(bookRepository.findTitleById(request.book_id()))
+                .thenReturn(Optional.of(book1.getTitle()));
 
         // When: We call the service method addBookToShelf with the bad request.
         Executable action = () -> service.addBookToShelf(request);
@@ -563,15 +569,15 @@ public class ShelfServiceTest {
         UserEntity nonAllowedUser = new UserEntity(
                 "Tamara", "tamara@gmail.com", "asdasda");
 
-        when(currentUserResolver.requireCurrentUser()).thenReturn(nonAllowedUser);
+        when(currentUserResolver.requireCurrentUser()).thenReturn(CurrentUser.from(nonAllowedUser));
 
         SecurityContextHolder.getContext().setAuthentication(auth);
 
-        when(bookRepository.findById(request.book_id()))
-                .thenReturn(Optional.of(book1));
+        when(bookRepository.findTitleById(request.book_id()))
+                .thenReturn(Optional.of(book1.getTitle()));
 
-        when(shelfRepository.findById(request.shelf_id()))
-                .thenReturn(Optional.of(shelf));
+        when(shelfRepository.findOwnerById(request.shelf_id()))
+                .thenReturn(Optional.of(new ShelfOwnerRow(shelf.getShelf_id(), shelf.getName(), user1.getUsername())));
 
         // When: We call the service method addBookToShelf with the bad request.
         Executable action = () -> service.addBookToShelf(request);
@@ -585,39 +591,105 @@ public class ShelfServiceTest {
         assertThat(exception.getMessage()).isEqualTo(expectedMessage);
     }
 
+    @Test
+    void changeShelfBooksShouldApplyChangesInOrderAndWriteOnlyTheDifference() {
+        /* Given: A shelf owned by the user with book 6 already on it, a shelf owned by someone else,
+                  a shelf and a book that don't exist, and changes touching all of them.
+         */
+        ShelfBooksChangeRequest request = new ShelfBooksChangeRequest(List.of(
+                new Change(Action.ADD, 2L, 5L),
+                new Change(Action.ADD, 2L, 6L),
+                new Change(Action.REMOVE, 2L, 6L),
+                new Change(Action.ADD, 2L, 7L),
+                new Change(Action.ADD, 3L, 5L),
+                new Change(Action.ADD, 9L, 5L)));
+
+        when(currentUserResolver.requireCurrentUser()).thenReturn(CurrentUser.from(user1));
+        when(shelfRepository.findOwnersByIds(Set.of(2L, 3L, 9L)))
+                .thenReturn(List.of(new ShelfOwnerRow(2L, "Leido", user1.getUsername()),
+                        new ShelfOwnerRow(3L, "Leido", "tamara")));
+        when(bookRepository.findExistingIds(Set.of(5L, 6L, 7L)))
+                .thenReturn(List.of(5L, 6L));
+        when(shelfRepository.findBooksOnShelves(Set.of(2L), Set.of(5L, 6L)))
+                .thenReturn(List.of(new ShelfBookRow(2L, 6L)));
+
+        // When: We call the service method changeShelfBooks with the request.
+        ShelfBooksChangeResponse response = service.changeShelfBooks(request);
+
+        // Then: We assert that every change gets its own result, in request order.
+        assertThat(response.results()).extracting(ShelfBooksChangeResponse.Result::status).containsExactly(
+                Status.ADDED, Status.ALREADY_ON_SHELF, Status.REMOVED,
+                Status.BOOK_NOT_FOUND, Status.NOT_ALLOWED, Status.SHELF_NOT_FOUND);
+        assertThat(response.added()).isEqualTo(1);
+        assertThat(response.removed()).isEqualTo(1);
+        assertThat(response.failed()).isEqualTo(3);
+
+        // And: That only the rows that changed are written.
+        verify(shelfRepository).removeBooks(List.of(new ShelfBookRow(2L, 6L)));
+        verify(shelfRepository).addBooks(List.of(new ShelfBookRow(2L, 5L)));
+    }
+
+    @Test
+    void changeShelfBooksShouldNotLookUpBooksWhenNoShelfIsOwned() {
+        // Given: Changes that only touch a shelf owned by someone else.
+        ShelfBooksChangeRequest request = new ShelfBooksChangeRequest(List.of(
+                new Change(Action.ADD, 3L, 5L),
+                new Change(Action.REMOVE, 3L, 6L)));
+
+        when(currentUserResolver.requireCurrentUser()).thenReturn(CurrentUser.from(user1));
+        when(shelfRepository.findOwnersByIds(Set.of(3L)))
+                .thenReturn(List.of(new ShelfOwnerRow(3L, "Leido", "tamara")));
+
+        // When: We call the service method changeShelfBooks with the request.
+        ShelfBooksChangeResponse response = service.changeShelfBooks(request);
+
+        // Then: We assert that both changes are rejected without reading books or shelf contents.
+        assertThat(response.failed()).isEqualTo(2);
+        verify(bookRepository, never()).findExistingIds(any());
+        verify(shelfRepository, never()).findBooksOnShelves(any(), any());
+        verify(shelfRepository).addBooks(List.of());
+    }
+
     @Test
     void getAllUserShelvesShouldReturnAll(){
         // Given: A list of 3 shelves assigned to the user1 entity.
-        ShelfEntity shelf1 = new ShelfEntity(
-                user1,
+        ShelfSummary shelf1 = new ShelfSummary(
+                1L,
                 "Nueva estanteria 1",
                 "imagen1.jpg",
                 "Mi nueva estanteria 1",
-                true);
-        ShelfEntity shelf2 = new ShelfEntity(
-                user1,
+                true,
+                null,
+                null,
+                0);
+        ShelfSummary shelf2 = new ShelfSummary(
+                2L,
                 "Nueva estanteria 2",
                 "imagen2.jpg",
                 "Mi nueva estanteria 2",
-                false);
-        ShelfEntity shelf3 = new ShelfEntity(
-                user1,
+                false,
+                null,
+                null,
+                0);
+        ShelfSummary shelf3 = new ShelfSummary(
+                3L,
                 "Nueva estanteria 3",
                 "imagen3.jpg",
                 "Mi nueva estanteria 3",
-                true);
+                true,
+                null,
+                null,
+                0);
 
-        when(currentUserResolver.requireCurrentUser()).thenReturn(user1);
-        when(userRepository.findByUsername(user1.getUsername()))
-                .thenReturn(Optional.of(user1));
+        when(currentUserResolver.requireCurrentUser()).thenReturn(CurrentUser.from(user1));
 
         SecurityContextHolder.getContext().setAuthentication(auth);
 
-        when(shelfRepository.findAllByUser(user1))
+        when(shelfRepository.findSummariesByUser(user1.getUser_id()))
                 .thenReturn(List.of(shelf1,shelf2,shelf3));
 
         // When: The service method getAllUserShelves is called with auth user1.
-        List<ShelfEntity> shelves = service.getAllUserShelves();
+        List<ShelfSummary> shelves = service.getAllUserShelves();
 
         // Then: We get the exact 3 shelves we added for this test.
         assertThat(shelves).containsExactly(shelf1,shelf2,shelf3);
@@ -626,20 +698,24 @@ public class ShelfServiceTest {
     @Test
     void getOneUserShelfShouldReturn() {
        // Given: A valid request with a shelf id owned by the logged user.
-        when(currentUserResolver.requireCurrentUser()).thenReturn(user1);
-       when(userRepository.findByUsername(user1.getUsername()))
-               .thenReturn(Optional.of(user1));
+        when(currentUserResolver.requireCurrentUser()).thenReturn(CurrentUser.from(user1));
 
        SecurityContextHolder.getContext().setAuthentication(auth);
 
-       when(shelfRepository.findOneByUserAndShelfId(user1,shelf.getShelf_id()))
-               .thenReturn(Optional.of(shelf));
+       ShelfSummary summary = new ShelfSummary(shelf.getShelf_id(), shelf.getName(), shelf.getImage(),
+               shelf.getDescription(), shelf.getPublic_shelf(), null, null, 5000);
+
+       when(shelfRepository.findSummaryByUserAndShelfId(user1.getUser_id(),shelf.getShelf_id()))
+               .thenReturn(Optional.of(summary));
 
        // When: We call the getOneUserShelf service method with the valid shelf id.
-       ShelfEntity shelfByUser = service.getOneUserShelf(shelf.getShelf_id());
+       ShelfSummary shelfByUser = service.getOneUserShelf(shelf.getShelf_id());
+
+       // Then: We assert that we get back that shelf owned by the user with its book count.
+       assertThat(shelfByUser).isEqualTo(summary);
 
-       // Then: We assert that we get back that shelf owned by the user.
-       assertThat(shelfByUser).isEqualTo(shelf);
+       // And: That none of its books were read.
+       verify(bookRepository, never()).findViewsByIds(any());
     }
 
     @Test
@@ -647,9 +723,7 @@ public class ShelfServiceTest {
        // Given: A bad request with an invalid shelf id and a logged user.
        Long nonValidShelfId = 1L;
 
-        when(currentUserResolver.requireCurrentUser()).thenReturn(user1);
-       when(userRepository.findByUsername(user1.getUsername()))
-               .thenReturn(Optional.of(user1));
+        when(currentUserResolver.requireCurrentUser()).thenReturn(CurrentUser.from(user1));
 
        SecurityContextHolder.getContext().setAuthentication(auth);
 
@@ -668,44 +742,53 @@ public class ShelfServiceTest {
     @Test
     void getAllUserPrivateShelvesShouldReturnAllUserPrivateShelves() {
         // Given: A valid request with a logged user that has 3 shelves assigned.
-        ShelfEntity shelf1 = new ShelfEntity(
-                user1,
+        ShelfSummary shelf1 = new ShelfSummary(
+                1L,
                 "Nueva estanteria 1",
                 "imagen1.jpg",
                 "Mi nueva estanteria 1",
-                false);
-        ShelfEntity shelf2 = new ShelfEntity(
-                user1,
+                false,
+                null,
+                null,
+                0);
+        ShelfSummary shelf2 = new ShelfSummary(
+                2L,
                 "Nueva estanteria 2",
                 "imagen2.jpg",
                 "Mi nueva estanteria 2",
-                false);
-        ShelfEntity shelf3 = new ShelfEntity(
-                user1,
+                false,
+                null,
+                null,
+                0);
+        ShelfSummary shelf3 = new ShelfSummary(
+                3L,
                 "Nueva estanteria 3",
                 "imagen3.jpg",
                 "Mi nueva estanteria 3",
-                true);
+                true,
+                null,
+                null,
+                0);
 
-        when(currentUserResolver.requireCurrentUser()).thenReturn(user1);
+        when(currentUserResolver.requireCurrentUser()).thenReturn(CurrentUser.from(user1));
 
         SecurityContextHolder.getContext().setAuthentication(auth);
 
         // We mock the filtering logic of the repository method, returning only the private shelves.
-        List<ShelfEntity> allShelves = List.of(shelf1, shelf2, shelf3);
-        when(shelfRepository.findAllByUserAndPublicShelfIsFalse(user1))
+        List<ShelfSummary> allShelves = List.of(shelf1, shelf2, shelf3);
+        when(shelfRepository.findPrivateSummariesByUser(user1.getUser_id()))
                 .thenAnswer(invocation -> {
                     return allShelves
                             .stream()
-                            .filter(shelf -> !shelf.getPublic_shelf())
+                            .filter(shelf -> !shelf.public_shelf())
                             .collect(Collectors.toList());
                 });
 
         // When: We call the getAllUserPrivateShelves service method with the valid request.
-        List<ShelfEntity> privateShelves = service.getAllUserPrivateShelves();
+        List<ShelfSummary> privateShelves = service.getAllUserPrivateShelves();
 
-        // Then: We verify that shelfRepository.findAllByUserAndPublicShelfIsFalse(user1) was called.
-        verify(shelfRepository).findAllByUserAndPublicShelfIsFalse(user1);
+        // Then: We verify that shelfRepository.findPrivateSummariesByUser(1L) was called.
+        verify(shelfRepository).findPrivateSummariesByUser(user1.getUser_id());
 
         // And: We assert that we get the exact 2 private shelves that the current user has assigned.
         assertThat(privateShelves).containsExactly(shelf1, shelf2);
@@ -716,45 +799,98 @@ public class ShelfServiceTest {
         // Given: A valid request with a valid user id, that user has 3 shelves assigned.
         Long userId = 1L;
 
-        ShelfEntity shelf1 = new ShelfEntity(
-                user1,
+        ShelfSummary shelf1 = new ShelfSummary(
+                1L,
                 "Nueva estanteria 1",
                 "imagen1.jpg",
                 "Mi nueva estanteria 1",
-                false);
-        ShelfEntity shelf2 = new ShelfEntity(
-                user1,
+                false,
+                null,
+                null,
+                0);
+        ShelfSummary shelf2 = new ShelfSummary(
+                2L,
                 "Nueva estanteria 2",
                 "imagen2.jpg",
                 "Mi nueva estanteria 2",
-                false);
-        ShelfEntity shelf3 = new ShelfEntity(
-                user1,
+                false,
+                null,
+                null,
+                0);
+        ShelfSummary shelf3 = new ShelfSummary(
+                3L,
                 "Nueva estanteria 3",
                 "imagen3.jpg",
                 "Mi nueva estanteria 3",
-                true);
-
-        when(userRepository.findById(userId))
-                .thenReturn(Optional.of(user1));
+                true,
+                null,
+                null,
+                0);
 
         // We mock the filtering logic of the repository method, returning only the public shelves.
-        List<ShelfEntity> allShelves = List.of(shelf1, shelf2, shelf3);
-        when(shelfRepository.findAllByUserAndPublicShelfIsTrue(user1))
+        List<ShelfSummary> allShelves = List.of(shelf1, shelf2, shelf3);
+        when(shelfRepository.findPublicSummariesByUser(userId))
                 .thenAnswer(invocation -> {
                     return allShelves
                             .stream()
-                            .filter(ShelfEntity::getPublic_shelf)
+                            .filter(ShelfSummary::public_shelf)
                             .collect(Collectors.toList());
                 });
 
         // When: We call the getAllUserPublicShelves service method with the valid request.
-        List<ShelfEntity> publicShelves = service.getAllUserPublicShelves(user1.getUser_id());
+        List<ShelfSummary> publicShelves = service.getAllUserPublicShelves(user1.getUser_id());
 
-        // Then: We verify that shelfRepository.findAllByUserAndPublicShelfIsTrue(user1) was called.
-        verify(shelfRepository).findAllByUserAndPublicShelfIsTrue(user1);
+        // Then: We verify that shelfRepository.findPublicSummariesByUser(1L) was called.
+        verify(shelfRepository).findPublicSummariesByUser(userId);
 
         // And: We assert that we get the exact 1 public shelf that the current user has assigned.
         assertThat(publicShelves).containsExactly(shelf3);
     }
+
+    @Test
+    void getUserShelfBooksShouldReturnOnePageAndACursorForTheNext() {
+        // Given: A shelf owned by the user with more books than the requested page size.
+        BookView first = new BookView(5L, "Nuevo libro", "Un gran libro", "Portada", new BigDecimal("12.50"), 0L, 0.0);
+        BookView second = new BookView(6L, "Otro libro", "Otro gran libro", "Portada", new BigDecimal("10.00"), 0L, 0.0);
+
+        when(currentUserResolver.requireCurrentUser()).thenReturn(CurrentUser.from(user1));
+        when(shelfRepository.existsByUserAndShelfId(user1.getUser_id(), shelf.getShelf_id()))
+                .thenReturn(true);
+        when(bookRepository.findShelfPageAfter(shelf.getShelf_id(), 0L, Limit.of(2)))
+                .thenReturn(new ArrayList<>(List.of(first, second)));
+
+        // When: We ask for the first page of one book.
+        CursorPage<BookView> page = service.getUserShelfBooks(shelf.getShelf_id(), null, 1);
+
+        // Then: We assert that we get the first book and a cursor pointing after it.
+        assertThat(page.items()).containsExactly(first);
+        assertThat(page.next_cursor()).isNotNull();
+
+        // And: That the next page seeks past the last book id instead of skipping rows.
+        when(bookRepository.findShelfPageAfter(shelf.getShelf_id(), 5L, Limit.of(2)))
+                .thenReturn(new ArrayList<>(List.of(second)));
+
+        CursorPage<BookView> next = service.getUserShelfBooks(shelf.getShelf_id(), page.next_cursor(), 1);
+
+        assertThat(next.items()).containsExactly(second);
+        assertThat(next.next_cursor()).isNull();
+    }
+
+    @Test
+    void getPublicShelfBooksShouldReturnErrorWhenTheShelfIsPrivate() {
+        // Given: A shelf id that is not a public shelf.
+        when(shelfRepository.existsPublicById(shelf.getShelf_id()))
+                .thenReturn(false);
+
+        // When: We ask for its books through the public endpoint.
+        Executable action = () -> service.getPublicShelfBooks(shelf.getShelf_id(), null, 20);
+
+        // Then: We assert that it throws a EntityNotFoundException.
+        EntityNotFoundException exception = assertThrows(EntityNotFoundException.class,
+                action);
+
+        // And: That no books were read.
+        assertThat(exception.getMessage()).isEqualTo("Shelf Not Found.");
+        verify(bookRepository, never()).findShelfPageAfter(any(), any(), any());
+    }
 }
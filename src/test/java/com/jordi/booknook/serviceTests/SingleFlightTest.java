@@ -0,0 +1,117 @@
+package com.jordi.booknook.serviceTests;
+
+import com.jordi.booknook.cache.SingleFlight;
+import com.jordi.booknook.payload.response.CoalescingStatsResponse;
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SingleFlightTest {
+    SingleFlight<Long, String> singleFlight;
+    ExecutorService executor;
+
+    @BeforeEach
+    void setUp(){
+        this.singleFlight = new SingleFlight<>();
+        this.executor = Executors.newFixedThreadPool(8);
+    }
+
+    @AfterEach
+    void tearDown(){
+        executor.shutdownNow();
+    }
+
+    @Test
+    void concurrentCallsForTheSameKeyShouldShareOneLoad() throws Exception {
+        // Given: A load that blocks until we release it.
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+
+        // When: Eight callers ask for the same key while the load is running.
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            results.add(executor.submit(() -> singleFlight.execute(1L, () -> {
+                loads.incrementAndGet();
+                await(release);
+                return "book 1";
+            })));
+        }
+        waitUntil(() -> singleFlight.stats().coalesced() == 7);
+        release.countDown();
+
+        // Then: We assert that everyone gets the same value from a single load.
+        for (Future<String> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("book 1");
+        }
+        CoalescingStatsResponse stats = singleFlight.stats();
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(stats.loads()).isEqualTo(1);
+        assertThat(stats.coalesced()).isEqualTo(7);
+        assertThat(stats.in_flight()).isZero();
+    }
+
+    @Test
+    void waitingCallersShouldSeeTheExceptionOfTheLoad() throws Exception {
+        // Given: A load that fails once we release it.
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<String> first = executor.submit(() -> singleFlight.execute(404L, () -> {
+            await(release);
+            throw new EntityNotFoundException("Book not found.");
+        }));
+        waitUntil(() -> singleFlight.stats().in_flight() == 1);
+
+        // When: A second caller asks for the same key before it fails.
+        Future<String> second = executor.submit(() -> singleFlight.execute(404L, () -> "never loaded"));
+        waitUntil(() -> singleFlight.stats().coalesced() == 1);
+        release.countDown();
+
+        // Then: We assert that both callers get the original exception.
+        assertThatThrownBy(() -> first.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(EntityNotFoundException.class);
+        assertThatThrownBy(() -> second.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(EntityNotFoundException.class);
+    }
+
+    @Test
+    void callsAfterALoadFinishesShouldLoadAgain(){
+        // Given: A key that was already loaded once.
+        singleFlight.execute(1L, () -> "first");
+
+        // When: We ask for it again after the load finished.
+        String value = singleFlight.execute(1L, () -> "second");
+
+        // Then: We assert that the value wasn't kept around.
+        assertThat(value).isEqualTo("second");
+        assertThat(singleFlight.stats().coalesced()).isZero();
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("waiting for the callers").isLessThan(deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
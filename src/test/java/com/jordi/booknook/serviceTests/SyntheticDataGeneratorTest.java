@@ -0,0 +1,134 @@
+package com.jordi.booknook.serviceTests;
+
+import com.jordi.booknook.seed.SyntheticDataGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class SyntheticDataGeneratorTest {
+    @Mock
+    JdbcTemplate jdbcTemplate;
+
+    // The rows written to each table, in the order they were written.
+    private Map<String, List<List<Object>>> generate(long seed) {
+        Map<String, List<List<Object>>> tables = new LinkedHashMap<>();
+        doAnswer(invocation -> {
+            String table = ((String) invocation.getArgument(0)).split(" ")[2];
+            List<Object[]> rows = invocation.getArgument(1);
+            rows.forEach(row -> tables.computeIfAbsent(table, ignored -> new ArrayList<>()).add(Arrays.asList(row.clone())));
+            return new int[rows.size()];
+        }).when(jdbcTemplate).batchUpdate(anyString(), anyList());
+
+        new SyntheticDataGenerator(jdbcTemplate, 2000, 30, 2000, 20000, 1.0, seed).generate();
+        return tables;
+    }
+
+    @Test
+    void generateShouldWriteTheSameRowsForTheSameSeed() {
+        // Given: Two generators with the same sizes and seed.
+        Map<String, List<List<Object>>> first = generate(7);
+        Map<String, List<List<Object>>> second = generate(7);
+
+        // When: A third one uses another seed.
+        Map<String, List<List<Object>>> other = generate(8);
+
+        // Then: We assert that the same seed wrote exactly the same rows in every table.
+        assertThat(first.keySet()).containsExactly("category_entity", "books", "book_category", "book_images",
+                "users", "shelves", "book_shelf", "book_reviews");
+        assertThat(second).isEqualTo(first);
+
+        // And: That another seed wrote different ones.
+        assertThat(other.get("book_reviews")).isNotEqualTo(first.get("book_reviews"));
+    }
+
+    @Test
+    void generateShouldSkewReviewsAndShelvesTowardsPopularBooks() {
+        // Given: A catalog of 2,000 books and 2,000 users.
+        Map<String, List<List<Object>>> tables = generate(42);
+
+        // When: The reviews and shelf entries are counted per book.
+        List<Integer> reviewsPerBook = countsPerBook(tables.get("book_reviews"), 1);
+        List<Integer> shelvesPerBook = countsPerBook(tables.get("book_shelf"), 1);
+
+        // Then: We assert that the top 1% of the books got a large share of the reviews and shelf entries.
+        assertThat(share(reviewsPerBook, 20)).isGreaterThan(0.2);
+        assertThat(share(shelvesPerBook, 20)).isGreaterThan(0.2);
+
+        // And: That most shelves hold a few books while some hold many.
+        List<Integer> booksPerShelf = countsPerBook(tables.get("book_shelf"), 0);
+        assertThat(booksPerShelf.get(booksPerShelf.size() / 2)).isLessThanOrEqualTo(3);
+        assertThat(booksPerShelf.get(0)).isGreaterThan(50);
+    }
+
+    @Test
+    void generateShouldKeepRatingAggregatesInLineWithTheReviews() {
+        // Given: A generated catalog.
+        Map<String, List<List<Object>>> tables = generate(42);
+
+        // When: The ratings of the reviews are added up per book.
+        Map<Object, long[]> ratings = new HashMap<>();
+        Set<List<Object>> reviewers = new HashSet<>();
+        for (List<Object> review : tables.get("book_reviews")) {
+            long[] aggregate = ratings.computeIfAbsent(review.get(1), ignored -> new long[7]);
+            aggregate[0]++;
+            aggregate[1] += (Integer) review.get(3);
+            aggregate[1 + (Integer) review.get(3)]++;
+            reviewers.add(List.of(review.get(1), review.get(2)));
+        }
+
+        // Then: We assert that every book row carries the count, sum and histogram of its reviews.
+        assertThat(tables.get("books")).hasSize(2000).allSatisfy(book -> {
+            long[] aggregate = ratings.getOrDefault(book.get(0), new long[7]);
+            assertThat(book.get(5)).isEqualTo(aggregate[0]);
+            assertThat(book.get(6)).isEqualTo(aggregate[1]);
+            assertThat(book.subList(8, 13)).containsExactly(aggregate[2], aggregate[3], aggregate[4], aggregate[5], aggregate[6]);
+        });
+
+        // And: That no user reviewed the same book twice.
+        assertThat(reviewers).hasSize(tables.get("book_reviews").size());
+    }
+
+    @Test
+    void runShouldNotTouchADatabaseThatAlreadyHasBooks() {
+        // Given: A database that already has books.
+        when(jdbcTemplate.queryForList("SELECT book_id FROM books LIMIT 1", Long.class)).thenReturn(List.of(1L));
+
+        // When: The generator runs.
+        new SyntheticDataGenerator(jdbcTemplate, 2000, 30, 2000, 20000, 1.0, 42).run(null);
+
+        // Then: We assert that nothing was written.
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+    }
+
+    // Occurrences of each value of the column, most frequent first.
+    private static List<Integer> countsPerBook(List<List<Object>> rows, int column) {
+        Map<Object, Integer> counts = new HashMap<>();
+        rows.forEach(row -> counts.merge(row.get(column), 1, Integer::sum));
+        return counts.values().stream().sorted((a, b) -> b - a).toList();
+    }
+
+    private static double share(List<Integer> counts, int top) {
+        int total = counts.stream().mapToInt(Integer::intValue).sum();
+        return counts.stream().limit(top).mapToInt(Integer::intValue).sum() / (double) total;
+    }
+}
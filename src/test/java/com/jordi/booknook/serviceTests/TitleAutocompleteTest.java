@@ -0,0 +1,103 @@
+package com.jordi.booknook.serviceTests;
+
+import com.jordi.booknook.events.BookRatingChangedEvent;
+import com.jordi.booknook.events.TitleAutocompleteInitializer;
+import com.jordi.booknook.repositories.BookRepository;
+import com.jordi.booknook.repositories.CategoryRepository;
+import com.jordi.booknook.search.AutocompleteStats;
+import com.jordi.booknook.search.BookTitleRow;
+import com.jordi.booknook.search.Suggestion;
+import com.jordi.booknook.search.TitleAutocomplete;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TitleAutocompleteTest {
+    TitleAutocomplete autocomplete;
+
+    @BeforeEach
+    void setUp(){
+        this.autocomplete = new TitleAutocomplete();
+        autocomplete.rebuild(Stream.of(
+                Suggestion.forBook(1L, "El señor de los anillos", 4.8, 120L),
+                Suggestion.forBook(2L, "El señor de las moscas", 4.1, 40L),
+                Suggestion.forBook(3L, "El nombre del viento", 4.5, 300L),
+                Suggestion.forCategory(1L, "Fantasía", 25L)));
+    }
+
+    private static List<Long> ids(List<Suggestion> suggestions) {
+        return suggestions.stream().map(Suggestion::id).toList();
+    }
+
+    @Test
+    void suggestShouldMatchPrefixesEndingInsideAnEdgeAndRankByPopularity() {
+        // Given: Three books starting with "El", two of them sharing "El señor de l".
+        // When: We ask for a prefix that ends in the middle of the shared part, without accents.
+        List<Suggestion> suggestions = autocomplete.suggest("el SENOR de", 10);
+
+        // Then: We assert that both matching books come back, the most popular first.
+        assertThat(ids(suggestions)).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void suggestShouldIncludeCategoriesAndRespectTheLimit() {
+        // Given: A category called "Fantasía" and books starting with "El".
+        // When: We ask for "fan" and for only one "el" suggestion.
+        List<Suggestion> categories = autocomplete.suggest("fan", 10);
+        List<Suggestion> books = autocomplete.suggest("el", 1);
+
+        // Then: We assert that the category is suggested and the limit is applied.
+        assertThat(categories).hasSize(1);
+        assertThat(categories.get(0).type()).isEqualTo(Suggestion.Type.CATEGORY);
+        assertThat(ids(books)).containsExactly(3L);
+    }
+
+    @Test
+    void putShouldReplaceTheTitleAndRemoveShouldPruneTheTree() {
+        // Given: The size of the tree before any change.
+        AutocompleteStats before = autocomplete.stats();
+
+        // When: A book is renamed and another one removed.
+        autocomplete.put(Suggestion.forBook(2L, "Moscas", 4.1, 40L));
+        autocomplete.remove(Suggestion.Type.BOOK, 1L);
+
+        // Then: We assert that only the new title matches and the tree got smaller.
+        assertThat(autocomplete.suggest("el senor", 10)).isEmpty();
+        assertThat(ids(autocomplete.suggest("mos", 10))).containsExactly(2L);
+        assertThat(autocomplete.stats().suggestions()).isEqualTo(before.suggestions() - 1);
+        assertThat(autocomplete.stats().estimated_bytes()).isLessThan(before.estimated_bytes());
+    }
+
+    @Test
+    void suggestShouldReturnNothingForUnknownPrefixes() {
+        // Given: No title starting with "zz".
+        // When: We ask for it.
+        List<Suggestion> suggestions = autocomplete.suggest("zz", 10);
+
+        // Then: We assert that no suggestion is returned.
+        assertThat(suggestions).isEmpty();
+    }
+
+    @Test
+    void ratingChangeShouldRescoreTheBook() {
+        // Given: "El señor de las moscas" ranking below "El señor de los anillos", and a database where it now has many good reviews.
+        BookRepository bookRepository = mock(BookRepository.class);
+        when(bookRepository.findTitleRowById(2L))
+                .thenReturn(Optional.of(new BookTitleRow(2L, "El señor de las moscas", 4.9, 500L)));
+        TitleAutocompleteInitializer initializer = new TitleAutocompleteInitializer(bookRepository,
+                mock(CategoryRepository.class), autocomplete);
+
+        // When: One more review of it is committed.
+        initializer.onBookRatingChanged(new BookRatingChangedEvent(2L, 1, 5));
+
+        // Then: We assert that it is now suggested first.
+        assertThat(ids(autocomplete.suggest("el senor", 10))).containsExactly(2L, 1L);
+    }
+}
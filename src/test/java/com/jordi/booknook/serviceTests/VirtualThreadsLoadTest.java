@@ -0,0 +1,75 @@
+package com.jordi.booknook.serviceTests;
+
+import com.jordi.booknook.services.KeysetCursor;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.net.URI;
+import java.util.SplittableRandom;
+import java.util.function.BiFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Throughput and p99 of the public book listing under 2,000 concurrent clients, with Tomcat
+ * on its 200 platform workers and then on virtual threads. Each mode runs the whole
+ * application over the same MySQL catalog. Only run by mvn test -Pload-tests, and the
+ * clients and the server share the JVM, so it needs more than 4,000 open files.
+ */
+@Tag("load")
+@Testcontainers(disabledWithoutDocker = true)
+public class VirtualThreadsLoadTest {
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadsLoadTest.class);
+
+    static final int CLIENTS = 2000;
+    static final int REQUESTS_PER_CLIENT = 10;
+    static final int BOOKS = 20000;
+    static final int PAGE_SIZE = 20;
+
+    @Container
+    static MySQLContainer<?> mysql = new MySQLContainer<>("mysql:8.0")
+            .withUrlParam("useCursorFetch", "true")
+            .withUrlParam("rewriteBatchedStatements", "true")
+            .withUrlParam("cachePrepStmts", "true")
+            .withUrlParam("prepStmtCacheSize", "250")
+            .withUrlParam("prepStmtCacheSqlLimit", "2048");
+
+    // The connection backlog fits every client, so both modes start from the same queue.
+    private static HttpLoad.Result measure(boolean virtualThreads) throws Exception {
+        try (LoadTestServer server = LoadTestServer.start(mysql,
+                "--spring.threads.virtual.enabled=" + virtualThreads,
+                "--server.tomcat.accept-count=" + CLIENTS,
+                "--booknook.seed.books=" + BOOKS,
+                "--booknook.seed.categories=50",
+                "--booknook.seed.users=2000",
+                "--booknook.seed.reviews=100000")) {
+            // Each request reads a page of books after a random one, with their categories and images.
+            long[] after = new SplittableRandom(42).longs((long) CLIENTS * REQUESTS_PER_CLIENT, 0, BOOKS - PAGE_SIZE).toArray();
+            BiFunction<Integer, Integer, URI> pages = (client, request) -> server.uri("/api/v1/books?limit=" + PAGE_SIZE
+                    + "&after=" + KeysetCursor.encode(after[client * REQUESTS_PER_CLIENT + request]));
+
+            HttpLoad.run(200, REQUESTS_PER_CLIENT, pages);
+            return HttpLoad.run(CLIENTS, REQUESTS_PER_CLIENT, pages);
+        }
+    }
+
+    @Test
+    void bookListingUnderTwoThousandClientsOnPlatformAndVirtualThreads() throws Exception {
+        // Given: The same catalog served by Tomcat's platform workers and by virtual threads.
+        // When: 2,000 clients list pages of books in each mode, after a warm up with 200.
+        HttpLoad.Result platform = measure(false);
+        HttpLoad.Result virtual = measure(true);
+
+        log.info("Platform threads: {}", platform);
+        log.info("Virtual threads: {}", virtual);
+
+        // Then: We assert that every request was answered in both modes.
+        assertThat(platform.failures()).isZero();
+        assertThat(virtual.failures()).isZero();
+    }
+}